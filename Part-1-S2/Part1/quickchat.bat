@@ -0,0 +1,10 @@
+@echo off
+rem Starts QuickChat, using the AppCDS archive if one has been built (ant cds-archive).
+rem The classpath must match the one build.xml uses for the archive.
+cd /d "%~dp0"
+set CLASSPATH_APP=dist\Part1.jar;..\json-simple-1.1.1.jar
+if exist dist\Part1.jsa (
+    java -XX:SharedArchiveFile=dist\Part1.jsa -Xshare:auto -cp "%CLASSPATH_APP%" part1.Main %*
+) else (
+    java -cp "%CLASSPATH_APP%" part1.Main %*
+)
@@ -0,0 +1,9 @@
+#!/bin/sh
+# Starts QuickChat, using the AppCDS archive if one has been built (ant cds-archive).
+# The classpath must match the one build.xml uses for the archive.
+cd "$(dirname "$0")" || exit 1
+CLASSPATH_APP="dist/Part1.jar:../json-simple-1.1.1.jar"
+if [ -f dist/Part1.jsa ]; then
+    exec java -XX:SharedArchiveFile=dist/Part1.jsa -Xshare:auto -cp "$CLASSPATH_APP" part1.Main "$@"
+fi
+exec java -cp "$CLASSPATH_APP" part1.Main "$@"
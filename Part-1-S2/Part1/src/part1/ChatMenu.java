@@ -4,13 +4,28 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileLock;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Predicate;
 
 /**
  * ChatMenu provides the main interface for the QuickChat application.
  * It allows users to send messages, view reports on stored messages, or exit.
  */
 public class ChatMenu extends JFrame {
+    private static final int CONVERSATION_PAGE_SIZE = 50; // Messages shown per conversation page
+    private static final long MAX_SCHEDULE_MINUTES = 365L * 24 * 60; // Furthest a message can be scheduled (one year)
+
     // Main menu buttons
     private JButton btnSendMessages;
     private JButton btnShowRecent;
@@ -19,15 +34,148 @@ public class ChatMenu extends JFrame {
     // Welcome label
     private JLabel lblWelcome;
 
+    // Live message count at the bottom, kept up to date from the MessageEventBus
+    private JLabel lblLiveStatus;
+    private int messageCount;
+    private int newMessageCount;
+
     // Handles storing, retrieving, and saving messages
     private MessageStorage messageStorage;
 
+    // Sends scheduled messages when they fall due (deliveries run on the EDT)
+    private MessageScheduler messageScheduler;
+
+    // Applies the retention policy in the background (steps run on the EDT)
+    private MessageCompactor messageCompactor;
+
+    // Keeps the live message count up to date (closed on exit)
+    private MessageEventBus.Subscription eventSubscription;
+
+    // Delivers sent messages to connected recipients; commits through this menu's partition (closed on exit)
+    private DeliveryServer deliveryServer;
+
+    // This process's claim on the user's partition, held until exit
+    private FileLock partitionClaim;
+
+    // Re-checks content hashes; remembers what already passed between runs
+    private final IntegrityVerifier integrityVerifier = new IntegrityVerifier();
+
     /**
      * Constructor for the ChatMenu
      */
     public ChatMenu() {
         initComponents(); // Setup UI components
-        messageStorage = new MessageStorage(); // Initialize message storage
+
+        // Show the menu straight away; messages keep loading in the background.
+        // Load only the logged-in user's partition (shared partition if nobody logged in)
+        setLoading(true);
+        MessagePreloader.get(UserCredentials.getInstance().getUsername())
+                .whenComplete((storage, error) -> EventQueue.invokeLater(() -> messagesLoaded(storage, error)));
+    }
+
+    /**
+     * Disables the message buttons while messages are loading.
+     */
+    private void setLoading(boolean loading) {
+        btnSendMessages.setEnabled(!loading);
+        btnShowRecent.setEnabled(!loading);
+        lblWelcome.setText(loading ? "Loading messages..." : "Welcome to QuickChat");
+    }
+
+    /**
+     * Runs on the EDT once the background load has finished.
+     */
+    private void messagesLoaded(MessageStorage storage, Throwable error) {
+        if (error != null) {
+            System.out.println("Error loading messages: " + error.getMessage());
+            storage = new MessageStorage(UserCredentials.getInstance().getUsername()); // Try once more here
+        }
+        messageStorage = storage;
+        if (!claimPartition(storage)) {
+            return;
+        }
+        startDeliveryServer(storage);
+        messageScheduler = new MessageScheduler(storage, EventQueue::invokeLater);
+        messageCompactor = new MessageCompactor(storage, EventQueue::invokeLater,
+                RetentionPolicy.fromSystemProperties());
+        messageCompactor.start();
+        setLoading(false);
+        MessagePreloader.reportInteractive(storage);
+
+        // From now on, follow changes through events instead of re-reading the store
+        messageCount = storage.getMessages().size();
+        updateLiveStatus();
+        eventSubscription = MessageEventBus.getInstance().subscribe("chat-menu",
+                events -> EventQueue.invokeLater(() -> applyEvents(events)));
+    }
+
+    /**
+     * Claims the partition so no other QuickChat window or delivery server writes
+     * it while this menu has it open. If one already does, only the reports stay available.
+     */
+    private boolean claimPartition(MessageStorage storage) {
+        try {
+            partitionClaim = storage.claim();
+        } catch (IOException e) {
+            System.out.println("Error claiming messages: " + e.getMessage());
+        }
+        if (partitionClaim != null) {
+            return true;
+        }
+        setLoading(false);
+        btnSendMessages.setEnabled(false);
+        lblWelcome.setText("Messages open elsewhere");
+        JOptionPane.showMessageDialog(this,
+                "Your messages are open in another QuickChat window or server.\nYou can view reports, but not send messages.",
+                "Messages In Use",
+                JOptionPane.WARNING_MESSAGE);
+        return false;
+    }
+
+    /**
+     * Starts the delivery server in the app with this menu's partition attached, so
+     * Send delivers to connected recipients and client sends for this user are
+     * committed here on the EDT. Only one app on the machine can listen on the port.
+     */
+    private void startDeliveryServer(MessageStorage storage) {
+        if (storage.getOwner() == null) {
+            return; // Nobody logged in, so there is no one to send as
+        }
+        DeliveryServer server = null;
+        try {
+            server = new DeliveryServer(DeliveryServer.DEFAULT_PORT);
+            server.attach(storage, EventQueue::invokeLater);
+            deliveryServer = server;
+        } catch (IOException e) {
+            System.out.println("Error starting delivery server: " + e.getMessage());
+            if (server != null) {
+                try {
+                    server.close();
+                } catch (IOException closeError) {
+                    System.out.println("Error stopping delivery server: " + closeError.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Updates the live message count from a batch of events (runs on the EDT).
+     */
+    private void applyEvents(List<MessageEvent> events) {
+        String owner = messageStorage.getOwner();
+        for (MessageEvent event : events) {
+            if (event.getType() == MessageEvent.Type.ADDED && Objects.equals(owner, event.getOwner())) {
+                messageCount++;
+                newMessageCount++;
+            } else if (event.getType() == MessageEvent.Type.REMOVED && Objects.equals(owner, event.getOwner())) {
+                messageCount--;
+            }
+        }
+        updateLiveStatus();
+    }
+
+    private void updateLiveStatus() {
+        lblLiveStatus.setText("Messages: " + messageCount + " (" + newMessageCount + " new this session)");
     }
 
     /**
@@ -64,6 +212,12 @@ public class ChatMenu extends JFrame {
 
         add(buttonPanel, BorderLayout.CENTER); // Add buttons in the middle
 
+        // Live message count at the bottom
+        lblLiveStatus = new JLabel(" ");
+        lblLiveStatus.setHorizontalAlignment(SwingConstants.CENTER);
+        lblLiveStatus.setBorder(BorderFactory.createEmptyBorder(0, 0, 10, 0));
+        add(lblLiveStatus, BorderLayout.SOUTH);
+
         // Add button functionality (event listeners)
         btnSendMessages.addActionListener(new ActionListener() {
             @Override
@@ -82,6 +236,22 @@ public class ChatMenu extends JFrame {
         btnExit.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
+                if (messageScheduler != null) {
+                    messageScheduler.close(); // Write the pending schedule before leaving
+                }
+                if (messageCompactor != null) {
+                    messageCompactor.close();
+                }
+                if (eventSubscription != null) {
+                    eventSubscription.close();
+                }
+                if (deliveryServer != null) {
+                    try {
+                        deliveryServer.close(); // Anything only in its journal is recovered next time
+                    } catch (IOException ex) {
+                        System.out.println("Error stopping delivery server: " + ex.getMessage());
+                    }
+                }
                 System.exit(0); // Exit application
             }
         });
@@ -121,13 +291,14 @@ public class ChatMenu extends JFrame {
             return;
         }
 
-        // Keep track of how many messages actually get sent or stored
+        // Keep track of how many messages actually get sent or stored, and how many are scheduled
         int messagesSent = 0;
+        int messagesScheduled = 0;
         int currentMessageNumber = messageStorage.getNextMessageNumber();
 
         // Loop through however many messages the user wants to create
         for (int i = 0; i < numMessages; i++) {
-            if (messagesSent >= numMessages) {
+            if (messagesSent + messagesScheduled >= numMessages) {
                 JOptionPane.showMessageDialog(this,
                         "You've reached your message limit of " + numMessages,
                         "Limit Reached",
@@ -175,10 +346,10 @@ public class ChatMenu extends JFrame {
             }
 
             // Create a new Message object
-            Message message = new Message(currentMessageNumber++, recipient, content);
+            Message message = new Message(currentMessageNumber++, messageStorage.getOwner(), recipient, content);
 
             // Ask user what to do with the created message
-            String[] options = {"Send", "Store", "Discard"};
+            String[] options = {"Send", "Store", "Schedule", "Discard"};
             int choice = JOptionPane.showOptionDialog(this,
                     message.toString() + "\n\nWhat would you like to do with this message?",
                     "Message Created",
@@ -190,10 +361,26 @@ public class ChatMenu extends JFrame {
 
             // Handle user’s decision
             switch (choice) {
-                case 0: // Send immediately
-                    message.setStatus("Sent");
-                    messageStorage.addMessage(message);
-                    messageStorage.saveMessages();
+                case 0: // Send through the delivery server: saved, then delivered to the recipient if connected
+                    if (deliveryServer == null) {
+                        JOptionPane.showMessageDialog(this,
+                                "The delivery server isn't running, so the message can't be sent.\nStore it to send later.",
+                                "Not Sent",
+                                JOptionPane.ERROR_MESSAGE);
+                        break;
+                    }
+                    String status = deliveryServer.send(message);
+                    if ("Rejected".equals(status)) {
+                        showDuplicateWarning();
+                        break;
+                    }
+                    if ("Failed".equals(status)) {
+                        JOptionPane.showMessageDialog(this,
+                                "The message could not be saved, so it was not sent.",
+                                "Not Sent",
+                                JOptionPane.ERROR_MESSAGE);
+                        break;
+                    }
                     JOptionPane.showMessageDialog(this,
                             "Message sent successfully!",
                             "Message Sent",
@@ -202,7 +389,10 @@ public class ChatMenu extends JFrame {
                     break;
                 case 1: // Store for later
                     message.setStatus("Stored");
-                    messageStorage.addMessage(message);
+                    if (!messageStorage.addMessage(message)) {
+                        showDuplicateWarning();
+                        break;
+                    }
                     messageStorage.saveMessages();
                     JOptionPane.showMessageDialog(this,
                             "Message stored for later sending.",
@@ -210,7 +400,23 @@ public class ChatMenu extends JFrame {
                             JOptionPane.INFORMATION_MESSAGE);
                     messagesSent++;
                     break;
-                case 2: // Discard
+                case 2: // Send later
+                    Long deliverAt = askDeliveryTime();
+                    if (deliverAt == null) {
+                        message.setStatus("Discarded"); // Cancelled: treat as discard
+                        break;
+                    }
+                    if (!messageScheduler.schedule(message, deliverAt)) {
+                        showDuplicateWarning();
+                        break;
+                    }
+                    JOptionPane.showMessageDialog(this,
+                            "Message scheduled for " + new java.util.Date(deliverAt) + ".",
+                            "Message Scheduled",
+                            JOptionPane.INFORMATION_MESSAGE);
+                    messagesScheduled++; // Not sent yet
+                    break;
+                case 3: // Discard
                 default:
                     message.setStatus("Discarded");
                     JOptionPane.showMessageDialog(this,
@@ -222,20 +428,60 @@ public class ChatMenu extends JFrame {
         }
 
         // Show summary once all messages are done
-        if (messagesSent > 0) {
+        if (messagesSent > 0 || messagesScheduled > 0) {
+            String scheduled = messagesScheduled > 0 ? "\n" + messagesScheduled + " message(s) scheduled for later." : "";
             JOptionPane.showMessageDialog(this,
-                    "You have sent/stored " + messagesSent + " message(s).",
+                    "You have sent/stored " + messagesSent + " message(s)." + scheduled,
                     "Message Summary",
                     JOptionPane.INFORMATION_MESSAGE);
         }
     }
 
+    /**
+     * Asks how many minutes from now a scheduled message should be sent
+     *
+     * @return delivery time (epoch millis), or null if the user cancelled
+     */
+    private Long askDeliveryTime() {
+        while (true) {
+            String input = JOptionPane.showInputDialog(this,
+                    "Send in how many minutes?",
+                    "Schedule Message",
+                    JOptionPane.QUESTION_MESSAGE);
+            if (input == null) {
+                return null;
+            }
+            try {
+                long minutes = Long.parseLong(input.trim());
+                if (minutes > 0 && minutes <= MAX_SCHEDULE_MINUTES) {
+                    return System.currentTimeMillis() + minutes * 60_000L;
+                }
+            } catch (NumberFormatException e) {
+                // Fall through to the warning
+            }
+            JOptionPane.showMessageDialog(this,
+                    "Please enter a whole number of minutes from 1 to " + MAX_SCHEDULE_MINUTES + " (one year).",
+                    "Invalid Time",
+                    JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * Tells the user a message was rejected by the dedup stage
+     */
+    private void showDuplicateWarning() {
+        JOptionPane.showMessageDialog(this,
+                "You already sent this message to this recipient recently. It was not saved again.",
+                "Duplicate Message",
+                JOptionPane.WARNING_MESSAGE);
+    }
+
     /**
      * Opens the report menu with options to view different message reports
      */
     private void showReportMenu() {
         JFrame reportFrame = new JFrame("Message Reports");
-        reportFrame.setSize(400, 350);
+        reportFrame.setSize(400, 600);
         reportFrame.setLocationRelativeTo(null);
         reportFrame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
 
@@ -270,10 +516,40 @@ public class ChatMenu extends JFrame {
         });
         reportPanel.add(searchByRecipientButton, gbc);
 
+        JButton findByIdButton = new JButton("Find by Message ID");
+        findByIdButton.addActionListener(e -> {
+            String messageId = JOptionPane.showInputDialog(null, "Enter the message ID:");
+            if (messageId != null && !messageId.trim().isEmpty()) {
+                findMessageById(messageId.trim());
+            } else {
+                JOptionPane.showMessageDialog(null, "Message ID cannot be empty.");
+            }
+        });
+        reportPanel.add(findByIdButton, gbc);
+
+        JButton viewConversationButton = new JButton("View Conversation");
+        viewConversationButton.addActionListener(e -> {
+            String recipient = JOptionPane.showInputDialog(null, "Enter recipient to view the conversation with:");
+            if (recipient != null && !recipient.trim().isEmpty()) {
+                showConversation(recipient.trim());
+            } else {
+                JOptionPane.showMessageDialog(null, "Recipient name cannot be empty.");
+            }
+        });
+        reportPanel.add(viewConversationButton, gbc);
+
         JButton showMessageHashButton = new JButton("Show Message Hashes");
         showMessageHashButton.addActionListener(e -> showMessageHashes());
         reportPanel.add(showMessageHashButton, gbc);
 
+        JButton verifyIntegrityButton = new JButton("Verify Message Integrity");
+        verifyIntegrityButton.addActionListener(e -> verifyMessageIntegrity());
+        reportPanel.add(verifyIntegrityButton, gbc);
+
+        JButton exportButton = new JButton("Export Messages");
+        exportButton.addActionListener(e -> exportMessages(reportFrame));
+        reportPanel.add(exportButton, gbc);
+
         reportFrame.add(reportPanel);
         reportFrame.setVisible(true);
     }
@@ -378,6 +654,185 @@ public class ChatMenu extends JFrame {
         JOptionPane.showMessageDialog(null, scrollPane, "Messages for " + recipient, JOptionPane.INFORMATION_MESSAGE);
     }
 
+    /**
+     * Asks for export options and a file, then exports in the background
+     */
+    private void exportMessages(Component parent) {
+        JComboBox<MessageExporter.Format> formatBox = new JComboBox<>(MessageExporter.Format.values());
+        JTextField statusField = new JTextField();
+        JTextField recipientField = new JTextField();
+        JTextField fromField = new JTextField();
+        JTextField toField = new JTextField();
+
+        JPanel optionsPanel = new JPanel(new GridLayout(0, 2, 5, 5));
+        optionsPanel.add(new JLabel("Format:"));
+        optionsPanel.add(formatBox);
+        optionsPanel.add(new JLabel("Status (blank = all):"));
+        optionsPanel.add(statusField);
+        optionsPanel.add(new JLabel("Recipient contains:"));
+        optionsPanel.add(recipientField);
+        optionsPanel.add(new JLabel("From message #:"));
+        optionsPanel.add(fromField);
+        optionsPanel.add(new JLabel("To message #:"));
+        optionsPanel.add(toField);
+
+        if (JOptionPane.showConfirmDialog(parent, optionsPanel, "Export Messages",
+                JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE) != JOptionPane.OK_OPTION) {
+            return;
+        }
+
+        int from;
+        int to;
+        try {
+            from = fromField.getText().trim().isEmpty() ? 0 : Integer.parseInt(fromField.getText().trim());
+            to = toField.getText().trim().isEmpty() ? Integer.MAX_VALUE : Integer.parseInt(toField.getText().trim());
+        } catch (NumberFormatException ex) {
+            JOptionPane.showMessageDialog(parent, "Message numbers must be whole numbers.",
+                    "Invalid Input", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        MessageExporter.Format format = (MessageExporter.Format) formatBox.getSelectedItem();
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new File("messages" + format.getExtension()));
+        if (chooser.showSaveDialog(parent) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File target = chooser.getSelectedFile();
+        Predicate<Message> filter = MessageExporter.filter(statusField.getText(), recipientField.getText(), from, to);
+
+        // Copy the list here on the EDT, then write the file off it
+        List<Message> snapshot = new ArrayList<>(messageStorage.getMessages());
+        CompletableFuture.supplyAsync(() -> {
+            try {
+                return new MessageExporter(format).export(snapshot, filter, target.toPath());
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }).whenComplete((written, error) -> EventQueue.invokeLater(() -> {
+            if (error != null) {
+                JOptionPane.showMessageDialog(parent, "Export failed: " + error.getCause().getMessage(),
+                        "Export Messages", JOptionPane.ERROR_MESSAGE);
+            } else {
+                JOptionPane.showMessageDialog(parent, "Exported " + written + " message(s) to " + target + ".",
+                        "Export Messages", JOptionPane.INFORMATION_MESSAGE);
+            }
+        }));
+    }
+
+    /**
+     * Shows one message looked up by its ID
+     */
+    private void findMessageById(String messageId) {
+        Message message = messageStorage.getMessageById(messageId);
+        if (message == null) {
+            JOptionPane.showMessageDialog(null, "No message found with ID: " + messageId);
+            return;
+        }
+        JOptionPane.showMessageDialog(null, message.toString(), "Message " + messageId, JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    /**
+     * Show the conversation with one recipient a page at a time, newest page first.
+     * Each page is read straight from the recipient's timeline index.
+     */
+    private void showConversation(String recipient) {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+        int cursor = ConversationIndex.NEWEST;
+        int pageNumber = 1;
+
+        while (true) {
+            ConversationIndex.Page page = messageStorage.getConversationPage(recipient, cursor, CONVERSATION_PAGE_SIZE);
+            if (page.getMessages().isEmpty()) {
+                JOptionPane.showMessageDialog(null, "No conversation found with: " + recipient);
+                return;
+            }
+
+            StringBuilder report = new StringBuilder();
+            report.append("=== CONVERSATION WITH: ").append(recipient.toUpperCase())
+                    .append(" (page ").append(pageNumber).append(") ===\n\n");
+            for (Message message : page.getMessages()) {
+                report.append("Message #").append(message.getMessageNumber());
+                if (message.getCreatedAt() > 0) {
+                    report.append("  [").append(dateFormat.format(new Date(message.getCreatedAt()))).append("]");
+                }
+                report.append("\n");
+                report.append("Content: ").append(message.getContent()).append("\n");
+                report.append("Status: ").append(message.getStatus()).append("\n");
+                report.append("----------------------------\n");
+            }
+
+            JTextArea textArea = new JTextArea(report.toString());
+            textArea.setEditable(false);
+            textArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+            JScrollPane scrollPane = new JScrollPane(textArea);
+            scrollPane.setPreferredSize(new Dimension(500, 400));
+
+            // Offer older messages only if there are any
+            if (!page.hasMore()) {
+                JOptionPane.showMessageDialog(null, scrollPane, "Conversation with " + recipient, JOptionPane.INFORMATION_MESSAGE);
+                return;
+            }
+
+            String[] options = {"Older Messages", "Close"};
+            int choice = JOptionPane.showOptionDialog(null, scrollPane, "Conversation with " + recipient,
+                    JOptionPane.DEFAULT_OPTION, JOptionPane.INFORMATION_MESSAGE, null, options, options[0]);
+            if (choice != 0) {
+                return;
+            }
+            cursor = page.getNextCursor();
+            pageNumber++;
+        }
+    }
+
+    /**
+     * Recompute content hashes for messages changed since the last check,
+     * and for every body in the saved file, then show any mismatches.
+     * The file is read in the background; the result is shown back on the EDT.
+     */
+    private void verifyMessageIntegrity() {
+        StringBuilder report = new StringBuilder();
+        report.append("=== IN MEMORY (changed since last check) ===\n");
+        IntegrityVerifier.Report memoryReport = integrityVerifier.verifyChanged(messageStorage.getMessages());
+        report.append(memoryReport).append("\n");
+        for (String mismatch : memoryReport.getMismatches()) {
+            report.append("  MISMATCH: ").append(mismatch).append("\n");
+        }
+
+        String storageFile = messageStorage.getStorageFile();
+        report.append("\n=== SAVED FILE (").append(storageFile).append(") ===\n");
+        CompletableFuture.supplyAsync(() -> {
+            try {
+                return integrityVerifier.verifyFile(storageFile);
+            } catch (Exception ex) {
+                throw new CompletionException(ex);
+            }
+        }).whenComplete((fileReport, error) -> EventQueue.invokeLater(() -> {
+            if (error != null) {
+                report.append("Could not read the saved file: ").append(error.getCause().getMessage()).append("\n");
+            } else {
+                report.append(fileReport).append("\n");
+                for (String mismatch : fileReport.getMismatches()) {
+                    report.append("  MISMATCH: ").append(mismatch).append("\n");
+                }
+            }
+            showIntegrityReport(report.toString());
+        }));
+    }
+
+    /**
+     * Shows an integrity report in a scrollable dialog
+     */
+    private void showIntegrityReport(String report) {
+        JTextArea textArea = new JTextArea(report);
+        textArea.setEditable(false);
+        textArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        JScrollPane scrollPane = new JScrollPane(textArea);
+        scrollPane.setPreferredSize(new Dimension(500, 300));
+
+        JOptionPane.showMessageDialog(null, scrollPane, "Message Integrity", JOptionPane.INFORMATION_MESSAGE);
+    }
+
     /**
      * Show all message hashes with content previews
      */
@@ -402,6 +857,21 @@ public class ChatMenu extends JFrame {
             report.append("----------------------------\n");
         }
 
+        // Same content sent to the same recipient more than once
+        Map<String, List<Message>> duplicateGroups = messageStorage.getDuplicateGroups();
+        report.append("\n=== DUPLICATE GROUPS (").append(duplicateGroups.size()).append(") ===\n\n");
+        for (List<Message> group : duplicateGroups.values()) {
+            Message first = group.get(0);
+            report.append("To: ").append(first.getRecipient())
+                    .append(" | Hash: ").append(first.getContentHash().substring(0, 15)).append("...\n");
+            report.append("Copies: ").append(group.size()).append(" (Messages");
+            for (Message message : group) {
+                report.append(" #").append(message.getMessageNumber());
+            }
+            report.append(")\n");
+            report.append("----------------------------\n");
+        }
+
         JTextArea textArea = new JTextArea(report.toString());
         textArea.setEditable(false);
         textArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
@@ -0,0 +1,159 @@
+package part1;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+import org.json.simple.JSONValue;
+
+/**
+ * The ContentStore keeps each distinct message body exactly once, keyed by its
+ * SHA-256 content hash.
+ * - Messages with the same body share one String in memory.
+ * - The body is written to disk once, and message records only store the hash.
+ * - Reference counts track how many messages use each body, so a body is
+ *   dropped when the last message using it is removed.
+ * - A body is only shared when it really has that hash. A record whose body
+ *   doesn't match its hash (corruption) keeps its own body and is saved with it
+ *   inline, so it can't overwrite good messages or hide from the IntegrityVerifier.
+ */
+public class ContentStore {
+    private final Map<String, Entry> entries = new HashMap<>(); // contentHash -> body + reference count
+
+    /**
+     * Adds one reference to a body.
+     * The body is hashed once, when it is first stored; later callers must
+     * pass the same text to share it.
+     *
+     * @param contentHash the body's SHA-256 hash
+     * @param content     the body text
+     * @return the shared copy of the body (use this instead of the argument to save memory),
+     *         or null if the body doesn't match the hash and so isn't shared
+     */
+    public String acquire(String contentHash, String content) {
+        Entry entry = entries.get(contentHash);
+        if (entry == null) {
+            if (contentHash == null || !contentHash.equals(Message.calculateContentHash(content))) {
+                return null;
+            }
+            entry = new Entry(content);
+            entries.put(contentHash, entry);
+        } else if (!entry.content.equals(content)) {
+            return null;
+        }
+        entry.refCount++;
+        return entry.content;
+    }
+
+    /**
+     * Removes one reference to a body, dropping the body when nobody uses it.
+     * Does nothing for a body that wasn't shared.
+     *
+     * @param contentHash the body's SHA-256 hash
+     * @param content     the body text the message holds
+     */
+    public void release(String contentHash, String content) {
+        if (isShared(contentHash, content) && --entries.get(contentHash).refCount <= 0) {
+            entries.remove(contentHash);
+        }
+    }
+
+    /**
+     * @return true if this exact body is the shared copy stored under the hash
+     */
+    public boolean isShared(String contentHash, String content) {
+        Entry entry = entries.get(contentHash);
+        return entry != null && entry.content == content;
+    }
+
+    /**
+     * Looks up a body by hash.
+     *
+     * @return the body, or null if no message uses this hash
+     */
+    public String get(String contentHash) {
+        Entry entry = entries.get(contentHash);
+        return entry == null ? null : entry.content;
+    }
+
+    /**
+     * @return how many messages reference the body with this hash
+     */
+    public int getRefCount(String contentHash) {
+        Entry entry = entries.get(contentHash);
+        return entry == null ? 0 : entry.refCount;
+    }
+
+    /** @return the number of distinct bodies stored */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Writes every body as a JSON object of hash -> body.
+     * Each body is written once, no matter how many messages use it.
+     */
+    public void writeJSON(Writer out) throws IOException {
+        out.write('{');
+        boolean first = true;
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            if (!first) {
+                out.write(',');
+            }
+            first = false;
+            out.write('"');
+            out.write(JSONValue.escape(entry.getKey()));
+            out.write("\":\"");
+            out.write(JSONValue.escape(entry.getValue().content));
+            out.write('"');
+        }
+        out.write('}');
+    }
+
+    /**
+     * @return a copy of every body, keyed by hash (safe to read on another thread)
+     */
+    public Map<String, String> copyContents() {
+        Map<String, String> contents = new HashMap<>(entries.size() * 2);
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            contents.put(entry.getKey(), entry.getValue().content);
+        }
+        return contents;
+    }
+
+    /**
+     * Writes bodies copied by copyContents() in the same form as writeJSON().
+     */
+    public static void writeJSON(Map<String, String> contents, Writer out) throws IOException {
+        out.write('{');
+        boolean first = true;
+        for (Map.Entry<String, String> entry : contents.entrySet()) {
+            if (!first) {
+                out.write(',');
+            }
+            first = false;
+            out.write('"');
+            out.write(JSONValue.escape(entry.getKey()));
+            out.write("\":\"");
+            out.write(JSONValue.escape(entry.getValue()));
+            out.write('"');
+        }
+        out.write('}');
+    }
+
+    /**
+     * Forgets every body.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    private static final class Entry {
+        private final String content;
+        private int refCount;
+
+        Entry(String content) {
+            this.content = content;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package part1;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The ConversationIndex keeps one timeline per recipient.
+ * - Each timeline is a list of messages ordered by message number.
+ * - Pages are found with a binary search on the cursor, so reading a page
+ *   costs O(log n + page size) instead of filtering the whole store.
+ *
+ * Recipients are matched case-insensitively ("Dylan" and "dylan" share a thread).
+ */
+public class ConversationIndex {
+    /** Cursor value meaning "start from the newest message". */
+    public static final int NEWEST = Integer.MAX_VALUE;
+
+    private final Map<String, List<Message>> timelines = new HashMap<>();
+
+    /**
+     * Adds a message to its recipient's timeline, keeping the timeline ordered.
+     */
+    public void add(Message message) {
+        List<Message> timeline = timelines.get(key(message.getRecipient()));
+        if (timeline == null) {
+            timeline = new ArrayList<>();
+            timelines.put(key(message.getRecipient()), timeline);
+        }
+
+        // New messages almost always have the highest number, so this is usually an append
+        int size = timeline.size();
+        if (size == 0 || timeline.get(size - 1).getMessageNumber() <= message.getMessageNumber()) {
+            timeline.add(message);
+        } else {
+            timeline.add(indexBefore(timeline, message.getMessageNumber()), message);
+        }
+    }
+
+    /**
+     * Removes a message from its recipient's timeline.
+     */
+    public void remove(Message message) {
+        List<Message> timeline = timelines.get(key(message.getRecipient()));
+        if (timeline != null) {
+            timeline.remove(message);
+            if (timeline.isEmpty()) {
+                timelines.remove(key(message.getRecipient()));
+            }
+        }
+    }
+
+    /**
+     * Removes many messages in one pass over each timeline
+     * (instead of one list search per message).
+     *
+     * @param doomed the messages to remove (Message uses identity equality)
+     */
+    public void removeAll(Set<Message> doomed) {
+        Iterator<List<Message>> timelinesLeft = timelines.values().iterator();
+        while (timelinesLeft.hasNext()) {
+            List<Message> timeline = timelinesLeft.next();
+            timeline.removeIf(doomed::contains);
+            if (timeline.isEmpty()) {
+                timelinesLeft.remove();
+            }
+        }
+    }
+
+    /**
+     * Empties every timeline.
+     */
+    public void clear() {
+        timelines.clear();
+    }
+
+    /**
+     * Returns one page of a conversation: up to 'limit' messages numbered
+     * below 'beforeMessageNumber', oldest first.
+     *
+     * @param recipient           who the conversation is with
+     * @param beforeMessageNumber cursor (use NEWEST for the latest page)
+     * @param limit               maximum messages in the page
+     * @return the page and the cursor for the next (older) page
+     */
+    public Page getPage(String recipient, int beforeMessageNumber, int limit) {
+        List<Message> timeline = timelines.get(key(recipient));
+        if (timeline == null || limit <= 0) {
+            return new Page(Collections.<Message>emptyList(), -1);
+        }
+
+        int end = indexBefore(timeline, beforeMessageNumber);
+        int start = Math.max(0, end - limit);
+        List<Message> pageMessages = new ArrayList<>(timeline.subList(start, end));
+
+        // More messages remain if the page didn't reach the start of the timeline
+        int nextCursor = start > 0 ? timeline.get(start).getMessageNumber() : -1;
+        return new Page(pageMessages, nextCursor);
+    }
+
+    /**
+     * @return every message in the conversation with a recipient, oldest first (a copy)
+     */
+    public List<Message> getTimeline(String recipient) {
+        List<Message> timeline = timelines.get(key(recipient));
+        return timeline == null ? new ArrayList<>() : new ArrayList<>(timeline);
+    }
+
+    /**
+     * @return how many messages are in the conversation with a recipient
+     */
+    public int size(String recipient) {
+        List<Message> timeline = timelines.get(key(recipient));
+        return timeline == null ? 0 : timeline.size();
+    }
+
+    /**
+     * Binary search: index of the first message whose number is >= messageNumber.
+     */
+    private static int indexBefore(List<Message> timeline, int messageNumber) {
+        int low = 0;
+        int high = timeline.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timeline.get(mid).getMessageNumber() < messageNumber) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static String key(String recipient) {
+        return recipient == null ? "" : recipient.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * One page of a conversation.
+     */
+    public static class Page {
+        private final List<Message> messages;
+        private final int nextCursor;
+
+        Page(List<Message> messages, int nextCursor) {
+            this.messages = messages;
+            this.nextCursor = nextCursor;
+        }
+
+        /** @return messages in this page, oldest first */
+        public List<Message> getMessages() {
+            return messages;
+        }
+
+        /** @return cursor for the next older page, or -1 if this is the oldest page */
+        public int getNextCursor() {
+            return nextCursor;
+        }
+
+        /** @return true if there are older messages after this page */
+        public boolean hasMore() {
+            return nextCursor >= 0;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package part1;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Properties;
+
+/**
+ * The CredentialFile class keeps every registered user's password hash on disk.
+ * - One "username=hash" line per user (a Properties file); only PBKDF2 hashes
+ *   from the PasswordHasher are stored, never a password.
+ * - Registration adds to it, and the DeliveryServer checks hellos against it,
+ *   so the server accepts users that registered in another process or run.
+ * - The file is re-read when it changes, and replaced atomically on each write.
+ */
+public class CredentialFile {
+    private static CredentialFile instance;
+
+    private final Path file;
+    private Properties hashes;        // Cached contents (null = not read yet)
+    private FileTime readModifiedTime; // File's modified time when the cache was read
+
+    /**
+     * @param file where the hashes are kept
+     */
+    public CredentialFile(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * @return the application's credential file, "credentials.properties" in the
+     *         current directory unless quickchat.credentials.file says otherwise
+     */
+    public static synchronized CredentialFile getDefault() {
+        if (instance == null) {
+            instance = new CredentialFile(Paths.get(System.getProperty("quickchat.credentials.file", "credentials.properties")));
+        }
+        return instance;
+    }
+
+    /**
+     * Adds a user, or replaces their hash if they registered before.
+     *
+     * @param passwordHash a value returned by PasswordHasher.hash()
+     * @return false if the file could not be written
+     */
+    public synchronized boolean register(String username, String passwordHash) {
+        try {
+            Properties updated = new Properties();
+            updated.putAll(read());
+            updated.setProperty(username, passwordHash);
+
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                updated.store(out, "QuickChat password hashes");
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            hashes = null; // Re-read next time, along with anything another process added
+            return true;
+        } catch (IOException e) {
+            System.out.println("Error saving credentials: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * @return the user's stored hash, or null if they haven't registered (or the file can't be read)
+     */
+    public synchronized String getPasswordHash(String username) {
+        if (username == null) {
+            return null;
+        }
+        try {
+            return read().getProperty(username);
+        } catch (IOException e) {
+            System.out.println("Error reading credentials: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Returns the file's contents, reading it again only if it changed since last time.
+     */
+    private Properties read() throws IOException {
+        FileTime modified;
+        try {
+            modified = Files.getLastModifiedTime(file);
+        } catch (NoSuchFileException e) {
+            hashes = new Properties();
+            readModifiedTime = null;
+            return hashes;
+        }
+        if (hashes == null || !modified.equals(readModifiedTime)) {
+            Properties loaded = new Properties();
+            try (InputStream in = Files.newInputStream(file)) {
+                loaded.load(in);
+            }
+            hashes = loaded;
+            readModifiedTime = modified;
+        }
+        return hashes;
+    }
+}
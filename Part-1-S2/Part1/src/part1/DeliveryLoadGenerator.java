@@ -0,0 +1,230 @@
+package part1;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+import org.json.simple.JSONValue;
+
+/**
+ * The DeliveryLoadGenerator class puts a DeliveryServer under load.
+ * - Opens many connections from one NIO thread; user i sends to user i+1, so
+ *   every accepted message is also delivered to a connected recipient.
+ * - Each connection logs in first and starts sending once it is welcomed.
+ * - Each connection keeps one message in flight: send, wait for the ack, send
+ *   the next. Latency is measured from send to ack (which includes the save).
+ * - Prints messages/sec, p50/p99/max latency and deliveries received.
+ */
+public class DeliveryLoadGenerator {
+
+    /**
+     * Run with: java part1.DeliveryLoadGenerator [connections] [seconds] [port]
+     * With no port, a server is started in this process. It keeps its partitions
+     * in a temporary directory (deleted afterwards) and accepts the load users
+     * with a one-off password. With a port, every user logs in with the
+     * password in quickchat.load.password.
+     */
+    public static void main(String[] args) throws IOException {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        DeliveryServer server = null;
+        Path directory = null;
+        int port;
+        String password;
+        if (args.length > 2) {
+            port = Integer.parseInt(args[2]);
+            password = System.getProperty("quickchat.load.password", "");
+        } else {
+            String token = UUID.randomUUID().toString();
+            directory = Files.createTempDirectory("quickchat-load");
+            server = new DeliveryServer(0, directory, (user, attempt) ->
+                    CompletableFuture.completedFuture(user.startsWith("loaduser") && token.equals(attempt)));
+            port = server.getPort();
+            password = token;
+        }
+
+        try {
+            run(port, connections, seconds, password);
+        } finally {
+            if (server != null) {
+                System.out.printf("Server: %,d messages saved in %,d group commits%n",
+                        server.getMessagesSaved(), server.getSaveBatches());
+                server.close();
+                deleteDirectory(directory);
+            }
+        }
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            Iterator<Path> paths = files.sorted(Comparator.reverseOrder()).iterator();
+            while (paths.hasNext()) {
+                Files.deleteIfExists(paths.next());
+            }
+        }
+    }
+
+    private static void run(int port, int connectionCount, int seconds, String password) throws IOException {
+        Selector selector = Selector.open();
+        Client[] clients = new Client[connectionCount];
+        for (int i = 0; i < connectionCount; i++) {
+            SocketChannel channel = SocketChannel.open(new InetSocketAddress("127.0.0.1", port));
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Client client = new Client(channel, "loaduser" + i, "loaduser" + ((i + 1) % connectionCount));
+            client.key = channel.register(selector, SelectionKey.OP_READ, client);
+            clients[i] = client;
+            client.write("{\"type\":\"hello\",\"user\":\"" + client.user + "\",\"password\":\""
+                    + JSONValue.escape(password) + "\"}");
+        }
+        System.out.printf("Connected %,d clients; running for %d s%n", connectionCount, seconds);
+
+        long[] latencies = new long[1 << 20];
+        int latencyCount = 0;
+        long acked = 0;
+        long rejected = 0;
+        long delivered = 0;
+        int loginFailures = 0;
+
+        long start = System.nanoTime();
+        long end = start + seconds * 1_000_000_000L;
+
+        ByteBuffer readBuffer = ByteBuffer.allocate(64 * 1024);
+        StringBuilder line = new StringBuilder();
+        while (System.nanoTime() < end) {
+            selector.select(100);
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                Client client = (Client) key.attachment();
+                if (key.isValid() && key.isWritable()) {
+                    client.flush();
+                }
+                if (!key.isValid() || !key.isReadable()) {
+                    continue;
+                }
+
+                readBuffer.clear();
+                if (client.channel.read(readBuffer) < 0) {
+                    key.cancel();
+                    continue;
+                }
+                readBuffer.flip();
+                client.partial.append(StandardCharsets.UTF_8.decode(readBuffer));
+
+                // Handle each complete line
+                int newline;
+                while ((newline = client.partial.indexOf("\n")) >= 0) {
+                    line.setLength(0);
+                    line.append(client.partial, 0, newline);
+                    client.partial.delete(0, newline + 1);
+
+                    if (line.indexOf("\"type\":\"deliver\"") >= 0) {
+                        delivered++;
+                    } else if (line.indexOf("\"type\":\"welcome\"") >= 0) {
+                        client.sendNext(); // Logged in: start sending
+                    } else if (line.indexOf("\"type\":\"error\"") >= 0) {
+                        loginFailures++;
+                    } else if (line.indexOf("\"type\":\"ack\"") >= 0) {
+                        long latency = System.nanoTime() - client.sentAt;
+                        if (latencyCount == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, latencyCount * 2);
+                        }
+                        latencies[latencyCount++] = latency;
+                        if (line.indexOf("\"status\":\"Sent\"") >= 0) {
+                            acked++;
+                        } else {
+                            rejected++;
+                        }
+                        if (System.nanoTime() < end) {
+                            client.sendNext();
+                        }
+                    }
+                }
+            }
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        for (Client client : clients) {
+            client.channel.close();
+        }
+        selector.close();
+
+        Arrays.sort(latencies, 0, latencyCount);
+        System.out.printf("Acked: %,d sent, %,d rejected | %,.0f messages/sec | deliveries received: %,d%n",
+                acked, rejected, acked / elapsedSeconds, delivered);
+        if (loginFailures > 0) {
+            System.out.printf("%,d connections were refused (wrong password?)%n", loginFailures);
+        }
+        if (latencyCount > 0) {
+            System.out.printf("Send-to-ack latency: p50 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+                    latencies[latencyCount / 2] / 1_000_000.0,
+                    latencies[Math.min(latencyCount - 1, (int) (latencyCount * 0.99))] / 1_000_000.0,
+                    latencies[latencyCount - 1] / 1_000_000.0);
+        }
+    }
+
+    /**
+     * One simulated user with a single message in flight.
+     */
+    private static final class Client {
+        private final SocketChannel channel;
+        private final String user;
+        private final String recipient;
+        private final StringBuilder partial = new StringBuilder();
+        private final Queue<ByteBuffer> outbound = new ArrayDeque<>();
+        private SelectionKey key;
+        private long seq;
+        private long sentAt;
+
+        Client(SocketChannel channel, String user, String recipient) {
+            this.channel = channel;
+            this.user = user;
+            this.recipient = recipient;
+        }
+
+        void sendNext() throws IOException {
+            seq++;
+            sentAt = System.nanoTime();
+            // Content includes the sequence number so dedup never rejects it
+            write("{\"type\":\"send\",\"seq\":" + seq + ",\"recipient\":\"" + recipient
+                    + "\",\"content\":\"load test message " + seq + " from " + user + "\"}");
+        }
+
+        void write(String json) throws IOException {
+            outbound.add(ByteBuffer.wrap((json + "\n").getBytes(StandardCharsets.UTF_8)));
+            flush();
+        }
+
+        void flush() throws IOException {
+            while (!outbound.isEmpty()) {
+                ByteBuffer buffer = outbound.peek();
+                channel.write(buffer);
+                if (buffer.hasRemaining()) {
+                    break;
+                }
+                outbound.poll();
+            }
+            if (key != null && key.isValid()) {
+                key.interestOps(outbound.isEmpty()
+                        ? SelectionKey.OP_READ
+                        : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            }
+        }
+    }
+}
@@ -0,0 +1,789 @@
+package part1;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+/**
+ * The DeliveryServer class delivers QuickChat messages between users over TCP.
+ * - One selector thread serves every connection with non-blocking NIO, so
+ *   thousands of clients don't need a thread each.
+ * - The protocol is one JSON object per line:
+ *     {"type":"hello","user":"alice","password":"..."}            log this connection in
+ *     {"type":"send","seq":1,"recipient":"bob","content":"hi"}     send a message
+ *   A hello is answered with {"type":"welcome","user":"alice"} once the password
+ *   has been checked (off the selector thread, through the login rate limiter
+ *   and UserCredentials), or with an error; sends before that are refused.
+ *   A send is answered with {"type":"ack","seq":1,"status":"Sent","messageId":...}
+ *   ("Rejected" for duplicates or bad input, "Failed" if it could not be saved),
+ *   and the message is pushed as {"type":"deliver",...} to every connection of the recipient.
+ * - Messages are committed to the sender's MessageStorage partition by a separate
+ *   storage thread. Everything that arrives while one commit runs goes into the
+ *   next (group commit), which appends to the partition's MessageJournal with one
+ *   force to disk; the partition file itself is only saved in full every
+ *   SAVE_EVERY messages and on close. Acks and deliveries go out only after the
+ *   commit, so an acknowledged message is already on disk.
+ * - If a commit fails, its messages are taken back out of the partition and
+ *   acked "Failed", so the client can send them again.
+ *
+ * Each partition has one writer. The server claims the partitions it opens (see
+ * MessageStorage.claim()) and fails sends for one that another process holds.
+ * The ChatMenu runs a server in the app and attaches its own partition, so its
+ * Send and client sends for that user are committed by the same owner (the EDT).
+ */
+public class DeliveryServer implements AutoCloseable {
+    public static final int DEFAULT_PORT = Integer.getInteger("quickchat.server.port", 5121);
+    private static final int MAX_CONTENT_LENGTH = 250;             // Same limit as the chat menu
+    private static final int MAX_LINE_BYTES = 64 * 1024;           // Longer lines close the connection
+    private static final int MAX_PENDING_BYTES = 4 * 1024 * 1024;  // Unsent output before a client counts as stuck
+    private static final int SAVE_EVERY = Integer.getInteger("quickchat.server.saveEvery", 10000); // Journaled messages per full save
+
+    private final ServerSocketChannel serverChannel;
+    private final Selector selector;
+    private final Thread selectorThread;
+    private final Thread storageThread;
+    private final Path directory;              // Where partition files are kept
+    private final Authenticator authenticator;
+    private volatile boolean running = true;
+
+    // Used only by the selector thread
+    private final Map<String, List<Connection>> connectionsByUser = new HashMap<>();
+    private final JSONParser parser = new JSONParser();
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(64 * 1024);
+
+    // Hand-off between the selector thread and the storage thread
+    private final BlockingQueue<Submission> submissions = new LinkedBlockingQueue<>();
+    private final Queue<Submission> completed = new ConcurrentLinkedQueue<>();
+    private final Queue<Login> finishedLogins = new ConcurrentLinkedQueue<>();
+
+    // Open partitions by sender: opened by the storage thread, or attached from outside
+    private final Map<String, Partition> partitions = new ConcurrentHashMap<>();
+
+    private final AtomicLong messagesSaved = new AtomicLong();
+    private final AtomicLong saveBatches = new AtomicLong();
+
+    /**
+     * Checks the password sent with a hello.
+     */
+    public interface Authenticator {
+        /**
+         * @return completes with true if the user may log in (must not block the caller)
+         */
+        CompletableFuture<Boolean> authenticate(String user, String password);
+    }
+
+    /**
+     * Binds to localhost and starts serving. Users log in with the password they
+     * registered (see CredentialFile), and partitions are kept in the current directory.
+     *
+     * @param port the port to listen on (0 picks a free port; see getPort())
+     */
+    public DeliveryServer(int port) throws IOException {
+        this(port, Paths.get(""), registeredUsers(CredentialFile.getDefault()));
+    }
+
+    /**
+     * Checks hellos against a credential file, through the login rate limiter.
+     */
+    static Authenticator registeredUsers(CredentialFile credentials) {
+        return (user, password) -> LoginRateLimiter.getInstance().tryAcquire(user)
+                ? UserCredentials.getInstance().checkRegisteredAsync(credentials, user, password)
+                : CompletableFuture.completedFuture(false);
+    }
+
+    /**
+     * @param port          the port to listen on (0 picks a free port)
+     * @param directory     where partition files are kept
+     * @param authenticator checks each hello's password
+     */
+    DeliveryServer(int port, Path directory, Authenticator authenticator) throws IOException {
+        this.directory = directory;
+        this.authenticator = authenticator;
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress("127.0.0.1", port), 1024);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+
+        selectorThread = new Thread(this::runSelector, "delivery-selector");
+        storageThread = new Thread(this::runStorage, "delivery-storage");
+        selectorThread.start();
+        storageThread.start();
+    }
+
+    /** @return the port the server is listening on */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /** @return number of messages saved and acknowledged so far */
+    public long getMessagesSaved() {
+        return messagesSaved.get();
+    }
+
+    /** @return number of group-commit saves so far */
+    public long getSaveBatches() {
+        return saveBatches.get();
+    }
+
+    /**
+     * Shares a partition that is already open in this process (the ChatMenu's), so
+     * the server commits that user's sends through it instead of opening the file again.
+     * - Commits for the partition run on the owner's executor (the EDT for the
+     *   ChatMenu); the owner keeps the partition's claim.
+     * - Call this on the owner's thread, before that user's clients send. Messages
+     *   left in the journal by an earlier run are recovered into the storage here.
+     */
+    public void attach(MessageStorage storage, Executor owner) throws IOException {
+        if (storage.getOwner() == null) {
+            throw new IllegalArgumentException("Only a user's partition can be attached");
+        }
+        Partition partition = new Partition(storage, owner, null);
+        partition.recover();
+        if (partitions.putIfAbsent(storage.getOwner(), partition) != null) {
+            closeQuietly(partition.journal);
+            throw new IllegalStateException("Partition already open: " + storage.getOwner());
+        }
+    }
+
+    /**
+     * Sends a message from this process the same way as a client's send: it is
+     * committed to the sender's partition, then delivered to the recipient's
+     * connections. This is the ChatMenu's Send.
+     * - The sender's partition must be attached, and this must be called on its
+     *   owner's thread: the message is committed right here.
+     *
+     * @return "Sent", "Rejected" (duplicate or too long) or "Failed" (could not be saved)
+     */
+    public String send(Message message) {
+        Partition partition = message.getSender() == null ? null : partitions.get(message.getSender());
+        if (partition == null || partition.claim != null) {
+            throw new IllegalStateException("Partition not attached: " + message.getSender());
+        }
+        if (message.getContent() == null || message.getContent().length() > MAX_CONTENT_LENGTH) {
+            return "Rejected";
+        }
+        Submission submission = new Submission(null, 0, message.getSender(), message.getRecipient(), message.getContent());
+        submission.message = message;
+        commit(partition, Collections.singletonList(submission));
+        return submission.status;
+    }
+
+    /**
+     * Stops both threads and closes every connection. The partitions the server
+     * opened itself are saved in full and their claims given up.
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        selector.wakeup();
+        try {
+            selectorThread.join(5000);
+            storageThread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ----------- Selector thread -----------
+
+    private void runSelector() {
+        try {
+            while (running) {
+                selector.select();
+                finishLogins();
+                sendCompleted();
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Connection connection = (Connection) key.attachment();
+                    if (key.isReadable()) {
+                        read(connection);
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        flush(connection);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Error in delivery server: " + e.getMessage());
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                closeQuietly(key);
+            }
+            closeQuietly(selector);
+            closeQuietly(serverChannel);
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+            key.attach(new Connection(channel, key));
+        }
+    }
+
+    /**
+     * Reads what is available and handles each complete line.
+     */
+    private void read(Connection connection) {
+        readBuffer.clear();
+        int read;
+        try {
+            read = connection.channel.read(readBuffer);
+        } catch (IOException e) {
+            disconnect(connection);
+            return;
+        }
+        if (read < 0) {
+            disconnect(connection);
+            return;
+        }
+
+        readBuffer.flip();
+        while (readBuffer.hasRemaining()) {
+            byte b = readBuffer.get();
+            if (b == '\n') {
+                String line = new String(connection.line.toByteArray(), StandardCharsets.UTF_8);
+                connection.line.reset();
+                handleLine(connection, line);
+                if (!connection.key.isValid()) {
+                    return;
+                }
+            } else if (connection.line.size() >= MAX_LINE_BYTES) {
+                disconnect(connection);
+                return;
+            } else {
+                connection.line.write(b);
+            }
+        }
+    }
+
+    private void handleLine(Connection connection, String line) {
+        if (line.trim().isEmpty()) {
+            return;
+        }
+        JSONObject request;
+        try {
+            request = (JSONObject) parser.parse(line);
+        } catch (ParseException | ClassCastException e) {
+            sendError(connection, "Invalid JSON");
+            return;
+        }
+
+        String type = (String) request.get("type");
+        if ("hello".equals(type)) {
+            Object user = request.get("user");
+            Object password = request.get("password");
+            if (!(user instanceof String) || ((String) user).isEmpty() || !(password instanceof String)) {
+                sendError(connection, "hello needs a user and password");
+                return;
+            }
+            if (connection.loggingIn) {
+                sendError(connection, "Already logging in");
+                return;
+            }
+            // The check is slow on purpose, so it runs elsewhere and comes back through finishedLogins
+            connection.loggingIn = true;
+            CompletableFuture<Boolean> check;
+            try {
+                check = authenticator.authenticate((String) user, (String) password);
+            } catch (RuntimeException e) {
+                check = CompletableFuture.completedFuture(false);
+            }
+            check.whenComplete((valid, error) -> {
+                finishedLogins.add(new Login(connection, (String) user, error == null && Boolean.TRUE.equals(valid)));
+                selector.wakeup();
+            });
+        } else if ("send".equals(type)) {
+            Object seq = request.get("seq");
+            Object recipient = request.get("recipient");
+            Object content = request.get("content");
+            if (connection.user == null) {
+                sendError(connection, "Say hello before sending");
+            } else if (!(seq instanceof Number) || !(recipient instanceof String) || !(content instanceof String)) {
+                sendError(connection, "send needs seq, recipient and content");
+            } else if (((String) content).length() > MAX_CONTENT_LENGTH) {
+                sendAck(connection, ((Number) seq).longValue(), "Rejected", null);
+            } else {
+                submissions.add(new Submission(connection, ((Number) seq).longValue(),
+                        connection.user, (String) recipient, (String) content));
+            }
+        } else {
+            sendError(connection, "Unknown type: " + type);
+        }
+    }
+
+    /**
+     * Binds connections whose password check has finished (or tells them it failed).
+     */
+    @SuppressWarnings("unchecked")
+    private void finishLogins() {
+        Login login;
+        while ((login = finishedLogins.poll()) != null) {
+            Connection connection = login.connection;
+            connection.loggingIn = false;
+            if (!connection.key.isValid()) {
+                continue; // Disconnected while the password was checked
+            }
+            if (!login.valid) {
+                sendError(connection, "Invalid username or password");
+                continue;
+            }
+            unregister(connection);
+            connection.user = login.user;
+            connectionsByUser.computeIfAbsent(connection.user, u -> new ArrayList<>()).add(connection);
+
+            JSONObject welcome = new JSONObject();
+            welcome.put("type", "welcome");
+            welcome.put("user", login.user);
+            send(connection, welcome);
+        }
+    }
+
+    /**
+     * Sends acks and deliveries for everything the storage thread has finished.
+     */
+    private void sendCompleted() {
+        Submission done;
+        while ((done = completed.poll()) != null) {
+            if (done.connection != null && done.connection.key.isValid()) {
+                sendAck(done.connection, done.seq, done.status, done.message);
+            }
+            if ("Sent".equals(done.status)) {
+                List<Connection> targets = connectionsByUser.get(done.recipient);
+                if (targets != null) {
+                    JSONObject delivery = toDelivery(done.message);
+                    for (Connection target : new ArrayList<>(targets)) {
+                        send(target, delivery);
+                    }
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void sendAck(Connection connection, long seq, String status, Message message) {
+        JSONObject ack = new JSONObject();
+        ack.put("type", "ack");
+        ack.put("seq", seq);
+        ack.put("status", status);
+        if (message != null) {
+            ack.put("messageId", message.getMessageId());
+            ack.put("messageNumber", message.getMessageNumber());
+        }
+        send(connection, ack);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void sendError(Connection connection, String reason) {
+        JSONObject error = new JSONObject();
+        error.put("type", "error");
+        error.put("reason", reason);
+        send(connection, error);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static JSONObject toDelivery(Message message) {
+        JSONObject delivery = new JSONObject();
+        delivery.put("type", "deliver");
+        delivery.put("messageId", message.getMessageId());
+        delivery.put("messageNumber", message.getMessageNumber());
+        delivery.put("sender", message.getSender());
+        delivery.put("recipient", message.getRecipient());
+        delivery.put("content", message.getContent());
+        delivery.put("contentHash", message.getContentHash());
+        delivery.put("createdAt", message.getCreatedAt());
+        return delivery;
+    }
+
+    /**
+     * Queues one line for a connection and writes as much as the socket takes now.
+     */
+    private void send(Connection connection, JSONObject json) {
+        if (!connection.key.isValid()) {
+            return;
+        }
+        byte[] bytes = (json.toJSONString() + "\n").getBytes(StandardCharsets.UTF_8);
+        connection.outbound.add(ByteBuffer.wrap(bytes));
+        connection.pendingBytes += bytes.length;
+        if (connection.pendingBytes > MAX_PENDING_BYTES) {
+            disconnect(connection); // Client stopped reading
+            return;
+        }
+        flush(connection);
+    }
+
+    private void flush(Connection connection) {
+        try {
+            while (!connection.outbound.isEmpty()) {
+                ByteBuffer buffer = connection.outbound.peek();
+                connection.pendingBytes -= connection.channel.write(buffer);
+                if (buffer.hasRemaining()) {
+                    break; // Socket buffer full; wait for OP_WRITE
+                }
+                connection.outbound.poll();
+            }
+        } catch (IOException e) {
+            disconnect(connection);
+            return;
+        }
+        int interest = connection.outbound.isEmpty()
+                ? SelectionKey.OP_READ
+                : SelectionKey.OP_READ | SelectionKey.OP_WRITE;
+        connection.key.interestOps(interest);
+    }
+
+    private void disconnect(Connection connection) {
+        unregister(connection);
+        closeQuietly(connection.key);
+    }
+
+    private void unregister(Connection connection) {
+        if (connection.user == null) {
+            return;
+        }
+        List<Connection> connections = connectionsByUser.get(connection.user);
+        if (connections != null) {
+            connections.remove(connection);
+            if (connections.isEmpty()) {
+                connectionsByUser.remove(connection.user);
+            }
+        }
+    }
+
+    private static void closeQuietly(SelectionKey key) {
+        key.cancel();
+        closeQuietly(key.channel());
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception e) {
+            // Already closing; nothing more to do
+        }
+    }
+
+    // ----------- Storage thread -----------
+
+    private void runStorage() {
+        List<Submission> batch = new ArrayList<>();
+        while (running || !submissions.isEmpty()) {
+            try {
+                Submission first = submissions.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+            } catch (InterruptedException e) {
+                break;
+            }
+            submissions.drainTo(batch); // Everything queued during the last commit
+            commitBatch(batch);
+            batch.clear();
+        }
+        for (Partition partition : partitions.values()) {
+            if (partition.claim != null) {
+                partition.close(); // Attached partitions stay with their owner
+            }
+        }
+    }
+
+    /**
+     * Hands each sender's share of a batch to their partition's owner to commit.
+     */
+    private void commitBatch(List<Submission> batch) {
+        Map<String, List<Submission>> bySender = new LinkedHashMap<>();
+        for (Submission submission : batch) {
+            bySender.computeIfAbsent(submission.sender, s -> new ArrayList<>()).add(submission);
+        }
+        for (Map.Entry<String, List<Submission>> entry : bySender.entrySet()) {
+            List<Submission> group = entry.getValue();
+            try {
+                Partition partition = partitionFor(entry.getKey());
+                if (partition == null) {
+                    finishUnfinished(group); // Another process is writing this partition
+                } else {
+                    partition.owner.execute(() -> commit(partition, group));
+                }
+            } catch (IOException | RuntimeException e) {
+                // Fail the group instead of losing the thread, and every ack after it
+                System.out.println("Error saving messages for " + entry.getKey() + ": " + e.getMessage());
+                finishUnfinished(group);
+            }
+        }
+        saveBatches.incrementAndGet();
+    }
+
+    /**
+     * @return the sender's partition, opening and claiming it if needed, or null
+     *         if another process holds the claim
+     */
+    private Partition partitionFor(String sender) throws IOException {
+        Partition partition = partitions.get(sender);
+        if (partition != null) {
+            return partition;
+        }
+        MessageStorage storage = new MessageStorage(sender, directory);
+        FileLock claim = storage.claim();
+        if (claim == null) {
+            return null;
+        }
+        try {
+            storage.loadMessages(); // Again, now that no one else can be saving it
+            partition = new Partition(storage, Runnable::run, claim);
+            partition.recover();
+        } catch (IOException | RuntimeException e) {
+            closeQuietly(claim.channel());
+            throw e;
+        }
+        partitions.put(sender, partition);
+        return partition;
+    }
+
+    /**
+     * Adds a group of messages to a partition and journals them with one force
+     * (on the partition owner's thread). If that fails, the messages are taken
+     * out again, so the numbers and the duplicate filter are as they were.
+     */
+    private void commit(Partition partition, List<Submission> group) {
+        MessageStorage storage = partition.storage;
+        List<Message> added = new ArrayList<>(group.size());
+        try {
+            for (Submission submission : group) {
+                if (submission.message == null) {
+                    submission.message = new Message(storage.getNextMessageNumber(),
+                            submission.sender, submission.recipient, submission.content);
+                }
+                submission.message.setStatus("Sent");
+                if (storage.addMessage(submission.message)) {
+                    added.add(submission.message);
+                } else {
+                    submission.status = "Rejected"; // Duplicate
+                }
+            }
+            partition.journal.append(added);
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Error saving messages for " + storage.getOwner() + ": " + e.getMessage());
+            for (Submission submission : group) {
+                if (submission.message != null && submission.status == null) {
+                    storage.rollBack(submission.message);
+                }
+            }
+            finishUnfinished(group);
+            return;
+        }
+
+        for (Submission submission : group) {
+            if (submission.status == null) {
+                submission.status = "Sent";
+            }
+        }
+        messagesSaved.addAndGet(added.size());
+        partition.unsaved += added.size();
+        if (partition.unsaved >= SAVE_EVERY) {
+            partition.save();
+        }
+        finish(group);
+    }
+
+    /**
+     * Marks whatever in the group has no outcome yet as "Failed" and finishes the group.
+     */
+    private void finishUnfinished(List<Submission> group) {
+        for (Submission submission : group) {
+            if (submission.status == null) {
+                submission.status = "Failed";
+            }
+        }
+        finish(group);
+    }
+
+    /**
+     * Passes finished submissions to the selector thread for acks and deliveries.
+     */
+    private void finish(List<Submission> group) {
+        completed.addAll(group);
+        selector.wakeup();
+    }
+
+    /**
+     * One sender's partition and the journal its commits are appended to.
+     * Everything except the claim is used only on the owner's thread.
+     */
+    private static final class Partition {
+        private final MessageStorage storage;
+        private final Executor owner;           // Runs every commit (the storage thread for partitions the server opened)
+        private final FileLock claim;           // Null for attached partitions: their owner holds the claim
+        private final MessageJournal journal;
+        private int unsaved;                    // Journaled since the partition file was last saved
+
+        Partition(MessageStorage storage, Executor owner, FileLock claim) throws IOException {
+            this.storage = storage;
+            this.owner = owner;
+            this.claim = claim;
+            this.journal = new MessageJournal(storage.getStorageFile());
+        }
+
+        /**
+         * Adds journaled messages the partition file doesn't have yet (the server
+         * stopped before saving them), then saves and empties the journal.
+         */
+        void recover() throws IOException {
+            int savedMax = storage.getNextMessageNumber() - 1;
+            int replayed = 0;
+            for (Message message : journal.replay()) {
+                if (message.getMessageNumber() > savedMax && storage.getMessageById(message.getMessageId()) == null
+                        && storage.addMessage(message)) {
+                    replayed++;
+                }
+            }
+            if (replayed > 0) {
+                System.out.println("Recovered " + replayed + " messages from " + storage.getStorageFile() + ".journal");
+                if (!storage.saveMessages()) {
+                    unsaved = replayed; // Keep the journal; it still holds the only copy
+                    return;
+                }
+            }
+            journal.clear();
+        }
+
+        /**
+         * Saves the partition file in full and empties the journal.
+         */
+        void save() {
+            if (!storage.saveMessages()) {
+                return; // The journal still has everything; try again at the next SAVE_EVERY
+            }
+            try {
+                journal.clear();
+                unsaved = 0;
+            } catch (IOException e) {
+                System.out.println("Error clearing message journal: " + e.getMessage());
+            }
+        }
+
+        /**
+         * Saves what is only in the journal and gives up the partition.
+         */
+        void close() {
+            if (unsaved > 0) {
+                save();
+            }
+            closeQuietly(journal);
+            if (claim != null) {
+                closeQuietly(claim.channel());
+            }
+        }
+    }
+
+    /**
+     * One client connection and its partial input / pending output.
+     */
+    private static final class Connection {
+        private final SocketChannel channel;
+        private final SelectionKey key;
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+        private final Queue<ByteBuffer> outbound = new ArrayDeque<>();
+        private long pendingBytes;
+        private String user;          // Set once a hello has been authenticated
+        private boolean loggingIn;    // A hello is being checked
+
+        Connection(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+    }
+
+    /**
+     * The outcome of a hello's password check, on its way back to the selector thread.
+     */
+    private static final class Login {
+        private final Connection connection;
+        private final String user;
+        private final boolean valid;
+
+        Login(Connection connection, String user, boolean valid) {
+            this.connection = connection;
+            this.user = user;
+            this.valid = valid;
+        }
+    }
+
+    /**
+     * A send request on its way to storage and back.
+     */
+    private static final class Submission {
+        private final Connection connection;
+        private final long seq;
+        private final String sender;
+        private final String recipient;
+        private final String content;
+        private Message message;   // Set when committed (or up front for a send from this process)
+        private String status;     // "Sent", "Rejected" or "Failed" (null until committed)
+
+        /**
+         * @param connection the client to ack, or null for a send from this process
+         */
+        Submission(Connection connection, long seq, String sender, String recipient, String content) {
+            this.connection = connection;
+            this.seq = seq;
+            this.sender = sender;
+            this.recipient = recipient;
+            this.content = content;
+        }
+    }
+
+    /**
+     * Runs the server until the process is stopped.
+     * Run with: java part1.DeliveryServer [port]
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        DeliveryServer server = new DeliveryServer(port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> closeQuietly(server), "delivery-shutdown"));
+        System.out.println("QuickChat delivery server listening on 127.0.0.1:" + server.getPort());
+    }
+}
@@ -0,0 +1,141 @@
+package part1;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The DuplicateFilter spots messages that repeat the same content to the same
+ * recipient within a time window.
+ * - A Bloom filter answers "definitely new" cheaply for most messages.
+ * - Only when the Bloom filter says "maybe seen" is the exact hash index checked.
+ *
+ * Keys are built from the recipient and the message's existing SHA-256 content hash,
+ * so no extra hashing of the content is needed.
+ */
+public class DuplicateFilter {
+    private static final int BLOOM_BITS = 1 << 20;  // 1M bits = 128 KB
+    private static final int BLOOM_HASHES = 4;      // Number of bit positions per key
+
+    private final long windowMillis;                         // How long a message counts as "recent"
+    private final BitSet bloom = new BitSet(BLOOM_BITS);
+    private final Map<String, Long> lastSeen = new HashMap<>(); // key -> last time it was accepted
+    private int pruneThreshold = 1024;                       // Map size that triggers removing stale keys
+
+    /**
+     * @param windowMillis repeats within this many milliseconds are duplicates
+     *                     (Long.MAX_VALUE means "ever")
+     */
+    public DuplicateFilter(long windowMillis) {
+        this.windowMillis = windowMillis;
+    }
+
+    /** @return the duplicate window in milliseconds */
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    /**
+     * Checks a message and, if it is new, remembers it.
+     *
+     * @param message the message about to be stored
+     * @param now     the current time in milliseconds
+     * @return true if the message is a duplicate and should be rejected
+     */
+    public boolean isDuplicate(Message message, long now) {
+        String key = key(message);
+        long[] positions = bloomPositions(key, message.getContentHash());
+
+        boolean maybeSeen = true;
+        for (long position : positions) {
+            if (!bloom.get((int) position)) {
+                maybeSeen = false;
+                break;
+            }
+        }
+
+        if (maybeSeen) {
+            Long seenAt = lastSeen.get(key);
+            if (seenAt != null && now - seenAt < windowMillis) {
+                return true;
+            }
+        }
+
+        record(key, positions, now);
+        return false;
+    }
+
+    /**
+     * Remembers a message without checking it (used when loading existing messages).
+     */
+    public void remember(Message message, long seenAt) {
+        String key = key(message);
+        record(key, bloomPositions(key, message.getContentHash()), seenAt);
+    }
+
+    /**
+     * Forgets a message that was accepted but then never stored (its save failed),
+     * so sending it again isn't rejected. Any earlier sighting of the same key was
+     * already outside the window, or the message wouldn't have been accepted.
+     */
+    public void forget(Message message) {
+        lastSeen.remove(key(message));
+    }
+
+    private void record(String key, long[] positions, long now) {
+        for (long position : positions) {
+            bloom.set((int) position);
+        }
+        Long previous = lastSeen.get(key);
+        if (previous == null || previous < now) {
+            lastSeen.put(key, now);
+        }
+
+        if (lastSeen.size() > pruneThreshold) {
+            prune(now);
+        }
+    }
+
+    /**
+     * Drops keys that are outside the window so the index doesn't grow forever.
+     * (The Bloom filter can't forget, but stale bits only cost an extra map lookup.)
+     */
+    private void prune(long now) {
+        if (windowMillis != Long.MAX_VALUE) {
+            Iterator<Map.Entry<String, Long>> it = lastSeen.entrySet().iterator();
+            while (it.hasNext()) {
+                if (now - it.next().getValue() >= windowMillis) {
+                    it.remove();
+                }
+            }
+        }
+        pruneThreshold = Math.max(1024, lastSeen.size() * 2);
+    }
+
+    private static String key(Message message) {
+        String recipient = message.getRecipient() == null ? "" : message.getRecipient().trim().toLowerCase(Locale.ROOT);
+        return recipient + "|" + message.getContentHash();
+    }
+
+    /**
+     * Derives the Bloom filter bit positions from the content hash and the key
+     * (double hashing: position i = h1 + i * h2).
+     */
+    private static long[] bloomPositions(String key, String contentHash) {
+        long h1;
+        try {
+            // The SHA-256 hex is already well mixed, so its first 60 bits make a good hash
+            h1 = Long.parseLong(contentHash.substring(0, 15), 16);
+        } catch (RuntimeException e) {
+            h1 = contentHash == null ? 0 : contentHash.hashCode(); // Short or non-hex hash
+        }
+        long h2 = key.hashCode() | 1; // Odd, so the positions spread out
+        long[] positions = new long[BLOOM_HASHES];
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            positions[i] = Math.floorMod(h1 + i * h2, (long) BLOOM_BITS);
+        }
+        return positions;
+    }
+}
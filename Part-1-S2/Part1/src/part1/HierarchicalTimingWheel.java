@@ -0,0 +1,235 @@
+package part1;
+
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ * The HierarchicalTimingWheel holds timed entries (e.g. scheduled messages) until they are due.
+ * - Time is cut into ticks. Level 0 has one slot per tick; each higher level's
+ *   slots cover a whole turn of the level below (like the hands of a clock).
+ * - Adding and cancelling are O(1): each slot is a doubly linked list, and an
+ *   entry knows which slot it is in.
+ * - As time advances, a higher-level slot is "cascaded" when its turn comes:
+ *   its entries move down to finer levels, until they expire from level 0.
+ * - Deadlines beyond the top level's range stay in the top level and are
+ *   re-placed each time their slot comes round.
+ *
+ * Not thread-safe on its own; callers synchronize (see MessageScheduler).
+ */
+public class HierarchicalTimingWheel<T> {
+    private final long tickMillis;
+    private final int bits;          // log2 of the slots per level
+    private final int mask;
+    private final Entry<T>[][] heads;  // heads[level][slot] = first entry in that slot (null = empty)
+    private long currentTick;        // Last tick processed
+    private int size;
+
+    /**
+     * @param tickMillis    length of one tick (deadlines are rounded up to whole ticks)
+     * @param slotsPerLevel slots in each level (rounded up to a power of two)
+     * @param levels        number of levels; range = tickMillis * slotsPerLevel ^ levels
+     * @param startMillis   the current time
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public HierarchicalTimingWheel(long tickMillis, int slotsPerLevel, int levels, long startMillis) {
+        if (tickMillis <= 0 || levels <= 0) {
+            throw new IllegalArgumentException("tickMillis and levels must be positive");
+        }
+        this.tickMillis = tickMillis;
+        this.bits = 32 - Integer.numberOfLeadingZeros(Math.max(2, slotsPerLevel) - 1);
+        this.mask = (1 << bits) - 1;
+        this.heads = new Entry[levels][1 << bits];
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    /**
+     * Adds an entry. A deadline in the past expires on the next tick.
+     *
+     * @return a handle that can be passed to cancel()
+     */
+    public Entry<T> add(T value, long deadlineMillis) {
+        // Round up, so an entry never fires before its deadline
+        long deadlineTick = (deadlineMillis + tickMillis - 1) / tickMillis;
+        Entry<T> entry = new Entry<>(value, deadlineMillis, Math.max(deadlineTick, currentTick + 1));
+        place(entry);
+        size++;
+        return entry;
+    }
+
+    /**
+     * Removes an entry before it expires.
+     *
+     * @return true if the entry was still waiting
+     */
+    public boolean cancel(Entry<T> entry) {
+        if (entry.level < 0) {
+            return false;
+        }
+        unlink(entry);
+        size--;
+        return true;
+    }
+
+    /**
+     * Processes every tick up to the given time, passing each due entry to the consumer.
+     *
+     * @return number of entries expired
+     */
+    public int advanceTo(long nowMillis, Consumer<T> expired) {
+        long targetTick = nowMillis / tickMillis;
+        int count = 0;
+        while (currentTick < targetTick) {
+            currentTick++;
+
+            // Cascade higher levels whose turn has come (top down)
+            for (int level = heads.length - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (bits * level)) - 1)) == 0) {
+                    int slot = (int) ((currentTick >>> (bits * level)) & mask);
+                    Entry<T> entry = takeSlot(level, slot);
+                    while (entry != null) {
+                        Entry<T> next = entry.next;
+                        entry.prev = entry.next = null;
+                        place(entry);
+                        entry = next;
+                    }
+                }
+            }
+
+            // Expire this tick's slot
+            Entry<T> entry = takeSlot(0, (int) (currentTick & mask));
+            while (entry != null) {
+                Entry<T> next = entry.next;
+                entry.prev = entry.next = null;
+                if (entry.deadlineTick <= currentTick) {
+                    size--;
+                    count++;
+                    expired.accept(entry.value);
+                } else {
+                    place(entry); // Not due yet (can't normally happen, but be safe)
+                }
+                entry = next;
+            }
+
+            // Nothing waiting: jump straight to the target
+            if (size == 0) {
+                currentTick = targetTick;
+            }
+        }
+        return count;
+    }
+
+    /** @return number of entries waiting */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Puts an entry in the lowest level whose range covers its deadline.
+     */
+    private void place(Entry<T> entry) {
+        long delta = entry.deadlineTick - currentTick;
+        int level = 0;
+        while (level < heads.length - 1 && delta >= (1L << (bits * (level + 1)))) {
+            level++;
+        }
+        int slot = (int) ((entry.deadlineTick >>> (bits * level)) & mask);
+        entry.level = level;
+        entry.slot = slot;
+        entry.next = heads[level][slot];
+        if (entry.next != null) {
+            entry.next.prev = entry;
+        }
+        heads[level][slot] = entry;
+    }
+
+    private void unlink(Entry<T> entry) {
+        if (entry.prev != null) {
+            entry.prev.next = entry.next;
+        } else {
+            heads[entry.level][entry.slot] = entry.next;
+        }
+        if (entry.next != null) {
+            entry.next.prev = entry.prev;
+        }
+        entry.prev = entry.next = null;
+        entry.level = -1;
+    }
+
+    /**
+     * Empties a slot and returns its former list.
+     */
+    private Entry<T> takeSlot(int level, int slot) {
+        Entry<T> first = heads[level][slot];
+        heads[level][slot] = null;
+        for (Entry<T> entry = first; entry != null; entry = entry.next) {
+            entry.level = -1;
+        }
+        return first;
+    }
+
+    /**
+     * A waiting value and its place in the wheel.
+     */
+    public static final class Entry<T> {
+        private final T value;
+        private final long deadlineMillis;
+        private final long deadlineTick;
+        private Entry<T> prev;
+        private Entry<T> next;
+        private int level = -1;    // -1 = not in the wheel (expired or cancelled)
+        private int slot;
+
+        Entry(T value, long deadlineMillis, long deadlineTick) {
+            this.value = value;
+            this.deadlineMillis = deadlineMillis;
+            this.deadlineTick = deadlineTick;
+        }
+
+        public T getValue() {
+            return value;
+        }
+
+        public long getDeadlineMillis() {
+            return deadlineMillis;
+        }
+
+        /** @return true while the entry is waiting in the wheel */
+        public boolean isPending() {
+            return level >= 0;
+        }
+    }
+
+    /**
+     * Adds, cancels and expires a large number of entries and reports the cost per operation.
+     * Run with: java part1.HierarchicalTimingWheel [entries]
+     */
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        Random random = new Random(42);
+        long start = 0;
+        HierarchicalTimingWheel<Integer> wheel = new HierarchicalTimingWheel<>(100, 256, 4, start);
+
+        // Deadlines spread over 30 days
+        long thirtyDays = 30L * 24 * 60 * 60 * 1000;
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Entry<Integer>[] entries = new Entry[count];
+        long t0 = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            entries[i] = wheel.add(i, start + (long) (random.nextDouble() * thirtyDays));
+        }
+        long t1 = System.nanoTime();
+        for (int i = 0; i < count; i += 2) {
+            wheel.cancel(entries[i]);
+        }
+        long t2 = System.nanoTime();
+        int[] expired = new int[1];
+        wheel.advanceTo(start + thirtyDays + 1000, value -> expired[0]++);
+        long t3 = System.nanoTime();
+
+        System.out.printf("add:    %,d entries, %.0f ns each%n", count, (t1 - t0) / (double) count);
+        System.out.printf("cancel: %,d entries, %.0f ns each%n", (count + 1) / 2, (t2 - t1) / (double) ((count + 1) / 2));
+        System.out.printf("expire: %,d entries over 30 days of 100 ms ticks in %.1f ms (%s)%n",
+                expired[0], (t3 - t2) / 1_000_000.0,
+                expired[0] == count / 2 && wheel.size() == 0 ? "all due entries fired" : "MISMATCH");
+    }
+}
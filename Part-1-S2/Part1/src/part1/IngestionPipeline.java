@@ -0,0 +1,394 @@
+package part1;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The IngestionPipeline creates and stores messages in stages, each on its own thread(s):
+ *   1. validate / truncate   (caller's thread)
+ *   2. hash                  (several workers in parallel)
+ *   3. number assignment     (one sequencer, so numbers follow submission order)
+ *   4. index update          (one thread owns the MessageStorage)
+ *   5. journal append        (batched, one force to disk per batch)
+ * - Stages are joined by bounded queues: when a later stage falls behind,
+ *   earlier ones (and finally submit()) wait instead of piling up memory.
+ * - A message's future completes once it is in the journal, so it survives a crash.
+ * - Every SAVE_EVERY messages the partition file is saved in full and the journal
+ *   emptied; on open, journaled messages newer than the partition file are replayed.
+ * - A message that fails before it is numbered still reaches the sequencer (as
+ *   a failed placeholder), so the messages after it aren't held up.
+ *
+ * The pipeline's indexer thread owns the MessageStorage, so it can't share one
+ * with the ChatMenu (whose storage belongs to the EDT); it is used headless.
+ */
+public class IngestionPipeline implements AutoCloseable {
+    private static final int MAX_CONTENT_LENGTH = 250;
+    private static final int QUEUE_CAPACITY = Integer.getInteger("quickchat.ingest.queueSize", 4096);
+    private static final int HASH_WORKERS = Integer.getInteger("quickchat.ingest.hashWorkers",
+            Runtime.getRuntime().availableProcessors());
+    private static final int SAVE_EVERY = Integer.getInteger("quickchat.ingest.saveEvery", 50000);
+    private static final int JOURNAL_BATCH = 512;
+
+    private final MessageStorage storage;
+    private final MessageJournal journal;
+
+    private final BlockingQueue<Draft> toHash = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final BlockingQueue<Draft> toSequence = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final BlockingQueue<Draft> toIndex = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final BlockingQueue<Draft> toJournal = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Queue<Draft> failedBeforeSequencing = new ConcurrentLinkedQueue<>(); // Unbounded: adding never blocks
+    private final List<Thread> threads = new ArrayList<>();
+
+    private final AtomicLong nextTicket = new AtomicLong();   // Submission order
+    private final AtomicLong inFlight = new AtomicLong();     // Submitted but not yet finished
+    private final AtomicLong journaled = new AtomicLong();
+    private final AtomicInteger savedUpTo = new AtomicInteger(-1); // Highest number in the last full save, until the journal catches up
+    private int nextNumber;                                    // Sequencer thread only
+    private volatile boolean accepting = true;
+    private volatile boolean running = true;
+
+    /**
+     * Opens the pipeline for a partition, replaying any journaled messages first.
+     */
+    public IngestionPipeline(MessageStorage storage) throws IOException {
+        this.storage = storage;
+        this.journal = new MessageJournal(storage.getStorageFile());
+        recover();
+        this.nextNumber = storage.getNextMessageNumber();
+
+        for (int i = 0; i < HASH_WORKERS; i++) {
+            startStage("ingest-hash-" + i, this::hashStage);
+        }
+        startStage("ingest-sequencer", this::sequenceStage);
+        startStage("ingest-indexer", this::indexStage);
+        startStage("ingest-journal", this::journalStage);
+    }
+
+    /**
+     * Adds journaled messages the partition file doesn't have yet, then saves.
+     */
+    private void recover() throws IOException {
+        int savedMax = storage.getNextMessageNumber() - 1;
+        int replayed = 0;
+        for (Message message : journal.replay()) {
+            if (message.getMessageNumber() > savedMax && storage.addMessage(message)) {
+                replayed++;
+            }
+        }
+        if (replayed > 0) {
+            System.out.println("Recovered " + replayed + " messages from " + storage.getStorageFile() + ".journal");
+            if (!storage.saveMessages()) {
+                return; // Keep the journal; it still holds the only copy
+            }
+        }
+        journal.clear();
+    }
+
+    private void startStage(String name, Runnable stage) {
+        Thread thread = new Thread(stage, name);
+        thread.setDaemon(true);
+        threads.add(thread);
+        thread.start();
+    }
+
+    /**
+     * Stage 1: checks and truncates the message, then hands it to the hash workers.
+     * Waits if the pipeline is full.
+     *
+     * @return completes with the stored message once it is journaled
+     */
+    public CompletableFuture<Message> submit(String sender, String recipient, String content, String status) {
+        CompletableFuture<Message> future = new CompletableFuture<>();
+        if (!accepting) {
+            future.completeExceptionally(new IllegalStateException("Pipeline is closed"));
+            return future;
+        }
+        if (recipient == null || recipient.trim().isEmpty() || content == null) {
+            future.completeExceptionally(new IllegalArgumentException("Recipient and content are required"));
+            return future;
+        }
+
+        String text = content.length() > MAX_CONTENT_LENGTH ? content.substring(0, MAX_CONTENT_LENGTH) : content;
+        Draft draft = new Draft(nextTicket.getAndIncrement(), sender, recipient, text,
+                status != null ? status : "Created", future);
+        inFlight.incrementAndGet();
+        try {
+            toHash.put(draft);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(draft, e);
+        }
+        return future;
+    }
+
+    /**
+     * Stage 2: SHA-256 of the content (the expensive part), in parallel.
+     */
+    private void hashStage() {
+        Draft draft;
+        while ((draft = next(toHash)) != null) {
+            draft.contentHash = Message.calculateContentHash(draft.content);
+            pass(toSequence, draft);
+        }
+    }
+
+    /**
+     * Stage 3: puts drafts back in submission order and numbers them.
+     * Failed placeholders only fill their place in the order; they take no number.
+     */
+    private void sequenceStage() {
+        Map<Long, Draft> waiting = new HashMap<>();
+        long expected = 0;
+        try {
+            while (running) {
+                Draft draft = toSequence.poll(50, TimeUnit.MILLISECONDS);
+                if (draft != null) {
+                    waiting.put(draft.ticket, draft);
+                }
+                Draft failed;
+                while ((failed = failedBeforeSequencing.poll()) != null) {
+                    waiting.put(failed.ticket, failed);
+                }
+
+                Draft ready;
+                while ((ready = waiting.remove(expected)) != null) {
+                    expected++;
+                    if (ready.failed) {
+                        continue;
+                    }
+                    ready.message = new Message(null, nextNumber++, ready.sender, ready.recipient,
+                            ready.content, ready.contentHash, ready.status, ready.createdAt);
+                    pass(toIndex, ready);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stage 4: adds to the storage's indexes; saves the partition every SAVE_EVERY messages.
+     */
+    private void indexStage() {
+        int sinceSave = 0;
+        Draft draft;
+        while ((draft = next(toIndex)) != null) {
+            if (!storage.addMessage(draft.message)) {
+                fail(draft, new IllegalStateException("Duplicate message rejected"));
+                continue;
+            }
+            pass(toJournal, draft);
+
+            if (++sinceSave >= SAVE_EVERY && storage.saveMessages()) {
+                savedUpTo.set(draft.message.getMessageNumber()); // Journal can drop everything up to here
+                sinceSave = 0;
+            }
+        }
+    }
+
+    /**
+     * Stage 5: appends whatever is waiting (up to JOURNAL_BATCH) with one force, then completes the futures.
+     */
+    private void journalStage() {
+        List<Draft> batch = new ArrayList<>(JOURNAL_BATCH);
+        Draft first;
+        while ((first = next(toJournal)) != null) {
+            batch.add(first);
+            toJournal.drainTo(batch, JOURNAL_BATCH - 1);
+
+            // If the partition was saved up to a number in this batch, start the journal afresh
+            int saved = savedUpTo.get();
+            boolean restart = saved >= 0 && batch.get(batch.size() - 1).message.getMessageNumber() >= saved;
+            List<Message> records = new ArrayList<>(batch.size());
+            for (Draft draft : batch) {
+                if (!restart || draft.message.getMessageNumber() > saved) {
+                    records.add(draft.message);
+                }
+            }
+
+            try {
+                if (restart) {
+                    journal.clear();
+                    savedUpTo.compareAndSet(saved, -1);
+                }
+                journal.append(records);
+                for (Draft draft : batch) {
+                    draft.future.complete(draft.message);
+                }
+                journaled.addAndGet(batch.size());
+                inFlight.addAndGet(-batch.size());
+            } catch (IOException e) {
+                System.out.println("Error writing message journal: " + e.getMessage());
+                for (Draft draft : batch) {
+                    fail(draft, e);
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    private Draft next(BlockingQueue<Draft> queue) {
+        try {
+            while (running) {
+                Draft draft = queue.poll(50, TimeUnit.MILLISECONDS);
+                if (draft != null) {
+                    return draft;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    /**
+     * Hands a draft to the next stage. Stage threads are stopped through 'running',
+     * not interrupts: an interrupt here only fails this draft, and the stage carries on.
+     */
+    private void pass(BlockingQueue<Draft> queue, Draft draft) {
+        try {
+            queue.put(draft); // Blocks while the next stage is full
+        } catch (InterruptedException e) {
+            fail(draft, e);
+        }
+    }
+
+    private void fail(Draft draft, Exception error) {
+        if (draft.message == null) {
+            // Not numbered yet: the sequencer still needs its ticket, or everything after it waits forever
+            draft.failed = true;
+            failedBeforeSequencing.add(draft);
+        }
+        draft.future.completeExceptionally(error);
+        inFlight.decrementAndGet();
+    }
+
+    /** @return number of messages journaled (completed) so far */
+    public long getJournaledCount() {
+        return journaled.get();
+    }
+
+    /**
+     * Stops taking messages, finishes those in flight, saves the partition and empties the journal.
+     */
+    @Override
+    public void close() throws IOException {
+        accepting = false;
+        while (inFlight.get() > 0) {
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        running = false;
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            if (storage.saveMessages()) {
+                journal.clear();
+            }
+        } finally {
+            journal.close();
+        }
+    }
+
+    /**
+     * One message on its way through the stages. Each field is written by
+     * one stage before the hand-off to the next.
+     */
+    private static final class Draft {
+        private final long ticket;
+        private final String sender;
+        private final String recipient;
+        private final String content;
+        private final String status;
+        private final long createdAt = System.currentTimeMillis();
+        private final CompletableFuture<Message> future;
+        private String contentHash;   // Set by a hash worker
+        private Message message;      // Set by the sequencer
+        private boolean failed;       // Set before the draft is handed to the sequencer as a placeholder
+
+        Draft(long ticket, String sender, String recipient, String content, String status,
+                CompletableFuture<Message> future) {
+            this.ticket = ticket;
+            this.sender = sender;
+            this.recipient = recipient;
+            this.content = content;
+            this.status = status;
+            this.future = future;
+        }
+    }
+
+    /**
+     * Compares sustained throughput of the pipeline with the ChatMenu path
+     * (new Message + addMessage + saveMessages for every message).
+     * Writes scratch partitions to the current directory and deletes them afterwards.
+     * Run with: java part1.IngestionPipeline [pipelineMessages] [baselineMessages]
+     */
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        int baselineCount = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+
+        String baselineOwner = "ingest-bench-baseline";
+        deletePartition(baselineOwner);
+        MessageStorage baseline = new MessageStorage(baselineOwner);
+        int number = baseline.getNextMessageNumber();
+        long start = System.nanoTime();
+        for (int i = 0; i < baselineCount; i++) {
+            Message message = new Message(number++, baselineOwner, "friend" + (i % 200), "benchmark message " + i);
+            message.setStatus("Sent");
+            baseline.addMessage(message);
+            baseline.saveMessages();
+        }
+        long baselineNanos = System.nanoTime() - start;
+        deletePartition(baselineOwner);
+
+        String pipelineOwner = "ingest-bench-pipeline";
+        deletePartition(pipelineOwner);
+        MessageStorage storage = new MessageStorage(pipelineOwner);
+        start = System.nanoTime();
+        CompletableFuture<Message> last = null;
+        try (IngestionPipeline pipeline = new IngestionPipeline(storage)) {
+            for (int i = 0; i < count; i++) {
+                last = pipeline.submit(pipelineOwner, "friend" + (i % 200), "benchmark message " + i, "Sent");
+            }
+            if (last != null) {
+                last.join();
+            }
+        }
+        long pipelineNanos = System.nanoTime() - start;
+        deletePartition(pipelineOwner);
+
+        System.out.printf("Per-message save: %,d messages in %.1f ms (%,.0f messages/sec)%n",
+                baselineCount, baselineNanos / 1_000_000.0, baselineCount * 1_000_000_000.0 / baselineNanos);
+        System.out.printf("Pipeline:         %,d messages in %.1f ms (%,.0f messages/sec, %d hash workers, incl. final save)%n",
+                count, pipelineNanos / 1_000_000.0, count * 1_000_000_000.0 / pipelineNanos, HASH_WORKERS);
+    }
+
+    private static void deletePartition(String owner) throws IOException {
+        String file = MessageStorage.partitionFile(owner);
+        Files.deleteIfExists(Paths.get(file));
+        Files.deleteIfExists(Paths.get(file + ".tmp"));
+        Files.deleteIfExists(Paths.get(file + ".journal"));
+    }
+}
@@ -0,0 +1,373 @@
+package part1;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import org.json.simple.parser.ContentHandler;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+/**
+ * The IntegrityVerifier recomputes SHA-256 content hashes and reports any that
+ * don't match what was stored.
+ * - In-memory checks split the message list across cores with fork/join.
+ * - File checks stream the JSON file in batches, so memory use stays bounded
+ *   no matter how big the file is.
+ * - Incremental checks skip messages already verified with the same hash.
+ */
+public class IntegrityVerifier {
+    private static final int SPLIT_THRESHOLD = 1024; // Messages hashed per fork/join leaf
+    private static final int FILE_BATCH_SIZE = 512;  // Records per batch when streaming a file
+
+    private final ForkJoinPool pool;
+    // Message -> hash that passed (weak keys, so removed messages are forgotten)
+    private final Map<Message, String> verifiedHashes = new WeakHashMap<>();
+
+    /**
+     * Creates a verifier that uses every available core.
+     */
+    public IntegrityVerifier() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param parallelism number of worker threads
+     */
+    public IntegrityVerifier(int parallelism) {
+        this.pool = new ForkJoinPool(Math.max(1, parallelism));
+    }
+
+    /**
+     * Verifies every message in the list.
+     */
+    public Report verifyAll(List<Message> messages) {
+        return verify(messages, false);
+    }
+
+    /**
+     * Verifies only messages that are new, or whose hash changed, since they last passed.
+     */
+    public Report verifyChanged(List<Message> messages) {
+        return verify(messages, true);
+    }
+
+    private Report verify(List<Message> messages, boolean incremental) {
+        long start = System.nanoTime();
+
+        // Pick out the records that need hashing
+        List<Message> toCheck;
+        if (incremental) {
+            toCheck = new ArrayList<>();
+            for (Message message : messages) {
+                if (!message.getContentHash().equals(verifiedHashes.get(message))) {
+                    toCheck.add(message);
+                }
+            }
+        } else {
+            toCheck = new ArrayList<>(messages);
+        }
+
+        List<Message> mismatched = pool.invoke(new HashTask(toCheck, 0, toCheck.size()));
+
+        // Remember what passed, so the next incremental run can skip it
+        for (Message message : toCheck) {
+            verifiedHashes.put(message, message.getContentHash());
+        }
+        List<String> mismatches = new ArrayList<>();
+        for (Message message : mismatched) {
+            verifiedHashes.remove(message);
+            mismatches.add("Message #" + message.getMessageNumber() + " (ID " + message.getMessageId() + ")");
+        }
+
+        return new Report(toCheck.size(), messages.size() - toCheck.size(), mismatches, System.nanoTime() - start);
+    }
+
+    /**
+     * Verifies a saved message file without loading it into memory.
+     * Stored bodies are checked against the hash they are filed under
+     * (or, for older files, against each message's own contentHash).
+     *
+     * @param fileName the JSON file written by MessageStorage
+     */
+    public Report verifyFile(String fileName) throws IOException, ParseException {
+        long start = System.nanoTime();
+        StreamingHandler handler = new StreamingHandler();
+        try (Reader reader = MessageCompression.openReader(Paths.get(fileName))) {
+            new JSONParser().parse(reader, handler);
+        }
+        handler.flush();
+        while (!handler.inFlight.isEmpty()) {
+            handler.collect(handler.inFlight.poll());
+        }
+        return new Report(handler.checked, 0, handler.mismatches, System.nanoTime() - start);
+    }
+
+    /**
+     * Fork/join task: hashes a range of messages and returns the ones that don't match.
+     */
+    private static final class HashTask extends RecursiveTask<List<Message>> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Message> messages;
+        private final int from;
+        private final int to;
+
+        HashTask(List<Message> messages, int from, int to) {
+            this.messages = messages;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<Message> compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                List<Message> mismatched = new ArrayList<>();
+                for (int i = from; i < to; i++) {
+                    Message message = messages.get(i);
+                    if (!Message.calculateContentHash(message.getContent()).equals(message.getContentHash())) {
+                        mismatched.add(message);
+                    }
+                }
+                return mismatched;
+            }
+
+            int middle = (from + to) >>> 1;
+            HashTask left = new HashTask(messages, from, middle);
+            left.fork();
+            List<Message> mismatched = new HashTask(messages, middle, to).compute();
+            mismatched.addAll(left.join());
+            return mismatched;
+        }
+    }
+
+    /**
+     * Fork/join task: hashes one batch of (label, hash, body) records read from a file.
+     */
+    private static final class BatchTask extends RecursiveTask<List<String>> {
+        private static final long serialVersionUID = 1L;
+
+        private final String[] labels;
+        private final String[] hashes;
+        private final String[] bodies;
+        private final int size;
+
+        BatchTask(String[] labels, String[] hashes, String[] bodies, int size) {
+            this.labels = labels;
+            this.hashes = hashes;
+            this.bodies = bodies;
+            this.size = size;
+        }
+
+        @Override
+        protected List<String> compute() {
+            List<String> mismatched = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                if (!Message.calculateContentHash(bodies[i]).equals(hashes[i])) {
+                    mismatched.add(labels[i]);
+                }
+            }
+            return mismatched;
+        }
+    }
+
+    /**
+     * Streaming JSON handler: picks out bodies as the parser reaches them and
+     * hands them to the pool in fixed-size batches. Only a few batches are
+     * in flight at once, which keeps memory bounded.
+     */
+    private final class StreamingHandler implements ContentHandler {
+        private final Deque<Character> containers = new ArrayDeque<>(); // '{' or '[' for each open level
+        private final Deque<ForkJoinTask<List<String>>> inFlight = new ArrayDeque<>();
+        private final List<String> mismatches = new ArrayList<>();
+        private final int maxInFlight = pool.getParallelism() * 2;
+
+        private String currentKey;
+        private boolean legacyArray;       // Root is a plain array of messages (older format)
+        private boolean inContents;        // Inside the "contents" object (current format)
+        private boolean inMessages;        // Inside the "messages" array (current format)
+        private Map<String, Object> record; // Fields of the message currently being read
+        private int recordDepth;
+        private long checked;
+
+        private String[] labels = new String[FILE_BATCH_SIZE];
+        private String[] hashes = new String[FILE_BATCH_SIZE];
+        private String[] bodies = new String[FILE_BATCH_SIZE];
+        private int batchSize;
+
+        @Override
+        public void startJSON() {
+        }
+
+        @Override
+        public void endJSON() {
+        }
+
+        @Override
+        public boolean startObject() {
+            containers.push('{');
+            int depth = containers.size();
+            if ((legacyArray && depth == 2) || (inMessages && depth == 3)) {
+                record = new HashMap<>();
+                recordDepth = depth;
+            } else if (depth == 2 && "contents".equals(currentKey)) {
+                inContents = true;
+            }
+            return true;
+        }
+
+        @Override
+        public boolean endObject() {
+            int depth = containers.size();
+            if (record != null && depth == recordDepth) {
+                // Older files keep the body inside each message
+                Object content = record.get("content");
+                if (content instanceof String) {
+                    add("Message #" + record.get("messageNumber"), (String) record.get("contentHash"), (String) content);
+                }
+                record = null;
+            } else if (inContents && depth == 2) {
+                inContents = false;
+            }
+            containers.pop();
+            return true;
+        }
+
+        @Override
+        public boolean startObjectEntry(String key) {
+            currentKey = key;
+            return true;
+        }
+
+        @Override
+        public boolean endObjectEntry() {
+            return true;
+        }
+
+        @Override
+        public boolean startArray() {
+            containers.push('[');
+            int depth = containers.size();
+            if (depth == 1) {
+                legacyArray = true;
+            } else if (depth == 2 && "messages".equals(currentKey)) {
+                inMessages = true;
+            }
+            return true;
+        }
+
+        @Override
+        public boolean endArray() {
+            if (inMessages && containers.size() == 2) {
+                inMessages = false;
+            }
+            containers.pop();
+            return true;
+        }
+
+        @Override
+        public boolean primitive(Object value) throws ParseException, IOException {
+            if (inContents && containers.size() == 2) {
+                // Current format: "hash": "body"
+                add("Content " + abbreviate(currentKey), currentKey, String.valueOf(value));
+            } else if (record != null && containers.size() == recordDepth) {
+                record.put(currentKey, value);
+            }
+            return true;
+        }
+
+        private void add(String label, String hash, String body) {
+            labels[batchSize] = label;
+            hashes[batchSize] = hash == null ? "" : hash;
+            bodies[batchSize] = body;
+            batchSize++;
+            checked++;
+            if (batchSize == FILE_BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        /**
+         * Sends the current batch to the pool, first waiting on the oldest
+         * batch if too many are already running.
+         */
+        void flush() {
+            if (batchSize == 0) {
+                return;
+            }
+            while (inFlight.size() >= maxInFlight) {
+                collect(inFlight.poll());
+            }
+            inFlight.add(pool.submit(new BatchTask(labels, hashes, bodies, batchSize)));
+            labels = new String[FILE_BATCH_SIZE];
+            hashes = new String[FILE_BATCH_SIZE];
+            bodies = new String[FILE_BATCH_SIZE];
+            batchSize = 0;
+        }
+
+        void collect(ForkJoinTask<List<String>> task) {
+            mismatches.addAll(task.join());
+        }
+    }
+
+    private static String abbreviate(String hash) {
+        return hash == null || hash.length() <= 15 ? String.valueOf(hash) : hash.substring(0, 15) + "...";
+    }
+
+    /**
+     * The outcome of one verification run.
+     */
+    public static class Report {
+        private final long checked;
+        private final long skipped;
+        private final List<String> mismatches;
+        private final long elapsedNanos;
+
+        Report(long checked, long skipped, List<String> mismatches, long elapsedNanos) {
+            this.checked = checked;
+            this.skipped = skipped;
+            this.mismatches = mismatches;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /** @return how many records were hashed */
+        public long getChecked() {
+            return checked;
+        }
+
+        /** @return how many records were skipped because they were already verified */
+        public long getSkipped() {
+            return skipped;
+        }
+
+        /** @return descriptions of records whose hash didn't match */
+        public List<String> getMismatches() {
+            return mismatches;
+        }
+
+        /** @return wall-clock time taken in milliseconds */
+        public double getElapsedMillis() {
+            return elapsedNanos / 1_000_000.0;
+        }
+
+        /** @return verification throughput in records per second */
+        public double getMessagesPerSecond() {
+            return elapsedNanos == 0 ? 0 : checked * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Checked: %d%nSkipped (unchanged): %d%nMismatches: %d%nTime: %.1f ms (%.0f messages/sec)",
+                    checked, skipped, mismatches.size(), getElapsedMillis(), getMessagesPerSecond());
+        }
+    }
+}
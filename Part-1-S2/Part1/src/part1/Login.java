@@ -112,13 +112,36 @@ public class Login extends javax.swing.JFrame {
     private void btnLoginActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_btnLoginActionPerformed
           String username = txtUsername.getText();
         String password = new String(txtPassword.getPassword());
-        // Validate login credentials
-        boolean isValid = checkLoginCredentials(username, password);
+        // Throttle attempts before spending any time on password hashing
+        if (!LoginRateLimiter.getInstance().tryAcquire(username)) {
+            JOptionPane.showMessageDialog(Login.this, "Too many login attempts. Please wait and try again.", "Login Status", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        // Validate login credentials off the EDT (password hashing is deliberately slow)
+        btnLogin.setEnabled(false);
+        checkLoginCredentialsAsync(username, password).whenComplete((isValid, error) -> {
+            if (error != null) {
+                // e.g. a damaged stored hash: treat it as a failed login rather than leaving the button disabled
+                System.out.println("Error checking credentials: " + error.getMessage());
+            }
+            java.awt.EventQueue.invokeLater(() -> finishLogin(username, error == null && isValid));
+        });
+    }//GEN-LAST:event_btnLoginActionPerformed
+
+    /**
+     * Runs on the EDT once the credential check has finished.
+     */
+    private void finishLogin(String username, boolean isValid) {
+        btnLogin.setEnabled(true);
+        if (isValid) {
+            // Start loading messages now, while the status and welcome dialogs are showing
+            MessagePreloader.start(username);
+        }
         // Display login status
         String loginStatus = returnLoginStatus(isValid);
         JOptionPane.showMessageDialog(Login.this, loginStatus, "Login Status", JOptionPane.INFORMATION_MESSAGE);
         
-        System.out.println("entered username:" + username +"  "+ "Entered Password:"+ password);
+        System.out.println("entered username:" + username);
         
         // If login successful, close login window
         if (isValid) {
@@ -126,21 +149,18 @@ public class Login extends javax.swing.JFrame {
             Welcome welcome = new Welcome();
             welcome.setVisible(true);
         }
-
-    }//GEN-LAST:event_btnLoginActionPerformed
+    }
 
     private void btnRegisterActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_btnRegisterActionPerformed
           Registration registration = new Registration();
         registration.setVisible(true);
     }//GEN-LAST:event_btnRegisterActionPerformed
 
- private boolean checkLoginCredentials(String username, String password) {
+ private java.util.concurrent.CompletableFuture<Boolean> checkLoginCredentialsAsync(String username, String password) {
         if (registration != null) {
-//            return registration.checkLoginCredentials(username, password);
-           return UserCredentials.getInstance().checkCredentials(username, password); // Use Singleton
-
+           return UserCredentials.getInstance().checkCredentialsAsync(username, password); // Runs on the verifier pool
         } else {
-            return false;
+            return java.util.concurrent.CompletableFuture.completedFuture(false);
         }
     }
 
@@ -0,0 +1,260 @@
+package part1;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * The LoginRateLimiter throttles login attempts before any password is checked.
+ * - One global token bucket caps the total attempt rate.
+ * - Each username gets its own token bucket.
+ * - Idle username buckets are expired with a timing wheel, and once the
+ *   tracked-user limit is hit new usernames share a fixed set of striped
+ *   buckets, so memory stays bounded no matter how many names are tried.
+ *
+ * All bucket state lives in a single AtomicLong and is updated with CAS,
+ * so no locks are taken on the login path.
+ */
+public class LoginRateLimiter {
+    private static LoginRateLimiter instance;
+
+    private static final int WHEEL_SLOTS = 64;        // Number of slots in the expiry wheel
+    private static final int OVERFLOW_STRIPES = 64;   // Shared buckets once the user limit is hit
+
+    private final LongSupplier clock;           // Millisecond clock (replaceable for testing)
+    private final long startMillis;             // Bucket timestamps are stored relative to this
+    private final int userCapacity;             // Burst size per username
+    private final long userRefillMillis;        // Time to earn back one attempt per username
+    private final int maxTrackedUsers;          // Upper bound on per-username buckets
+    private final long slotMillis;              // Width of one wheel slot
+
+    private final TokenBucket globalBucket;
+    private final TokenBucket[] overflowBuckets = new TokenBucket[OVERFLOW_STRIPES];
+    private final ConcurrentHashMap<String, TokenBucket> userBuckets = new ConcurrentHashMap<>();
+
+    // Timing wheel: each slot lists usernames last touched during that slot
+    @SuppressWarnings("unchecked")
+    private final ConcurrentLinkedQueue<String>[] wheel =
+            (ConcurrentLinkedQueue<String>[]) new ConcurrentLinkedQueue<?>[WHEEL_SLOTS];
+    private final AtomicLong wheelCursor = new AtomicLong(); // Last slot tick that was swept
+
+    /**
+     * Creates the limiter from system properties (or sensible defaults):
+     * 5 attempts per username, one more every 12 seconds, 50 attempts/sec overall.
+     */
+    private LoginRateLimiter() {
+        this(Integer.getInteger("quickchat.login.userBurst", 5),
+                Long.getLong("quickchat.login.userRefillMillis", 12000L),
+                Integer.getInteger("quickchat.login.globalBurst", 100),
+                Long.getLong("quickchat.login.globalRefillMillis", 20L),
+                Integer.getInteger("quickchat.login.maxTrackedUsers", 100000),
+                System::currentTimeMillis);
+    }
+
+    /**
+     * Creates a limiter with explicit settings.
+     *
+     * @param userCapacity       attempts a single username may burst
+     * @param userRefillMillis   milliseconds to regain one attempt per username
+     * @param globalCapacity     attempts all users together may burst
+     * @param globalRefillMillis milliseconds to regain one global attempt
+     * @param maxTrackedUsers    maximum number of per-username buckets kept
+     * @param clock              source of the current time in milliseconds
+     */
+    LoginRateLimiter(int userCapacity, long userRefillMillis, int globalCapacity, long globalRefillMillis,
+            int maxTrackedUsers, LongSupplier clock) {
+        this.clock = clock;
+        this.startMillis = clock.getAsLong();
+        this.userCapacity = userCapacity;
+        this.userRefillMillis = userRefillMillis;
+        this.maxTrackedUsers = maxTrackedUsers;
+
+        // A bucket can be forgotten once it would have refilled completely
+        long idleMillis = Math.max(1, userCapacity * userRefillMillis);
+        this.slotMillis = Math.max(1, idleMillis / (WHEEL_SLOTS / 2));
+
+        this.globalBucket = new TokenBucket(globalCapacity, globalRefillMillis);
+        for (int i = 0; i < OVERFLOW_STRIPES; i++) {
+            overflowBuckets[i] = new TokenBucket(userCapacity, userRefillMillis);
+        }
+        for (int i = 0; i < WHEEL_SLOTS; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+    public static synchronized LoginRateLimiter getInstance() {
+        if (instance == null) {
+            instance = new LoginRateLimiter();
+        }
+        return instance;
+    }
+
+    /**
+     * Tries to take one login attempt for the given username.
+     *
+     * @param username the username being logged in as
+     * @return true if the attempt may go ahead, false if it should be rejected
+     */
+    public boolean tryAcquire(String username) {
+        long now = clock.getAsLong() - startMillis;
+        expireIdleBuckets(now);
+
+        String key = username == null ? "" : username;
+        TokenBucket userBucket = bucketFor(key, now);
+
+        // Check both before taking from either: a global flood mustn't use up
+        // a user's own attempts, and one noisy user mustn't drain the global budget
+        if (!globalBucket.hasToken(now) || !userBucket.tryConsume(now)) {
+            return false;
+        }
+        if (!globalBucket.tryConsume(now)) {
+            userBucket.refund(); // Lost a race for the last global token
+            return false;
+        }
+        return true;
+    }
+
+    /** @return how many usernames currently have their own bucket */
+    public int getTrackedUserCount() {
+        return userBuckets.size();
+    }
+
+    /**
+     * Finds (or creates) the bucket for a username and records the access in the wheel.
+     */
+    private TokenBucket bucketFor(String key, long now) {
+        TokenBucket bucket = userBuckets.get(key);
+        if (bucket == null) {
+            if (userBuckets.size() >= maxTrackedUsers) {
+                // Out of room: share a striped bucket instead of growing the map
+                return overflowBuckets[(key.hashCode() & 0x7fffffff) % OVERFLOW_STRIPES];
+            }
+            TokenBucket created = new TokenBucket(userCapacity, userRefillMillis);
+            bucket = userBuckets.putIfAbsent(key, created);
+            if (bucket == null) {
+                bucket = created;
+            }
+        }
+
+        // Only enqueue once per slot, so repeated attempts don't grow the wheel
+        long tick = now / slotMillis;
+        long previous = bucket.lastTick;
+        bucket.lastTick = tick;
+        if (previous != tick) {
+            wheel[(int) (tick % WHEEL_SLOTS)].add(key);
+        }
+        return bucket;
+    }
+
+    /**
+     * Advances the wheel and drops buckets that have been idle long enough to be full again.
+     */
+    private void expireIdleBuckets(long now) {
+        long currentTick = now / slotMillis;
+        long swept = wheelCursor.get();
+        long expireBefore = currentTick - WHEEL_SLOTS / 2; // Ticks older than this are idle
+
+        // Only one thread sweeps a given range
+        if (expireBefore <= swept || !wheelCursor.compareAndSet(swept, expireBefore)) {
+            return;
+        }
+
+        long from = Math.max(swept, expireBefore - WHEEL_SLOTS);
+        List<String> stillActive = new ArrayList<>();
+        for (long tick = from; tick < expireBefore; tick++) {
+            ConcurrentLinkedQueue<String> slot = wheel[(int) (tick % WHEEL_SLOTS)];
+            String key;
+            while ((key = slot.poll()) != null) {
+                TokenBucket bucket = userBuckets.get(key);
+                if (bucket == null) {
+                    continue;
+                }
+                if (bucket.lastTick < expireBefore) {
+                    userBuckets.remove(key, bucket);
+                } else {
+                    stillActive.add(key); // Slot was shared with a newer tick (sweeper fell behind)
+                }
+            }
+        }
+
+        // Put recently used names back in the slot of their latest access
+        for (String key : stillActive) {
+            TokenBucket bucket = userBuckets.get(key);
+            if (bucket != null) {
+                wheel[(int) (bucket.lastTick % WHEEL_SLOTS)].add(key);
+            }
+        }
+    }
+
+    /**
+     * A lock-free token bucket.
+     * The whole state is one long: the upper 48 bits hold the time of the last
+     * refill (relative to startMillis) and the lower 16 bits hold the tokens left.
+     */
+    private static final class TokenBucket {
+        private static final long TOKEN_MASK = 0xFFFFL;
+
+        private final int capacity;
+        private final long refillMillis;
+        private final AtomicLong state;
+        volatile long lastTick = -1; // Wheel tick of the most recent access
+
+        TokenBucket(int capacity, long refillMillis) {
+            this.capacity = Math.min(capacity, (int) TOKEN_MASK);
+            this.refillMillis = Math.max(1, refillMillis);
+            this.state = new AtomicLong(this.capacity); // Starts full at time 0
+        }
+
+        boolean tryConsume(long now) {
+            while (true) {
+                long current = state.get();
+                long lastRefill = current >>> 16;
+                long tokens = current & TOKEN_MASK;
+
+                // Add whole tokens earned since the last refill
+                long earned = (now - lastRefill) / refillMillis;
+                if (earned > 0) {
+                    tokens = Math.min(capacity, tokens + earned);
+                    lastRefill = tokens == capacity ? now : lastRefill + earned * refillMillis;
+                }
+
+                if (tokens == 0) {
+                    return false;
+                }
+
+                long next = (lastRefill << 16) | (tokens - 1);
+                if (state.compareAndSet(current, next)) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * @return true if a token is available now (nothing is taken)
+         */
+        boolean hasToken(long now) {
+            long current = state.get();
+            long earned = (now - (current >>> 16)) / refillMillis;
+            return (current & TOKEN_MASK) > 0 || earned > 0;
+        }
+
+        /**
+         * Gives back a token taken by tryConsume().
+         */
+        void refund() {
+            while (true) {
+                long current = state.get();
+                long tokens = current & TOKEN_MASK;
+                if (tokens >= capacity) {
+                    return;
+                }
+                if (state.compareAndSet(current, current + 1)) {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -14,6 +14,21 @@ public class Main {
      * @param args the command line arguments
      */
     public static void main(String[] args) {
+        // "--startup-probe": load the startup classes and exit (used to build the AppCDS archive)
+        if (args.length > 0 && "--startup-probe".equals(args[0])) {
+            StartupBenchmark.probe();
+            System.exit(0);
+        }
+
+        // Persist tasks across runs (saved tasks are restored and numbering carries on from the journal)
+        try {
+            TaskRegistry.getInstance().attachJournal(new TaskJournal("tasks.dat"));
+            // Write the final checkpoint and release the file on exit
+            Runtime.getRuntime().addShutdownHook(new Thread(TaskRegistry.getInstance()::closeJournal, "task-journal-close"));
+        } catch (java.io.IOException e) {
+            System.out.println("Could not open task journal: " + e.getMessage());
+        }
+
          Registration registration = new Registration();
          Login login = new Login(registration);
         login.setVisible(true);
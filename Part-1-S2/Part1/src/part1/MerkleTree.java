@@ -0,0 +1,195 @@
+package part1;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The MerkleTree summarises a message store as a tree of SHA-256 hashes.
+ * - Each leaf is the hash of one message's number and content hash, in message-number order.
+ * - Each parent is the hash of its two children (a lone left child is carried up as-is).
+ * - Appending a message only recomputes the nodes on its path to the root: O(log n).
+ *
+ * Two stores with equal roots hold the same messages. When roots differ,
+ * diff() walks down only the subtrees that differ, so finding a small set of
+ * differences takes O(d log n) hash comparisons instead of comparing every message.
+ */
+public class MerkleTree {
+    private final List<List<byte[]>> levels = new ArrayList<>(); // levels.get(0) = leaves, last = root
+
+    /**
+     * Builds a tree from messages already sorted by message number.
+     */
+    public static MerkleTree build(List<Message> sortedMessages) {
+        MerkleTree tree = new MerkleTree();
+        for (Message message : sortedMessages) {
+            tree.append(message);
+        }
+        return tree;
+    }
+
+    /**
+     * Adds a message as the next leaf and updates its path to the root.
+     * Messages must be appended in message-number order.
+     */
+    public void append(Message message) {
+        appendLeaf(leafHash(message));
+    }
+
+    /**
+     * Adds a pre-computed leaf hash and updates its path to the root.
+     */
+    public void appendLeaf(byte[] leaf) {
+        if (levels.isEmpty()) {
+            levels.add(new ArrayList<byte[]>());
+        }
+        levels.get(0).add(leaf);
+
+        // Walk up, recomputing only the parent of the node that changed
+        int index = levels.get(0).size() - 1;
+        int level = 0;
+        while (levels.get(level).size() > 1) {
+            List<byte[]> current = levels.get(level);
+            int parentIndex = index / 2;
+            byte[] left = current.get(parentIndex * 2);
+            byte[] parent = parentIndex * 2 + 1 < current.size()
+                    ? combine(left, current.get(parentIndex * 2 + 1))
+                    : left; // Lone left child is carried up unchanged
+
+            if (level + 1 == levels.size()) {
+                levels.add(new ArrayList<byte[]>());
+            }
+            List<byte[]> above = levels.get(level + 1);
+            if (parentIndex < above.size()) {
+                above.set(parentIndex, parent);
+            } else {
+                above.add(parent);
+            }
+
+            index = parentIndex;
+            level++;
+        }
+    }
+
+    /** @return number of leaves (messages) in the tree */
+    public int size() {
+        return levels.isEmpty() ? 0 : levels.get(0).size();
+    }
+
+    /** @return the root hash, or null for an empty tree */
+    public byte[] getRoot() {
+        return levels.isEmpty() ? null : levels.get(levels.size() - 1).get(0);
+    }
+
+    /** @return the root hash as hex, or an empty string for an empty tree */
+    public String getRootHex() {
+        byte[] root = getRoot();
+        if (root == null) {
+            return "";
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : root) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Returns the hash of the node covering leaves [index * 2^level, (index + 1) * 2^level).
+     * Levels above the root give the root at index 0, so trees of different
+     * heights can be compared node by node.
+     *
+     * @return the node hash, or null if the tree has no leaves in that range
+     */
+    public byte[] getNode(int level, int index) {
+        if (levels.isEmpty()) {
+            return null;
+        }
+        if (level >= levels.size()) {
+            return index == 0 ? getRoot() : null;
+        }
+        List<byte[]> nodes = levels.get(level);
+        return index < nodes.size() ? nodes.get(index) : null;
+    }
+
+    /** @return number of levels, including the leaves and the root */
+    public int getHeight() {
+        return levels.size();
+    }
+
+    /**
+     * Finds the leaf positions where this tree and another differ.
+     *
+     * @param other the tree to compare with
+     * @return ranges of leaf positions as {from, to} (to exclusive), in order
+     */
+    public List<int[]> diff(MerkleTree other) {
+        List<int[]> ranges = new ArrayList<>();
+        int top = Math.max(getHeight(), other.getHeight()) - 1;
+        if (top >= 0) {
+            diff(other, top, 0, ranges);
+        }
+        return ranges;
+    }
+
+    private void diff(MerkleTree other, int level, int index, List<int[]> ranges) {
+        byte[] mine = getNode(level, index);
+        byte[] theirs = other.getNode(level, index);
+        if (mine == null && theirs == null) {
+            return;
+        }
+        if (mine != null && theirs != null && Arrays.equals(mine, theirs)) {
+            return; // Whole subtree matches
+        }
+
+        if (level == 0) {
+            // Merge adjacent differing leaves into one range
+            int[] last = ranges.isEmpty() ? null : ranges.get(ranges.size() - 1);
+            if (last != null && last[1] == index) {
+                last[1] = index + 1;
+            } else {
+                ranges.add(new int[] {index, index + 1});
+            }
+            return;
+        }
+
+        diff(other, level - 1, index * 2, ranges);
+        diff(other, level - 1, index * 2 + 1, ranges);
+    }
+
+    /**
+     * Leaf hash for a message: SHA-256 of a 0x00 marker, its number and its content hash.
+     */
+    public static byte[] leafHash(Message message) {
+        MessageDigest digest = sha256();
+        digest.update((byte) 0);
+        int number = message.getMessageNumber();
+        digest.update(new byte[] {(byte) (number >>> 24), (byte) (number >>> 16), (byte) (number >>> 8), (byte) number});
+        digest.update(String.valueOf(message.getContentHash()).getBytes(StandardCharsets.UTF_8));
+        return digest.digest();
+    }
+
+    /**
+     * Parent hash: SHA-256 of a 0x01 marker and both children.
+     * The markers stop a leaf from ever being mistaken for an inner node.
+     */
+    private static byte[] combine(byte[] left, byte[] right) {
+        MessageDigest digest = sha256();
+        digest.update((byte) 1);
+        digest.update(left);
+        digest.update(right);
+        return digest.digest();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is always available
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -3,20 +3,24 @@ package part1;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.Random;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * The Message class represents a single chat message.
- * Each message has a unique ID, recipient, content, a SHA-256 hash of its content,
- * and a status (e.g., Created, Sent, Stored, or Discarded).
+ * Each message has a unique ID, sender, recipient, content, a SHA-256 hash of its content,
+ * and a status (e.g., Created, Sent, Stored, Scheduled, or Discarded).
  */
 public class Message {
     private String messageId;    // A randomly generated unique 10-digit ID
     private int messageNumber;   // A sequential number for ordering messages
+    private String sender;       // The user who wrote the message (null for legacy messages)
     private String recipient;    // The person this message is sent to
     private String content;      // The message body (limited to 250 characters)
     private String contentHash;  // A hash of the message content for integrity checking
     private String status;       // Status of the message (Created, Sent, Stored, Discarded, etc.)
+    private long createdAt;      // When the message was created (epoch millis, 0 if unknown)
+    private long deliverAt;      // When a scheduled message is due (epoch millis, 0 = not scheduled)
 
     /**
      * Constructor: called when creating a new message.
@@ -28,8 +32,22 @@ public class Message {
      * @param content       the text of the message (max 250 chars)
      */
     public Message(int messageNumber, String recipient, String content) {
+        this(messageNumber, null, recipient, content);
+    }
+
+    /**
+     * Constructor: called when creating a new message for a known sender.
+     *
+     * @param messageNumber sequential number assigned to the message
+     * @param sender        the user who is sending the message
+     * @param recipient     who the message is being sent to
+     * @param content       the text of the message (max 250 chars)
+     */
+    public Message(int messageNumber, String sender, String recipient, String content) {
         this.messageId = generateMessageId();   // Generate a unique ID
         this.messageNumber = messageNumber;     // Assign sequential number
+        this.sender = sender;                   // Remember who wrote it
+        this.createdAt = System.currentTimeMillis(); // Timestamp for conversation timelines
         this.recipient = recipient;             // Set recipient name
         this.status = "Created";                // Default status when first made
 
@@ -44,17 +62,40 @@ public class Message {
         this.contentHash = calculateContentHash(this.content);
     }
 
+    /**
+     * Constructor: called when restoring a saved message from storage.
+     * Keeps the original ID and hash instead of generating new ones.
+     * Missing values (from older files) are generated as for a new message.
+     */
+    Message(String messageId, int messageNumber, String sender, String recipient,
+            String content, String contentHash, String status, long createdAt) {
+        this.messageId = messageId != null ? messageId : generateMessageId();
+        this.messageNumber = messageNumber;
+        this.sender = sender;
+        this.recipient = recipient;
+        this.content = content;
+        this.contentHash = contentHash != null ? contentHash : calculateContentHash(content);
+        this.status = status != null ? status : "Created";
+        this.createdAt = createdAt;
+    }
+
     /**
      * Creates a random 10-digit message ID.
      * Example: "1234567890"
+     * Uses the whole 10-digit range (9 billion values); MessageStorage
+     * gives a new ID to the rare message that still collides.
      *
-     * @return unique 10-digit string
+     * @return random 10-digit string
+     */
+    private static String generateMessageId() {
+        return String.valueOf(ThreadLocalRandom.current().nextLong(1_000_000_000L, 10_000_000_000L));
+    }
+
+    /**
+     * Replaces the ID with a fresh random one (used when a new message's ID is already taken).
      */
-    private String generateMessageId() {
-        Random random = new Random();
-        // Generate a random number in the 10-digit range
-        long randomNum = 1000000000L + random.nextInt(900000000);
-        return String.valueOf(randomNum);
+    void regenerateMessageId() {
+        this.messageId = generateMessageId();
     }
 
     /**
@@ -64,7 +105,7 @@ public class Message {
      * @param content the message text to hash
      * @return hash as a hex string
      */
-    private String calculateContentHash(String content) {
+    static String calculateContentHash(String content) {
         try {
             // Use Java's built-in MessageDigest for SHA-256
             MessageDigest digest = MessageDigest.getInstance("SHA-256");
@@ -98,6 +139,11 @@ public class Message {
         return messageNumber;
     }
 
+    /** @return the sender of the message, or null for legacy messages */
+    public String getSender() {
+        return sender;
+    }
+
     /** @return the recipient of the message */
     public String getRecipient() {
         return recipient;
@@ -113,6 +159,21 @@ public class Message {
         return contentHash;
     }
 
+    /** @return when the message was created (epoch millis), or 0 for legacy messages */
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    /** @return when a scheduled message is due (epoch millis), or 0 if it isn't scheduled */
+    public long getDeliverAt() {
+        return deliverAt;
+    }
+
+    /** @return true if the message is waiting for its scheduled delivery time */
+    public boolean isScheduled() {
+        return "Scheduled".equals(status);
+    }
+
     /** @return the current status of the message */
     public String getStatus() {
         return status;
@@ -124,10 +185,43 @@ public class Message {
      * Update the status of the message.
      * Example: "Sent", "Stored", or "Discarded".
      *
+     * Subscribers of the MessageEventBus are told when the status changes.
+     *
      * @param status new status string
      */
     public void setStatus(String status) {
+        String oldStatus = this.status;
         this.status = status;
+        if (!Objects.equals(oldStatus, status)) {
+            MessageEventBus.getInstance().publishStatusChanged(this, oldStatus, status);
+        }
+    }
+
+    /**
+     * Marks the message to be sent later. The MessageScheduler sends it when the time comes.
+     *
+     * @param deliverAt when to send (epoch millis)
+     */
+    public void scheduleFor(long deliverAt) {
+        this.deliverAt = deliverAt;
+        setStatus("Scheduled");
+    }
+
+    /**
+     * Restores the delivery time of a saved message (no event is published).
+     */
+    void setDeliverAt(long deliverAt) {
+        this.deliverAt = deliverAt;
+    }
+
+    /**
+     * Swaps the content for an identical shared copy from the ContentStore,
+     * so repeated bodies only take up memory once.
+     */
+    void shareContent(String sharedContent) {
+        if (content.equals(sharedContent)) {
+            this.content = sharedContent;
+        }
     }
 
     // ----------- Utility Methods -----------
@@ -142,9 +236,11 @@ public class Message {
     public String toString() {
         return "Message #" + messageNumber +
                "\nID: " + messageId +
+               (sender != null ? "\nFrom: " + sender : "") +
                "\nTo: " + recipient +
                "\nContent: " + content +
                "\nStatus: " + status +
+               (isScheduled() ? "\nDeliver At: " + new java.util.Date(deliverAt) : "") +
                "\nContent Hash: " + contentHash.substring(0, 15) + "..."; // Show only first 15 chars of hash
     }
 }
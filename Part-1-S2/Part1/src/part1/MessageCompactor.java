@@ -0,0 +1,228 @@
+package part1;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * The MessageCompactor applies a RetentionPolicy to a storage in the background.
+ * - A snapshot of the message list is taken on the storage's thread (a quick copy).
+ * - Working out what has expired happens on the "message-compactor" thread,
+ *   so the UI isn't held up by the scan.
+ * - Expired messages are removed back on the storage's thread in small chunks,
+ *   with other work (e.g. UI events) able to run in between.
+ * - Finally the partition is saved once: it is copied on the storage's thread, then
+ *   turned into JSON and written on the "message-compactor" thread (to a temp file
+ *   that is moved into place, so readers see either the old or the new version).
+ *
+ * Runs every quickchat.retention.intervalMinutes (default 60) once started.
+ */
+public class MessageCompactor implements AutoCloseable {
+    private static final int CHUNK_SIZE = 1000;           // Messages removed per step on the storage thread
+    private static final long FIRST_RUN_DELAY_MILLIS = 30_000; // Leave startup alone
+
+    private final MessageStorage storage;
+    private final Executor storageExecutor;   // Everything that touches the storage runs here (e.g. the EDT)
+    private final RetentionPolicy policy;
+    private final ScheduledExecutorService worker;
+    private CompletableFuture<Integer> running;  // Current run, or null (guarded by this)
+
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong removedTotal = new AtomicLong();
+    private volatile long longestStepNanos;  // Longest single step spent on the storage thread
+
+    /**
+     * @param storage         the partition to compact
+     * @param storageExecutor runs steps on the storage's thread (e.g. EventQueue::invokeLater)
+     * @param policy          what to throw away
+     */
+    public MessageCompactor(MessageStorage storage, Executor storageExecutor, RetentionPolicy policy) {
+        this.storage = storage;
+        this.storageExecutor = storageExecutor;
+        this.policy = policy;
+        this.worker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "message-compactor");
+            thread.setDaemon(true); // Don't keep the app alive on exit
+            return thread;
+        });
+    }
+
+    /**
+     * Starts compacting on a timer (does nothing if the policy has no rules).
+     */
+    public void start() {
+        if (!policy.isEnabled()) {
+            return;
+        }
+        long interval = TimeUnit.MINUTES.toMillis(Long.getLong("quickchat.retention.intervalMinutes", 60L));
+        worker.scheduleWithFixedDelay(() -> compactNow().join(), FIRST_RUN_DELAY_MILLIS, interval,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs one compaction now, or joins the one already running.
+     *
+     * @return completes with the number of messages removed
+     */
+    public synchronized CompletableFuture<Integer> compactNow() {
+        if (running != null && !running.isDone()) {
+            return running;
+        }
+        long now = System.currentTimeMillis();
+        running = CompletableFuture
+                .supplyAsync(() -> timed(() -> new ArrayList<>(storage.getMessages())), storageExecutor)
+                .thenApplyAsync(snapshot -> policy.selectExpired(snapshot, now), worker)
+                .thenCompose(expired -> removeChunks(expired, 0, 0))
+                .whenComplete((removed, error) -> {
+                    runs.incrementAndGet();
+                    if (error != null) {
+                        System.out.println("Error compacting messages: " + error.getMessage());
+                    } else if (removed > 0) {
+                        removedTotal.addAndGet(removed);
+                        System.out.println("Retention removed " + removed + " messages from " + storage.getStorageFile());
+                    }
+                });
+        return running;
+    }
+
+    /**
+     * Removes one chunk on the storage thread, then schedules the next.
+     * Saves once after the last chunk; only the copy is taken on the storage thread.
+     */
+    private CompletableFuture<Integer> removeChunks(List<Message> expired, int from, int removedSoFar) {
+        if (from >= expired.size()) {
+            if (removedSoFar == 0) {
+                return CompletableFuture.completedFuture(0);
+            }
+            return CompletableFuture
+                    .supplyAsync(() -> timed(storage::prepareSave), storageExecutor)
+                    .thenApplyAsync(save -> {
+                        if (!storage.writeSave(save)) {
+                            throw new IllegalStateException("Could not save " + storage.getStorageFile());
+                        }
+                        return removedSoFar;
+                    }, worker);
+        }
+        List<Message> chunk = expired.subList(from, Math.min(from + CHUNK_SIZE, expired.size()));
+        return CompletableFuture
+                .supplyAsync(() -> timed(() -> {
+                    // Re-check: a message may have been scheduled since the snapshot
+                    List<Message> stillExpired = new ArrayList<>(chunk.size());
+                    for (Message message : chunk) {
+                        if (!message.isScheduled()) {
+                            stillExpired.add(message);
+                        }
+                    }
+                    return storage.removeMessages(stillExpired);
+                }), storageExecutor)
+                .thenCompose(removed -> removeChunks(expired, from + chunk.size(), removedSoFar + removed));
+    }
+
+    /**
+     * Runs a step and records how long it held the storage thread.
+     */
+    private <T> T timed(Supplier<T> step) {
+        long start = System.nanoTime();
+        try {
+            return step.get();
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            if (elapsed > longestStepNanos) {
+                longestStepNanos = elapsed;
+            }
+        }
+    }
+
+    /** @return number of completed runs */
+    public long getRunCount() {
+        return runs.get();
+    }
+
+    /** @return messages removed over all runs */
+    public long getRemovedCount() {
+        return removedTotal.get();
+    }
+
+    /** @return longest time one step held the storage thread, in milliseconds */
+    public double getLongestStepMillis() {
+        return longestStepNanos / 1_000_000.0;
+    }
+
+    public RetentionPolicy getPolicy() {
+        return policy;
+    }
+
+    @Override
+    public void close() {
+        worker.shutdownNow();
+    }
+
+    /**
+     * Compacts a large generated partition and compares the longest stall on the
+     * storage thread against removing everything in one step.
+     * Run with: java part1.MessageCompactor [messages]
+     */
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        RetentionPolicy policy = new RetentionPolicy(TimeUnit.DAYS.toMillis(180), 500,
+                Collections.singleton("Discarded"));
+
+        // Baseline: scan and remove in a single step on the storage thread
+        MessageStorage baseline = generate("retention-bench-a", count);
+        long t0 = System.nanoTime();
+        List<Message> expired = policy.selectExpired(baseline.getMessages(), System.currentTimeMillis());
+        int baselineRemoved = baseline.removeMessages(expired);
+        baseline.saveMessages();
+        long baselineMillis = (System.nanoTime() - t0) / 1_000_000;
+
+        // Compactor: storage thread only does the snapshot, the chunks and copying for the save
+        MessageStorage storage = generate("retention-bench-b", count);
+        ExecutorService storageThread = Executors.newSingleThreadExecutor();
+        try (MessageCompactor compactor = new MessageCompactor(storage, storageThread, policy)) {
+            long t1 = System.nanoTime();
+            int removed = compactor.compactNow().get();
+            long totalMillis = (System.nanoTime() - t1) / 1_000_000;
+
+            System.out.printf("messages: %,d, expired: %,d (%s)%n", count, removed,
+                    removed == baselineRemoved ? "same as one-step" : "MISMATCH " + baselineRemoved);
+            System.out.printf("one step on storage thread: %d ms%n", baselineMillis);
+            System.out.printf("compactor: %d ms in total, longest storage-thread step %.1f ms%n",
+                    totalMillis, compactor.getLongestStepMillis());
+        } finally {
+            storageThread.shutdown();
+            cleanUp("retention-bench-a");
+            cleanUp("retention-bench-b");
+        }
+    }
+
+    private static MessageStorage generate(String owner, int count) throws IOException {
+        cleanUp(owner);
+        MessageStorage storage = new MessageStorage(owner);
+        Random random = new Random(42);
+        long now = System.currentTimeMillis();
+        String[] statuses = {"Sent", "Sent", "Sent", "Stored", "Discarded"};
+        for (int i = 1; i <= count; i++) {
+            long createdAt = now - (long) (random.nextDouble() * TimeUnit.DAYS.toMillis(365));
+            String content = "Message " + i;
+            storage.addMessage(new Message(null, i, owner, "contact" + random.nextInt(200), content,
+                    Message.calculateContentHash(content), statuses[random.nextInt(statuses.length)], createdAt));
+        }
+        return storage;
+    }
+
+    private static void cleanUp(String owner) throws IOException {
+        Files.deleteIfExists(Paths.get(MessageStorage.partitionFile(owner)));
+    }
+}
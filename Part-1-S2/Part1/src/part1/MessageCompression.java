@@ -0,0 +1,245 @@
+package part1;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The MessageCompression class reads and writes compressed message files.
+ * - Compressed files start with the 4-byte marker "QCZ1" followed by a deflate stream.
+ * - The deflate stream uses a preset dictionary of JSON field names and common
+ *   chat words. This mainly helps small per-user partitions, where there is
+ *   little earlier text for deflate to match against.
+ * - Readers detect the marker, so plain and compressed files load the same way.
+ */
+public final class MessageCompression {
+    private static final byte[] MAGIC = {'Q', 'C', 'Z', '1'};
+
+    // Text that shows up in almost every message file; later entries compress best
+    private static final byte[] DICTIONARY = (
+            "thanks thank you please sorry okay ok yes no maybe sure cool great nice "
+            + "good morning good night see you later tomorrow today tonight meeting call me "
+            + "how are you what's up where are you on my way running late love you miss you "
+            + "lol haha hello hi hey bye "
+            + "\"status\":\"Created\"\"status\":\"Discarded\"\"status\":\"Stored\"\"status\":\"Sent\""
+            + "\"createdAt\":\"sender\":\"recipient\":\"messageId\":\"messageNumber\":\"contentHash\":\""
+            + "{\"version\":2,\"contents\":{\"},\"messages\":[{\"")
+            .getBytes(StandardCharsets.UTF_8);
+
+    private MessageCompression() {
+    }
+
+    /**
+     * Opens a UTF-8 writer for a message file.
+     *
+     * @param path     the file to write
+     * @param compress true to write the compressed format
+     */
+    public static Writer openWriter(Path path, boolean compress) throws IOException {
+        OutputStream out = Files.newOutputStream(path);
+        if (compress) {
+            out.write(MAGIC);
+            Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+            deflater.setDictionary(DICTIONARY);
+            out = new OwnedDeflaterOutputStream(out, deflater);
+        }
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    /**
+     * Opens a UTF-8 reader for a message file, decompressing if the file is compressed.
+     */
+    public static Reader openReader(Path path) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(Files.newInputStream(path), 64 * 1024);
+        InputStream source = in;
+        if (hasMagic(in)) {
+            source = new DictionaryInflaterInputStream(in);
+        }
+        return new InputStreamReader(source, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return true if the file at this path uses the compressed format
+     */
+    public static boolean isCompressed(Path path) throws IOException {
+        try (BufferedInputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+            return hasMagic(in);
+        }
+    }
+
+    /**
+     * Checks for the marker; consumes it if present, otherwise leaves the stream untouched.
+     */
+    private static boolean hasMagic(BufferedInputStream in) throws IOException {
+        in.mark(MAGIC.length);
+        byte[] header = new byte[MAGIC.length];
+        int read = 0;
+        while (read < header.length) {
+            int n = in.read(header, read, header.length - read);
+            if (n < 0) {
+                break;
+            }
+            read += n;
+        }
+        if (read == MAGIC.length && Arrays.equals(header, MAGIC)) {
+            return true;
+        }
+        in.reset();
+        return false;
+    }
+
+    /**
+     * Deflater output stream that frees its Deflater when closed.
+     */
+    private static final class OwnedDeflaterOutputStream extends DeflaterOutputStream {
+        OwnedDeflaterOutputStream(OutputStream out, Deflater deflater) {
+            super(out, deflater, 64 * 1024);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                def.end();
+            }
+        }
+    }
+
+    /**
+     * Inflater input stream that supplies the preset dictionary when asked.
+     * (The JDK's InflaterInputStream just reports end-of-stream instead.)
+     */
+    private static final class DictionaryInflaterInputStream extends InflaterInputStream {
+        DictionaryInflaterInputStream(InputStream in) {
+            super(in, new Inflater(), 64 * 1024);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n == -1 && inf.needsDictionary()) {
+                inf.setDictionary(DICTIONARY);
+                n = super.read(b, off, len);
+            }
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                inf.end();
+            }
+        }
+    }
+
+    // ----------- Benchmark -----------
+
+    private static final String[] WORDS = {
+        "hey", "hi", "hello", "thanks", "ok", "sure", "lol", "see", "you", "later", "tomorrow",
+        "meeting", "at", "the", "office", "call", "me", "when", "you", "get", "this", "running",
+        "late", "on", "my", "way", "dinner", "tonight", "?", "!", "can", "we", "talk", "about",
+        "project", "deadline", "is", "friday", "good", "morning", "night", "love", "miss"
+    };
+
+    /**
+     * Builds a realistic-looking corpus and prints file size and CPU time for
+     * plain JSON, plain deflate and dictionary deflate at two levels.
+     * Run with: java part1.MessageCompression [messageCount]
+     */
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        Random random = new Random(42);
+
+        // Build the corpus in the inline-content format (every body written out)
+        StringBuilder json = new StringBuilder("{\"version\":2,\"contents\":{},\"messages\":[");
+        for (int i = 0; i < count; i++) {
+            StringBuilder content = new StringBuilder();
+            int words = 2 + random.nextInt(12);
+            for (int w = 0; w < words; w++) {
+                content.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+            }
+            Message message = new Message(i + 1, "user" + random.nextInt(50), "friend" + random.nextInt(200), content.toString().trim());
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"messageNumber\":").append(message.getMessageNumber())
+                    .append(",\"sender\":\"").append(message.getSender())
+                    .append("\",\"recipient\":\"").append(message.getRecipient())
+                    .append("\",\"messageId\":\"").append(message.getMessageId())
+                    .append("\",\"contentHash\":\"").append(message.getContentHash())
+                    .append("\",\"content\":\"").append(message.getContent())
+                    .append("\",\"status\":\"Sent\",\"createdAt\":").append(message.getCreatedAt()).append('}');
+        }
+        json.append("]}");
+        byte[] raw = json.toString().getBytes(StandardCharsets.UTF_8);
+
+        System.out.printf("Messages: %d, plain JSON: %,d bytes%n", count, raw.length);
+        benchmark("deflate (fast)", raw, Deflater.BEST_SPEED, null);
+        benchmark("deflate (default)", raw, Deflater.DEFAULT_COMPRESSION, null);
+        benchmark("deflate + dictionary (fast)", raw, Deflater.BEST_SPEED, DICTIONARY);
+        benchmark("deflate + dictionary (default)", raw, Deflater.DEFAULT_COMPRESSION, DICTIONARY);
+    }
+
+    private static void benchmark(String name, byte[] raw, int level, byte[] dictionary) throws IOException {
+        byte[] compressed = null;
+        long compressNanos = Long.MAX_VALUE;
+        long inflateNanos = Long.MAX_VALUE;
+
+        // Best of 5 runs, to keep JIT warm-up out of the numbers
+        for (int run = 0; run < 5; run++) {
+            long start = System.nanoTime();
+            Deflater deflater = new Deflater(level);
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary);
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DeflaterOutputStream out = new DeflaterOutputStream(bytes, deflater, 64 * 1024)) {
+                out.write(raw);
+            }
+            deflater.end();
+            compressed = bytes.toByteArray();
+            compressNanos = Math.min(compressNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            Inflater inflater = new Inflater();
+            inflater.setInput(compressed);
+            byte[] buffer = new byte[64 * 1024];
+            try {
+                while (!inflater.finished()) {
+                    if (inflater.inflate(buffer) == 0 && inflater.needsDictionary()) {
+                        inflater.setDictionary(dictionary);
+                    }
+                }
+            } catch (DataFormatException e) {
+                throw new IOException(e);
+            } finally {
+                inflater.end();
+            }
+            inflateNanos = Math.min(inflateNanos, System.nanoTime() - start);
+        }
+
+        System.out.printf("%-32s %,12d bytes (%5.1f%%)  compress %7.1f ms  decompress %6.1f ms%n",
+                name, compressed.length, 100.0 * compressed.length / raw.length,
+                compressNanos / 1_000_000.0, inflateNanos / 1_000_000.0);
+    }
+}
@@ -0,0 +1,67 @@
+package part1;
+
+/**
+ * The MessageEvent class describes one change to a message, as published on the MessageEventBus.
+ * - ADDED: a message was added to a MessageStorage partition.
+ * - REMOVED: a message was removed from a partition.
+ * - STATUS_CHANGED: setStatus() changed a message's status.
+ * Events are immutable, so listeners may keep them.
+ */
+public final class MessageEvent {
+
+    public enum Type {
+        ADDED, REMOVED, STATUS_CHANGED
+    }
+
+    private final long sequence;     // Position on the bus (0, 1, 2, ...)
+    private final Type type;
+    private final Message message;
+    private final String owner;      // Partition owner for ADDED/REMOVED (null = shared partition)
+    private final String oldStatus;  // For STATUS_CHANGED; otherwise null
+    private final String newStatus;  // Status at the time of the event
+    private final long timestamp;
+
+    MessageEvent(long sequence, Type type, Message message, String owner, String oldStatus, String newStatus) {
+        this.sequence = sequence;
+        this.type = type;
+        this.message = message;
+        this.owner = owner;
+        this.oldStatus = oldStatus;
+        this.newStatus = newStatus;
+        this.timestamp = System.currentTimeMillis();
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Message getMessage() {
+        return message;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public String getOldStatus() {
+        return oldStatus;
+    }
+
+    public String getNewStatus() {
+        return newStatus;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + sequence + " " + type + " " + message.getMessageId()
+                + (type == Type.STATUS_CHANGED ? " " + oldStatus + " -> " + newStatus : "");
+    }
+}
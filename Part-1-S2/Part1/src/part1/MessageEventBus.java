@@ -0,0 +1,254 @@
+package part1;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The MessageEventBus publishes message changes to any number of subscribers.
+ * - Events go into a fixed-size ring buffer. Publishers claim a slot with one
+ *   atomic increment; no locks are taken on the publish path.
+ * - Each subscriber has its own thread and its own position in the ring, and
+ *   receives events in batches: everything published since its last batch
+ *   (up to MAX_BATCH) in one call. A slow subscriber doesn't slow the others,
+ *   but publishers wait rather than overwrite events it hasn't read yet.
+ * - An idle subscriber spins briefly, then parks until a publisher wakes it,
+ *   so a quiet bus costs no CPU.
+ * - With no subscribers, publishing does nothing.
+ */
+public final class MessageEventBus {
+    private static final int RING_SIZE = Integer.getInteger("quickchat.events.ringSize", 8192);
+    private static final int MAX_BATCH = 256;
+    private static final int IDLE_SPINS = 128;   // Empty polls (spin, then yield) before a subscriber parks
+    private static final MessageEventBus INSTANCE = new MessageEventBus(RING_SIZE);
+
+    private final int mask;
+    private final AtomicReferenceArray<MessageEvent> ring;
+    private final AtomicLong nextSequence = new AtomicLong();  // Next sequence a publisher will claim
+    private final CopyOnWriteArrayList<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final LongAdder published = new LongAdder();
+
+    /**
+     * @param ringSize number of slots (rounded up to a power of two)
+     */
+    MessageEventBus(int ringSize) {
+        int size = Integer.highestOneBit(Math.max(2, ringSize) - 1) << 1;
+        this.mask = size - 1;
+        this.ring = new AtomicReferenceArray<>(size);
+    }
+
+    public static MessageEventBus getInstance() {
+        return INSTANCE;
+    }
+
+    void publishAdded(String owner, Message message) {
+        publish(MessageEvent.Type.ADDED, message, owner, null, message.getStatus());
+    }
+
+    void publishRemoved(String owner, Message message) {
+        publish(MessageEvent.Type.REMOVED, message, owner, null, message.getStatus());
+    }
+
+    void publishStatusChanged(Message message, String oldStatus, String newStatus) {
+        publish(MessageEvent.Type.STATUS_CHANGED, message, message.getSender(), oldStatus, newStatus);
+    }
+
+    private void publish(MessageEvent.Type type, Message message, String owner, String oldStatus, String newStatus) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        long sequence = nextSequence.getAndIncrement();
+
+        // The slot was last used by (sequence - size); wait until every subscriber is past it
+        long wrapPoint = sequence - ring.length();
+        for (int attempt = 0; wrapPoint >= slowestSubscriber(); attempt++) {
+            backOff(attempt);
+        }
+        ring.set((int) (sequence & mask), new MessageEvent(sequence, type, message, owner, oldStatus, newStatus));
+        published.increment();
+
+        // Wake subscribers that went to sleep (the slot is written first, so none can miss it)
+        for (Subscription subscription : subscriptions) {
+            if (subscription.parked) {
+                LockSupport.unpark(subscription.thread);
+            }
+        }
+    }
+
+    private long slowestSubscriber() {
+        long slowest = Long.MAX_VALUE;
+        for (Subscription subscription : subscriptions) {
+            slowest = Math.min(slowest, subscription.nextSequence);
+        }
+        return slowest;
+    }
+
+    /**
+     * Spin briefly, then yield, then sleep in short steps (at most 1 ms).
+     * Used by publishers waiting for a slow subscriber.
+     */
+    private static void backOff(int attempt) {
+        if (attempt < 64) {
+            return;
+        } else if (attempt < 128) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(Math.min(1_000_000L, 1_000L << Math.min(10, (attempt - 128) / 16)));
+        }
+    }
+
+    /**
+     * Registers a listener for every event published from now on.
+     *
+     * @param name used for the subscriber's thread name
+     * @return the subscription; close it to stop receiving events
+     */
+    public Subscription subscribe(String name, MessageEventListener listener) {
+        Subscription subscription = new Subscription(name, listener, nextSequence.get());
+        subscriptions.add(subscription);
+        subscription.thread.start();
+        return subscription;
+    }
+
+    /** @return number of events published since startup */
+    public long getPublishedCount() {
+        return published.sum();
+    }
+
+    /**
+     * One subscriber: a daemon thread that reads the ring in order.
+     */
+    public final class Subscription implements AutoCloseable {
+        private final MessageEventListener listener;
+        private final Thread thread;
+        private final long startSequence;
+        private volatile long nextSequence;     // Next event this subscriber will read
+        private volatile boolean running = true;
+        private volatile boolean parked;        // Asleep until a publisher unparks it
+        private final LongAdder batches = new LongAdder();
+
+        private Subscription(String name, MessageEventListener listener, long startSequence) {
+            this.listener = listener;
+            this.startSequence = startSequence;
+            this.nextSequence = startSequence;
+            this.thread = new Thread(this::run, "events-" + name);
+            this.thread.setDaemon(true);
+        }
+
+        private void run() {
+            int idle = 0;
+            while (running) {
+                long next = nextSequence;
+                List<MessageEvent> batch = new ArrayList<>();
+                MessageEvent event;
+                while (batch.size() < MAX_BATCH
+                        && (event = ring.get((int) (next & mask))) != null
+                        && event.getSequence() == next) {
+                    batch.add(event);
+                    next++;
+                }
+                if (batch.isEmpty()) {
+                    if (idle < IDLE_SPINS) {
+                        backOff(idle++);
+                    } else {
+                        // Say we're parking, then look once more: a publisher either
+                        // sees the flag and unparks us, or we see its event here
+                        parked = true;
+                        event = ring.get((int) (next & mask));
+                        if (running && (event == null || event.getSequence() != next)) {
+                            LockSupport.park(this);
+                        }
+                        parked = false;
+                    }
+                    continue;
+                }
+                idle = 0;
+
+                try {
+                    listener.onEvents(Collections.unmodifiableList(batch));
+                } catch (RuntimeException e) {
+                    System.out.println("Error in event listener " + thread.getName() + ": " + e.getMessage());
+                }
+                batches.increment();
+                nextSequence = next; // Frees the slots for publishers
+            }
+        }
+
+        /** @return number of batches delivered to the listener */
+        public long getBatchCount() {
+            return batches.sum();
+        }
+
+        /** @return number of events delivered to the listener */
+        public long getEventCount() {
+            return nextSequence - startSequence;
+        }
+
+        /**
+         * Stops delivery; events already being handled finish first.
+         */
+        @Override
+        public void close() {
+            running = false;
+            subscriptions.remove(this);
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Publishes from several threads to several subscribers and reports throughput.
+     * Run with: java part1.MessageEventBus [publishers] [eventsPerPublisher] [subscribers]
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int publishers = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int perPublisher = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        int subscriberCount = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        long total = (long) publishers * perPublisher;
+
+        MessageEventBus bus = new MessageEventBus(RING_SIZE);
+        CountDownLatch allReceived = new CountDownLatch(subscriberCount);
+        List<Subscription> subscribers = new ArrayList<>();
+        for (int s = 0; s < subscriberCount; s++) {
+            LongAdder received = new LongAdder();
+            subscribers.add(bus.subscribe("bench" + s, events -> {
+                received.add(events.size());
+                if (received.sum() == total) {
+                    allReceived.countDown();
+                }
+            }));
+        }
+
+        Message message = new Message(1, "bench", "bench", "benchmark event");
+        List<Thread> threads = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int p = 0; p < publishers; p++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < perPublisher; i++) {
+                    bus.publishStatusChanged(message, "Stored", "Sent");
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        allReceived.await();
+        long elapsed = System.nanoTime() - start;
+
+        System.out.printf("%,d events from %d publishers to %d subscribers in %.1f ms (%,.0f events/sec)%n",
+                total, publishers, subscriberCount, elapsed / 1_000_000.0, total * 1_000_000_000.0 / elapsed);
+        for (Subscription subscription : subscribers) {
+            System.out.printf("%s: %,d events in %,d batches (avg %.1f per batch)%n", subscription.thread.getName(),
+                    subscription.getEventCount(), subscription.getBatchCount(),
+                    (double) subscription.getEventCount() / subscription.getBatchCount());
+            subscription.close();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package part1;
+
+import java.util.List;
+
+/**
+ * Receives message events from the MessageEventBus.
+ * Each subscriber is called on its own thread, with events in publish order
+ * and grouped into batches when they arrive faster than the listener handles them.
+ */
+public interface MessageEventListener {
+
+    /**
+     * @param events one or more events, oldest first
+     */
+    void onEvents(List<MessageEvent> events);
+}
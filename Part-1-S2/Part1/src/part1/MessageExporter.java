@@ -0,0 +1,338 @@
+package part1;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Predicate;
+
+/**
+ * The MessageExporter writes messages out as CSV or JSON lines.
+ * - Messages are streamed one record at a time through a single reused
+ *   buffer into a FileChannel, so memory use stays the same however many
+ *   messages are exported.
+ * - Which messages are written is chosen with a filter (see filter()):
+ *   by status, by recipient and by message-number range.
+ * - Used from the ChatMenu report menu, or headless from the command line (see main).
+ */
+public class MessageExporter {
+    static final int BUFFER_SIZE = 256 * 1024;
+    private static final String CSV_HEADER =
+            "messageNumber,messageId,sender,recipient,status,createdAt,deliverAt,contentHash,content\n";
+
+    /** Output formats. */
+    public enum Format {
+        CSV(".csv"),
+        JSONL(".jsonl");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        /**
+         * Reads a format name such as "csv", "jsonl" or "json-lines".
+         */
+        public static Format parse(String name) {
+            String normalized = name.trim().toUpperCase(Locale.ROOT).replace("-", "").replace("_", "");
+            if (normalized.equals("JSONLINES")) {
+                return JSONL;
+            }
+            return valueOf(normalized);
+        }
+    }
+
+    private final Format format;
+    private final StringBuilder record = new StringBuilder(512);  // Reused for every message
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    public MessageExporter(Format format) {
+        this.format = format;
+    }
+
+    /**
+     * Builds a filter from the usual export options. Null or empty options match everything.
+     *
+     * @param status     exact status to keep (e.g. "Sent"), or null
+     * @param recipient  text the recipient must contain (case-insensitive), or null
+     * @param fromNumber lowest message number to keep (inclusive)
+     * @param toNumber   highest message number to keep (inclusive)
+     */
+    public static Predicate<Message> filter(String status, String recipient, int fromNumber, int toNumber) {
+        Predicate<Message> filter = message -> message.getMessageNumber() >= fromNumber
+                && message.getMessageNumber() <= toNumber;
+        if (status != null && !status.trim().isEmpty()) {
+            String wanted = status.trim();
+            filter = filter.and(message -> wanted.equalsIgnoreCase(message.getStatus()));
+        }
+        if (recipient != null && !recipient.trim().isEmpty()) {
+            String wanted = recipient.trim().toLowerCase(Locale.ROOT);
+            filter = filter.and(message -> message.getRecipient().toLowerCase(Locale.ROOT).contains(wanted));
+        }
+        return filter;
+    }
+
+    /**
+     * Writes every message that passes the filter to the target file (replacing it).
+     *
+     * @return the number of messages written
+     */
+    public long export(Iterable<Message> messages, Predicate<Message> filter, Path target) throws IOException {
+        long written = 0;
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            buffer.clear();
+            encoder.reset();
+            if (format == Format.CSV) {
+                record.setLength(0);
+                record.append(CSV_HEADER);
+                write(channel);
+            }
+            for (Message message : messages) {
+                if (!filter.test(message)) {
+                    continue;
+                }
+                record.setLength(0);
+                if (format == Format.CSV) {
+                    appendCsv(message);
+                } else {
+                    appendJson(message);
+                }
+                write(channel);
+                written++;
+            }
+            flush(channel);
+        }
+        return written;
+    }
+
+    private void appendCsv(Message message) {
+        record.append(message.getMessageNumber()).append(',');
+        appendCsvField(message.getMessageId());
+        record.append(',');
+        appendCsvField(message.getSender());
+        record.append(',');
+        appendCsvField(message.getRecipient());
+        record.append(',');
+        appendCsvField(message.getStatus());
+        record.append(',').append(message.getCreatedAt())
+                .append(',').append(message.getDeliverAt()).append(',');
+        appendCsvField(message.getContentHash());
+        record.append(',');
+        appendCsvField(message.getContent());
+        record.append('\n');
+    }
+
+    /**
+     * Quotes a field only when it needs it (comma, quote or line break), doubling inner quotes.
+     */
+    private void appendCsvField(String value) {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            record.append(value);
+            return;
+        }
+        record.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                record.append('"');
+            }
+            record.append(c);
+        }
+        record.append('"');
+    }
+
+    private void appendJson(Message message) {
+        record.append("{\"messageNumber\":").append(message.getMessageNumber());
+        appendJsonField("messageId", message.getMessageId());
+        appendJsonField("sender", message.getSender());
+        appendJsonField("recipient", message.getRecipient());
+        appendJsonField("status", message.getStatus());
+        record.append(",\"createdAt\":").append(message.getCreatedAt());
+        if (message.getDeliverAt() > 0) {
+            record.append(",\"deliverAt\":").append(message.getDeliverAt());
+        }
+        appendJsonField("contentHash", message.getContentHash());
+        appendJsonField("content", message.getContent());
+        record.append("}\n");
+    }
+
+    private void appendJsonField(String name, String value) {
+        record.append(",\"").append(name).append("\":");
+        if (value == null) {
+            record.append("null");
+        } else {
+            record.append('"');
+            appendJsonEscaped(value);
+            record.append('"');
+        }
+    }
+
+    /**
+     * Escapes straight into the record (JSONValue.escape builds a new string per field).
+     */
+    private void appendJsonEscaped(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    record.append("\\\"");
+                    break;
+                case '\\':
+                    record.append("\\\\");
+                    break;
+                case '\n':
+                    record.append("\\n");
+                    break;
+                case '\r':
+                    record.append("\\r");
+                    break;
+                case '\t':
+                    record.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        record.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        record.append(c);
+                    }
+            }
+        }
+    }
+
+    /**
+     * Encodes the current record into the buffer, writing the buffer out whenever it fills.
+     */
+    private void write(FileChannel channel) throws IOException {
+        CharBuffer chars = CharBuffer.wrap(record);
+        while (true) {
+            CoderResult result = encoder.encode(chars, buffer, false);
+            if (result.isOverflow()) {
+                drain(channel);
+            } else if (result.isUnderflow()) {
+                return;
+            } else {
+                result.throwException();
+            }
+        }
+    }
+
+    private void flush(FileChannel channel) throws IOException {
+        encoder.encode(CharBuffer.allocate(0), buffer, true);
+        encoder.flush(buffer);
+        drain(channel);
+    }
+
+    private void drain(FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Exports a user's partition without the GUI.
+     * Run with: java part1.MessageExporter owner csv|jsonl output-file [status=Sent] [recipient=text] [from=n] [to=n]
+     * Use "-" as the owner for the shared partition.
+     * Or: java part1.MessageExporter --benchmark [messages]
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("--benchmark")) {
+            benchmark(args.length > 1 ? Integer.parseInt(args[1]) : 2_000_000);
+            return;
+        }
+        if (args.length < 3) {
+            System.out.println("Usage: java part1.MessageExporter owner csv|jsonl output-file"
+                    + " [status=Sent] [recipient=text] [from=n] [to=n]");
+            System.out.println("       java part1.MessageExporter --benchmark [messages]");
+            return;
+        }
+
+        String owner = args[0].equals("-") ? null : args[0];
+        Format format = Format.parse(args[1]);
+        Path target = Paths.get(args[2]);
+        String status = null;
+        String recipient = null;
+        int from = 0;
+        int to = Integer.MAX_VALUE;
+        for (int i = 3; i < args.length; i++) {
+            String[] option = args[i].split("=", 2);
+            String value = option.length > 1 ? option[1] : "";
+            switch (option[0]) {
+                case "status":
+                    status = value;
+                    break;
+                case "recipient":
+                    recipient = value;
+                    break;
+                case "from":
+                    from = Integer.parseInt(value);
+                    break;
+                case "to":
+                    to = Integer.parseInt(value);
+                    break;
+                default:
+                    System.out.println("Unknown option: " + args[i]);
+                    return;
+            }
+        }
+
+        MessageStorage storage = new MessageStorage(owner);
+        long start = System.nanoTime();
+        long written = new MessageExporter(format).export(storage.getMessages(),
+                filter(status, recipient, from, to), target);
+        System.out.printf("Exported %,d of %,d messages to %s in %d ms%n", written,
+                storage.getMessages().size(), target, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Exports generated messages in both formats and reports the throughput.
+     */
+    private static void benchmark(int count) throws IOException {
+        List<Message> messages = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            String content = "Message " + i + ", with \"quotes\" and a comma";
+            messages.add(new Message(null, i, "bench", "contact" + (i % 500), content,
+                    "0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef", "Sent", 1700000000000L + i));
+        }
+        for (Format format : Format.values()) {
+            Path target = Files.createTempFile("quickchat-export", format.getExtension());
+            try {
+                MessageExporter exporter = new MessageExporter(format);
+                exporter.export(messages, filter(null, null, 0, 10_000), target); // Warm up
+                long start = System.nanoTime();
+                long written = exporter.export(messages, filter(null, null, 0, Integer.MAX_VALUE), target);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("%s: %,d messages, %,d MB in %.2f s (%,.0f msg/s)%n", format, written,
+                        Files.size(target) / (1024 * 1024), seconds, written / seconds);
+            } finally {
+                Files.deleteIfExists(target);
+            }
+        }
+    }
+}
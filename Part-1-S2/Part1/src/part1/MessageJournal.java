@@ -0,0 +1,176 @@
+package part1;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * The MessageJournal is an append-only log of new messages for one partition.
+ * - Messages are appended in batches with a single force to disk per batch.
+ * - Records use the same [length][fields][CRC32] layout as the TaskJournal, so
+ *   a record cut short by a crash is detected and dropped.
+ * - The journal only holds messages newer than the partition's last full save;
+ *   after each save it is emptied.
+ */
+public class MessageJournal implements AutoCloseable {
+    private final Path journalFile;
+    private final FileChannel channel;
+    private long position;
+
+    /**
+     * Opens (or creates) the journal that sits next to a partition file.
+     *
+     * @param storageFile the partition file, e.g. "messages_alice.json"
+     */
+    public MessageJournal(String storageFile) throws IOException {
+        this.journalFile = Paths.get(storageFile + ".journal");
+        this.channel = FileChannel.open(journalFile,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.position = channel.size(); // Append after what is there, even without a replay()
+    }
+
+    /**
+     * Reads every intact message in the journal and cuts off a damaged tail.
+     *
+     * @return the journaled messages, oldest first
+     */
+    public synchronized List<Message> replay() throws IOException {
+        List<Message> messages = new ArrayList<>();
+        long validEnd = 0;
+        try (InputStream raw = Files.newInputStream(journalFile);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(raw))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                Message message = readRecord(in, length);
+                if (message == null) {
+                    break;
+                }
+                messages.add(message);
+                validEnd += 4 + length + 4;
+            }
+        }
+        if (channel.size() > validEnd) {
+            channel.truncate(validEnd);
+        }
+        position = validEnd;
+        return messages;
+    }
+
+    /**
+     * Appends a batch of messages and forces them to disk once.
+     */
+    public synchronized void append(List<Message> batch) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(batch.size() * 256);
+        for (Message message : batch) {
+            bytes.write(encode(message));
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        channel.force(false);
+    }
+
+    /**
+     * Empties the journal (after everything in it has been saved to the partition file).
+     */
+    public synchronized void clear() throws IOException {
+        channel.truncate(0);
+        channel.force(false);
+        position = 0;
+    }
+
+    /** @return the journal's size in bytes */
+    public synchronized long size() {
+        return position;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Record layout: int bodyLength, body (UTF fields, int number, long createdAt), int CRC32 of body.
+     */
+    private static byte[] encode(Message message) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(body);
+        out.writeUTF(message.getMessageId());
+        out.writeInt(message.getMessageNumber());
+        out.writeUTF(message.getSender() != null ? message.getSender() : "");
+        out.writeUTF(message.getRecipient());
+        out.writeUTF(message.getContent());
+        out.writeUTF(message.getContentHash());
+        out.writeUTF(message.getStatus());
+        out.writeLong(message.getCreatedAt());
+        byte[] bodyBytes = body.toByteArray();
+
+        CRC32 crc = new CRC32();
+        crc.update(bodyBytes, 0, bodyBytes.length);
+
+        ByteBuffer record = ByteBuffer.allocate(4 + bodyBytes.length + 4);
+        record.putInt(bodyBytes.length);
+        record.put(bodyBytes);
+        record.putInt((int) crc.getValue());
+        return record.array();
+    }
+
+    /**
+     * Reads the body and checksum of one record.
+     *
+     * @return the message, or null for a damaged or incomplete record
+     */
+    private static Message readRecord(DataInputStream in, int length) throws IOException {
+        if (length <= 0 || length > 1 << 20) {
+            return null;
+        }
+        try {
+            byte[] body = new byte[length];
+            in.readFully(body);
+            int storedCrc = in.readInt();
+
+            CRC32 crc = new CRC32();
+            crc.update(body, 0, body.length);
+            if ((int) crc.getValue() != storedCrc) {
+                return null;
+            }
+
+            DataInputStream fields = new DataInputStream(new ByteArrayInputStream(body));
+            String messageId = fields.readUTF();
+            int messageNumber = fields.readInt();
+            String sender = fields.readUTF();
+            String recipient = fields.readUTF();
+            String content = fields.readUTF();
+            String contentHash = fields.readUTF();
+            String status = fields.readUTF();
+            long createdAt = fields.readLong();
+            return new Message(messageId, messageNumber, sender.isEmpty() ? null : sender,
+                    recipient, content, contentHash, status, createdAt);
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+}
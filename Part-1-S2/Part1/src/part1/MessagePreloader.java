@@ -0,0 +1,63 @@
+package part1;
+
+import java.lang.management.ManagementFactory;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The MessagePreloader loads a user's messages in the background.
+ * - Loading starts as soon as the login is accepted, so the JSON file is being
+ *   parsed while the welcome dialog is still on screen.
+ * - ChatMenu picks up the same load instead of parsing the file again.
+ * - The time from login to a usable menu is measured and reported.
+ */
+public final class MessagePreloader {
+    private static String pendingOwner;
+    private static CompletableFuture<MessageStorage> pending;
+    private static long loginAcceptedNanos;
+
+    // One background thread is enough: there is only ever one load in flight
+    private static final ExecutorService LOADER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "message-loader");
+        thread.setDaemon(true); // Don't keep the app alive on exit
+        return thread;
+    });
+
+    private MessagePreloader() {
+    }
+
+    /**
+     * Starts loading a user's messages. Called once the login is accepted.
+     */
+    public static synchronized void start(String owner) {
+        loginAcceptedNanos = System.nanoTime();
+        pendingOwner = owner;
+        pending = CompletableFuture.supplyAsync(() -> {
+            MessageStorage.migrateSharedFile(owner); // Only does anything on the first login after upgrading
+            return new MessageStorage(owner);
+        }, LOADER);
+    }
+
+    /**
+     * Returns the load for this user, starting one if none is running
+     * (e.g. when ChatMenu is opened without going through Login).
+     */
+    public static synchronized CompletableFuture<MessageStorage> get(String owner) {
+        if (pending == null || !Objects.equals(pendingOwner, owner)) {
+            start(owner);
+        }
+        return pending;
+    }
+
+    /**
+     * Prints how long it took from login (and from JVM start) until the menu was usable.
+     */
+    public static synchronized void reportInteractive(MessageStorage storage) {
+        long sinceLogin = (System.nanoTime() - loginAcceptedNanos) / 1_000_000;
+        long sinceStart = ManagementFactory.getRuntimeMXBean().getUptime();
+        System.out.println("Time to interactive: " + sinceLogin + " ms after login, "
+                + sinceStart + " ms after start (" + storage.getMessages().size() + " messages loaded)");
+    }
+}
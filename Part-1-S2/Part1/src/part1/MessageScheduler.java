@@ -0,0 +1,288 @@
+package part1;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+/**
+ * The MessageScheduler sends scheduled messages when they fall due.
+ * - Pending messages wait in a HierarchicalTimingWheel (O(1) schedule and cancel).
+ * - A background thread advances the wheel every tick and hands due messages
+ *   to the storage's executor, which marks them "Sent" and saves.
+ * - The schedule is kept next to the partition file (e.g. messages_alice.json.schedule)
+ *   and reloaded on startup; anything that fell due while the app was closed
+ *   is sent on the first tick. Messages saved as "Scheduled" but missing from
+ *   the schedule file (e.g. after a crash) are picked up from their deliverAt.
+ * - Follows the storage's ADDED/REMOVED events, so messages swapped in or out
+ *   behind its back (e.g. by restoring a snapshot) are scheduled or dropped.
+ */
+public class MessageScheduler implements AutoCloseable {
+    private static final long TICK_MILLIS = Long.getLong("quickchat.schedule.tickMillis", 100L);
+    private static final long SAVE_INTERVAL_MILLIS = 1000;   // Schedule file is rewritten at most this often
+
+    private final MessageStorage storage;
+    private final Executor storageExecutor;    // Everything that touches the storage runs here (e.g. the EDT)
+    private final Path scheduleFile;
+    private final HierarchicalTimingWheel<Message> wheel;
+    private final Map<Message, HierarchicalTimingWheel.Entry<Message>> pending = new IdentityHashMap<>();
+    private final ScheduledExecutorService ticker;
+    private final MessageEventBus.Subscription subscription;
+    private boolean dirty;                     // Schedule changed since the file was written
+    private long lastSaved;
+
+    /**
+     * Loads the saved schedule and starts the ticker.
+     * Call from the thread (or executor) that owns the storage.
+     *
+     * @param storage         the partition whose messages are scheduled
+     * @param storageExecutor runs deliveries on the storage's thread (e.g. EventQueue::invokeLater)
+     */
+    public MessageScheduler(MessageStorage storage, Executor storageExecutor) {
+        this.storage = storage;
+        this.storageExecutor = storageExecutor;
+        this.scheduleFile = Paths.get(storage.getStorageFile() + ".schedule");
+        this.wheel = new HierarchicalTimingWheel<>(TICK_MILLIS, 256, 4, System.currentTimeMillis());
+        recover();
+
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "message-scheduler");
+            thread.setDaemon(true); // Don't keep the app alive on exit
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::tick, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+        subscription = MessageEventBus.getInstance().subscribe("message-scheduler",
+                events -> storageExecutor.execute(() -> applyEvents(events)));
+    }
+
+    /**
+     * Schedules a new message: adds it to the storage as "Scheduled" and saves.
+     *
+     * @return false if the storage rejected it as a duplicate
+     */
+    public boolean schedule(Message message, long deliverAt) {
+        message.scheduleFor(deliverAt);
+        if (!storage.addMessage(message)) {
+            return false;
+        }
+        storage.saveMessages();
+        synchronized (this) {
+            pending.put(message, wheel.add(message, deliverAt));
+            dirty = true;
+        }
+        return true;
+    }
+
+    /**
+     * Cancels a scheduled message; it stays in storage as "Stored".
+     *
+     * @return true if the message was still waiting
+     */
+    public boolean cancel(Message message) {
+        synchronized (this) {
+            HierarchicalTimingWheel.Entry<Message> entry = pending.remove(message);
+            if (entry == null || !wheel.cancel(entry)) {
+                return false;
+            }
+            dirty = true;
+        }
+        message.setStatus("Stored");
+        storage.saveMessages();
+        return true;
+    }
+
+    /**
+     * Drops pending messages that left the storage and picks up scheduled ones
+     * that arrived without schedule() (runs on the storage's executor).
+     */
+    private void applyEvents(List<MessageEvent> events) {
+        String owner = storage.getOwner();
+        for (MessageEvent event : events) {
+            if (!Objects.equals(owner, event.getOwner())) {
+                continue;
+            }
+            Message message = event.getMessage();
+            synchronized (this) {
+                if (event.getType() == MessageEvent.Type.REMOVED) {
+                    HierarchicalTimingWheel.Entry<Message> entry = pending.remove(message);
+                    if (entry != null) {
+                        wheel.cancel(entry);
+                        dirty = true;
+                    }
+                } else if (event.getType() == MessageEvent.Type.ADDED && message.isScheduled()
+                        && !pending.containsKey(message)) {
+                    pending.put(message, wheel.add(message, message.getDeliverAt()));
+                    dirty = true;
+                }
+            }
+        }
+    }
+
+    /** @return number of messages waiting to be sent */
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Runs every tick on the scheduler thread.
+     */
+    private void tick() {
+        try {
+            List<Message> due = new ArrayList<>();
+            synchronized (this) {
+                wheel.advanceTo(System.currentTimeMillis(), due::add);
+                for (Message message : due) {
+                    pending.remove(message);
+                }
+                if (!due.isEmpty()) {
+                    dirty = true;
+                }
+            }
+            if (!due.isEmpty()) {
+                storageExecutor.execute(() -> deliver(due));
+            }
+            if (System.currentTimeMillis() - lastSaved >= SAVE_INTERVAL_MILLIS) {
+                saveSchedule();
+            }
+        } catch (RuntimeException e) {
+            // Keep ticking; an exception would stop the scheduled task for good
+            System.out.println("Error in message scheduler: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Marks due messages as sent and saves (runs on the storage's executor).
+     */
+    private void deliver(List<Message> due) {
+        boolean changed = false;
+        for (Message message : due) {
+            if (message.isScheduled()) {
+                message.setStatus("Sent");
+                changed = true;
+            }
+        }
+        if (changed) {
+            storage.saveMessages();
+        }
+    }
+
+    /**
+     * Writes the pending schedule if it changed (temporary file, then atomic move).
+     */
+    @SuppressWarnings("unchecked")
+    private void saveSchedule() {
+        JSONArray entries = new JSONArray();
+        synchronized (this) {
+            if (!dirty) {
+                return;
+            }
+            for (HierarchicalTimingWheel.Entry<Message> entry : pending.values()) {
+                entries.add(toJSON(entry.getValue(), entry.getDeadlineMillis()));
+            }
+            dirty = false;
+            lastSaved = System.currentTimeMillis();
+        }
+
+        Path temp = Paths.get(scheduleFile + ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                writer.write("{\"version\":1,\"pending\":");
+                entries.writeJSONString(writer);
+                writer.write("}");
+            }
+            try {
+                Files.move(temp, scheduleFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, scheduleFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            System.out.println("Error saving message schedule: " + e.getMessage());
+            synchronized (this) {
+                dirty = true; // Try again next time
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static JSONObject toJSON(Message message, long deliverAt) {
+        JSONObject entry = new JSONObject();
+        entry.put("messageId", message.getMessageId());
+        entry.put("messageNumber", message.getMessageNumber());
+        entry.put("deliverAt", deliverAt);
+        return entry;
+    }
+
+    /**
+     * Rebuilds the wheel from the schedule file and the storage's "Scheduled" messages.
+     */
+    private void recover() {
+        Map<Integer, Message> scheduled = new HashMap<>();
+        for (Message message : storage.getMessages()) {
+            if (message.isScheduled()) {
+                scheduled.put(message.getMessageNumber(), message);
+            }
+        }
+        if (scheduled.isEmpty()) {
+            return;
+        }
+
+        // Times from the schedule file win; otherwise use the deliverAt saved with the message
+        try (Reader reader = Files.newBufferedReader(scheduleFile, StandardCharsets.UTF_8)) {
+            JSONObject root = (JSONObject) new JSONParser().parse(reader);
+            for (Object item : (JSONArray) root.get("pending")) {
+                JSONObject entry = (JSONObject) item;
+                Message message = scheduled.get(((Long) entry.get("messageNumber")).intValue());
+                if (message != null && message.getMessageId().equals(entry.get("messageId"))) {
+                    message.setDeliverAt((Long) entry.get("deliverAt"));
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // No schedule saved yet
+        } catch (IOException | ParseException | ClassCastException | NullPointerException e) {
+            System.out.println("Could not read message schedule, using saved delivery times: " + e.getMessage());
+        }
+
+        synchronized (this) {
+            for (Message message : scheduled.values()) {
+                pending.put(message, wheel.add(message, message.getDeliverAt()));
+            }
+            dirty = true;
+        }
+        System.out.println("Restored " + scheduled.size() + " scheduled messages from " + storage.getStorageFile());
+    }
+
+    /**
+     * Stops the ticker and writes the schedule one last time.
+     */
+    @Override
+    public void close() {
+        subscription.close();
+        ticker.shutdown();
+        try {
+            ticker.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        saveSchedule();
+    }
+}
@@ -1,10 +1,35 @@
 package part1;
 
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.URLEncoder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
@@ -12,28 +37,408 @@ import org.json.simple.parser.ParseException;
 
 /**
  * The MessageStorage class manages storing and retrieving messages.
- * - Keeps all messages in memory (in a List).
+ * - Messages are partitioned by sender: each user has their own JSON file
+ *   and their own in-memory list, so logging in only loads that user's messages.
  * - Saves messages to a JSON file so they persist between runs.
  * - Loads messages back into memory when the app starts.
+ * - Keeps a hash index from message ID to message, so getMessageById() doesn't scan.
+ * - Snapshots hard-link the saved file, and can be restored later (see createSnapshot()).
+ * - The shared messages.json from before partitioning is split up once, at the
+ *   first login after upgrading (see migrateSharedFile()).
  */
 public class MessageStorage {
-    private static final String STORAGE_FILE = "messages.json"; // File where messages are stored
-    private List<Message> messages; // List of all messages currently in memory
+    private static final String STORAGE_FILE = "messages.json"; // Shared file for messages without a sender
+    private static final String MIGRATED_SUFFIX = ".migrated";   // messages.json is renamed once split up
+    private static final String PARTITION_PREFIX = "messages_";  // Per-user files: messages_<user>.json
+    private static final int FORMAT_VERSION = 2;                 // 2 = bodies stored once, keyed by hash
+    private static final Pattern SNAPSHOT_ID = Pattern.compile("\\d{8}-\\d{6}-\\d{3}_*"); // As made by createSnapshot()
+
+    private final String owner;         // User whose partition this is (null = shared partition)
+    private final String storageFile;   // File backing this partition
+    private List<Message> messages;     // Messages in this partition currently in memory
+    private final ConversationIndex conversations = new ConversationIndex(); // Per-recipient timelines
+    private final Map<String, Message> messagesById = new HashMap<>(); // Message ID -> message
+    private long lookups;                      // getMessageById() calls
+    private long lookupHits;                   // ...that found a message
+    private int highestNumber;                 // Highest message number held (valid when highestKnown)
+    private boolean highestKnown = true;       // False after the highest message is removed
+    private final ContentStore contentStore = new ContentStore(); // Each distinct body stored once
+    private DuplicateFilter duplicateFilter;   // Optional dedup stage (null = disabled)
+    private boolean compressionEnabled = Boolean.getBoolean("quickchat.storage.compress"); // Deflate on save
+    private MerkleTree merkleTree;             // Hash tree over messages in number order (null = rebuild)
+    private List<Message> merkleOrder;         // Messages in the same order as the tree's leaves
+    private long saveGeneration;               // Numbers each save in the order its state was taken
+    private final Object fileLock = new Object(); // Guards moving a new partition file into place
+    private long writtenGeneration;            // Generation of the file on disk (guarded by fileLock)
 
     /**
-     * Constructor: starts with an empty list and tries to load existing messages from disk.
+     * Constructor: opens the shared partition (messages with no sender).
      */
     public MessageStorage() {
+        this(null);
+    }
+
+    /**
+     * Constructor: opens one user's partition and loads only that user's messages.
+     *
+     * @param owner the logged-in user, or null for the shared partition
+     */
+    public MessageStorage(String owner) {
+        this(owner, Paths.get(""));
+    }
+
+    /**
+     * Constructor: opens a partition kept in the given directory (tests use a temporary one).
+     *
+     * @param owner     the logged-in user, or null for the shared partition
+     * @param directory where the partition files live
+     */
+    MessageStorage(String owner, Path directory) {
+        this.owner = owner;
+        this.storageFile = directory.resolve(partitionFile(owner)).toString();
         this.messages = new ArrayList<>();
-        loadMessages(); // Load messages from JSON file if available
+        // Load messages from JSON file if available
+        loadMessages();
+
+        // Dedup is off unless a window is configured, e.g. -Dquickchat.dedup.windowMillis=60000
+        long dedupWindow = Long.getLong("quickchat.dedup.windowMillis", 0L);
+        if (dedupWindow > 0) {
+            setDuplicateWindow(dedupWindow);
+        }
+    }
+
+    /**
+     * One-time migration from before messages were partitioned by sender.
+     * Splits the shared messages.json up: messages with a sender go to that
+     * sender's partition, and the legacy ones with no sender go to the user
+     * logging in. The shared file is then renamed to messages.json.migrated,
+     * so later logins (and other users) don't get copies of it.
+     * Called once per login (see MessagePreloader), not by the constructor.
+     *
+     * @param owner the user logging in
+     * @return number of messages moved (0 if there was nothing to migrate), or -1 if it failed
+     */
+    public static int migrateSharedFile(String owner) {
+        return migrateSharedFile(owner, Paths.get(""));
+    }
+
+    /**
+     * Migrates the shared file kept in the given directory (tests use a temporary one).
+     * If a partition can't be saved, the shared file stays and the next login
+     * tries again; messages already moved are recognised by ID and not copied twice.
+     */
+    static int migrateSharedFile(String owner, Path directory) {
+        Path sharedFile = directory.resolve(STORAGE_FILE);
+        if (owner == null || !Files.exists(sharedFile)) {
+            return 0;
+        }
+        MessageStorage shared = new MessageStorage(null, directory);
+        Map<String, List<Message>> bySender = new LinkedHashMap<>();
+        for (Message message : shared.getMessages()) {
+            String sender = message.getSender() != null ? message.getSender() : owner;
+            List<Message> sent = bySender.get(sender);
+            if (sent == null) {
+                sent = new ArrayList<>();
+                bySender.put(sender, sent);
+            }
+            sent.add(message);
+        }
+
+        int moved = 0;
+        for (Map.Entry<String, List<Message>> entry : bySender.entrySet()) {
+            MessageStorage partition = new MessageStorage(entry.getKey(), directory);
+            int adopted = partition.adopt(entry.getValue());
+            if (adopted > 0 && !partition.saveMessages()) {
+                return -1;
+            }
+            moved += adopted;
+        }
+        try {
+            Files.move(sharedFile, directory.resolve(STORAGE_FILE + MIGRATED_SUFFIX),
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            System.out.println("Error renaming " + STORAGE_FILE + " after migrating it: " + e.getMessage());
+            return -1;
+        }
+        System.out.println("Moved " + moved + " messages from " + STORAGE_FILE + " into " + bySender.size()
+                + " partitions");
+        return moved;
+    }
+
+    /**
+     * Adds migrated messages that this partition doesn't hold yet (no events, no dedup check).
+     * A partition that already has messages gives the newcomers numbers after its own,
+     * in their original order, so numbers stay unique.
+     *
+     * @return how many were added
+     */
+    private int adopt(List<Message> legacy) {
+        List<Message> ordered = new ArrayList<>(legacy);
+        ordered.sort((a, b) -> Integer.compare(a.getMessageNumber(), b.getMessageNumber()));
+        boolean renumber = !messages.isEmpty();
+        int next = getNextMessageNumber();
+        int adopted = 0;
+        for (Message message : ordered) {
+            if (messagesById.containsKey(message.getMessageId())) {
+                continue; // Moved by an earlier attempt
+            }
+            if (renumber) {
+                Message renumbered = new Message(message.getMessageId(), next++, message.getSender(),
+                        message.getRecipient(), message.getContent(), message.getContentHash(),
+                        message.getStatus(), message.getCreatedAt());
+                renumbered.setDeliverAt(message.getDeliverAt());
+                message = renumbered;
+            }
+            index(message);
+            adopted++;
+        }
+        merkleTree = null;
+        return adopted;
+    }
+
+    /**
+     * Works out which file holds a user's partition.
+     * The username is URL-encoded so any characters are safe in a file name.
+     *
+     * @param owner the user, or null for the shared partition
+     * @return the partition's file name
+     */
+    public static String partitionFile(String owner) {
+        if (owner == null) {
+            return STORAGE_FILE;
+        }
+        try {
+            return PARTITION_PREFIX + URLEncoder.encode(owner, "UTF-8") + ".json";
+        } catch (UnsupportedEncodingException e) {
+            // UTF-8 is always supported
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** @return the file backing this partition */
+    public String getStorageFile() {
+        return storageFile;
+    }
+
+    /**
+     * Claims this partition for one writer, with a lock on a ".lock" file next to the partition file.
+     * The ChatMenu holds the claim on its user's partition while it is open, and
+     * the DeliveryServer only writes partitions it could claim, so two processes
+     * never save over each other's changes.
+     *
+     * @return the lock (closing its channel gives the partition up), or null if
+     *         another process, or another claim in this one, already holds it
+     */
+    public FileLock claim() throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(storageFile + ".lock"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            FileLock lock = channel.tryLock();
+            if (lock != null) {
+                return lock;
+            }
+        } catch (OverlappingFileLockException e) {
+            // Claimed elsewhere in this process
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        channel.close();
+        return null;
+    }
+
+    /** @return the user who owns this partition, or null for the shared partition */
+    public String getOwner() {
+        return owner;
+    }
+
+    /**
+     * Turns on duplicate rejection: the same content to the same recipient
+     * within the window is not added again. Existing messages are used to
+     * seed the filter (by their creation time).
+     *
+     * @param windowMillis the duplicate window in milliseconds, or 0 to turn dedup off
+     */
+    public void setDuplicateWindow(long windowMillis) {
+        if (windowMillis <= 0) {
+            duplicateFilter = null;
+            return;
+        }
+        duplicateFilter = new DuplicateFilter(windowMillis);
+        for (Message message : messages) {
+            duplicateFilter.remember(message, message.getCreatedAt());
+        }
     }
 
     /**
-     * Adds a new message into the in-memory list.
+     * Turns compression of the saved file on or off. Takes effect on the next save;
+     * loading handles either format automatically.
+     */
+    public void setCompressionEnabled(boolean compressionEnabled) {
+        this.compressionEnabled = compressionEnabled;
+    }
+
+    /** @return true if saves write the compressed format */
+    public boolean isCompressionEnabled() {
+        return compressionEnabled;
+    }
+
+    /**
+     * Adds a new message into the in-memory list and publishes an ADDED event.
      * (Does not save to disk until saveMessages() is called).
+     *
+     * @return false if the dedup stage is on and rejected the message as a duplicate
      */
-    public void addMessage(Message message) {
+    public boolean addMessage(Message message) {
+        if (duplicateFilter != null && duplicateFilter.isDuplicate(message, System.currentTimeMillis())) {
+            return false;
+        }
+        // IDs are random, so make sure a new message's ID isn't already in use
+        while (messagesById.containsKey(message.getMessageId())) {
+            message.regenerateMessageId();
+        }
         messages.add(message);
+        messagesById.put(message.getMessageId(), message);
+        highestNumber = Math.max(highestNumber, message.getMessageNumber());
+        conversations.add(message);
+        shareContent(message);
+
+        // Normal case: the new message has the highest number, so the tree just grows by one leaf
+        if (merkleTree != null) {
+            int size = merkleOrder.size();
+            if (size == 0 || merkleOrder.get(size - 1).getMessageNumber() < message.getMessageNumber()) {
+                merkleTree.append(message);
+                merkleOrder.add(message);
+            } else {
+                merkleTree = null; // Out of order: rebuild next time it's needed
+            }
+        }
+        MessageEventBus.getInstance().publishAdded(owner, message);
+        return true;
+    }
+
+    /**
+     * Removes a message from the in-memory list.
+     * Its body is dropped once no other message uses it.
+     * (Does not save to disk until saveMessages() is called).
+     *
+     * @return true if the message was in this storage
+     */
+    public boolean removeMessage(Message message) {
+        if (!messages.remove(message)) {
+            return false;
+        }
+        messagesById.remove(message.getMessageId(), message);
+        forgetHighest(message);
+        conversations.remove(message);
+        contentStore.release(message.getContentHash(), message.getContent());
+        merkleTree = null; // Leaves shift, so rebuild next time it's needed
+        MessageEventBus.getInstance().publishRemoved(owner, message);
+        return true;
+    }
+
+    /**
+     * Takes back a message whose save failed: removes it like removeMessage(),
+     * and lets the dedup stage accept the same content again, so a retry isn't
+     * rejected as a duplicate of a message that was never saved.
+     *
+     * @return true if the message was in this storage
+     */
+    boolean rollBack(Message message) {
+        if (!removeMessage(message)) {
+            return false;
+        }
+        if (duplicateFilter != null) {
+            duplicateFilter.forget(message);
+        }
+        return true;
+    }
+
+    /**
+     * Removes many messages at once (used by the MessageCompactor).
+     * One pass over the list and the timelines, instead of a search per message.
+     * A REMOVED event is published for each message actually removed.
+     * (Does not save to disk until saveMessages() is called).
+     *
+     * @return how many of the messages were in this storage
+     */
+    public int removeMessages(Collection<Message> toRemove) {
+        Set<Message> doomed = new HashSet<>(toRemove); // Message uses identity equality
+        List<Message> removed = new ArrayList<>();
+        messages.removeIf(message -> doomed.contains(message) && removed.add(message));
+        if (removed.isEmpty()) {
+            return 0;
+        }
+        conversations.removeAll(doomed);
+        merkleTree = null;
+        for (Message message : removed) {
+            messagesById.remove(message.getMessageId(), message);
+            forgetHighest(message);
+            contentStore.release(message.getContentHash(), message.getContent());
+            MessageEventBus.getInstance().publishRemoved(owner, message);
+        }
+        return removed.size();
+    }
+
+    /**
+     * Finds a message by its ID with a hash lookup instead of scanning the list.
+     *
+     * @return the message, or null if no message in this partition has that ID
+     */
+    public Message getMessageById(String messageId) {
+        lookups++;
+        Message message = messageId == null ? null : messagesById.get(messageId.trim());
+        if (message != null) {
+            lookupHits++;
+        }
+        return message;
+    }
+
+    /** @return how many getMessageById() calls found a message, as a fraction of all calls (0 if none) */
+    public double getLookupHitRate() {
+        return lookups == 0 ? 0 : (double) lookupHits / lookups;
+    }
+
+    /** @return number of getMessageById() calls */
+    public long getLookupCount() {
+        return lookups;
+    }
+
+    /**
+     * Returns the Merkle tree over this partition's content hashes, in message-number order.
+     * The tree is kept up to date as messages are appended and only rebuilt
+     * after a removal or an out-of-order add.
+     */
+    public MerkleTree getMerkleTree() {
+        if (merkleTree == null) {
+            merkleOrder = new ArrayList<>(messages);
+            merkleOrder.sort((a, b) -> Integer.compare(a.getMessageNumber(), b.getMessageNumber()));
+            merkleTree = MerkleTree.build(merkleOrder);
+        }
+        return merkleTree;
+    }
+
+    /**
+     * Compares this partition with another store's tree and returns only the
+     * messages that differ here (the delta to ship to the other side).
+     *
+     * @param other the other store's Merkle tree
+     * @return messages from this storage in the differing leaf ranges
+     */
+    public List<Message> getDifferingMessages(MerkleTree other) {
+        List<Message> delta = new ArrayList<>();
+        MerkleTree tree = getMerkleTree();
+        for (int[] range : tree.diff(other)) {
+            for (int i = range[0]; i < range[1] && i < merkleOrder.size(); i++) {
+                delta.add(merkleOrder.get(i));
+            }
+        }
+        return delta;
+    }
+
+    /** @return the number of distinct message bodies held in this partition */
+    public int getDistinctContentCount() {
+        return contentStore.size();
     }
 
     /**
@@ -45,42 +450,295 @@ public class MessageStorage {
 
     /**
      * Saves all current messages to the JSON file.
-     * Converts each Message into a JSON object and writes them into an array.
+     * Message bodies are written once each (keyed by content hash) and every
+     * message record refers to its body by hash:
+     * {"version":2,"contents":{hash:body,...},"messages":[{...},...]}
+     * The file is written to a temporary file first and then moved into place,
+     * so a crash mid-save never leaves a half-written file behind.
+     * If compression is on, the JSON is deflated (see MessageCompression).
      *
      * @return true if saved successfully, false otherwise
      */
-    @SuppressWarnings("unchecked")
     public boolean saveMessages() {
-        try {
-            JSONArray jsonMessages = new JSONArray();
+        // Stream each message record straight to the file
+        return writePartition(Paths.get(storageFile + ".tmp"), ++saveGeneration, compressionEnabled, this::writeJSON);
+    }
 
-            // Convert each message into a JSON object
-            for (Message message : messages) {
-                JSONObject jsonMessage = new JSONObject();
-                jsonMessage.put("messageId", message.getMessageId());
-                jsonMessage.put("messageNumber", message.getMessageNumber());
-                jsonMessage.put("recipient", message.getRecipient());
-                jsonMessage.put("content", message.getContent());
-                jsonMessage.put("contentHash", message.getContentHash());
-                jsonMessage.put("status", message.getStatus());
+    /**
+     * Copies the partition as it would be saved now, for writing later with
+     * writeSave() on another thread. Only this step touches the messages, so
+     * it runs on the storage's thread; turning the copy into text and writing
+     * the file can then happen elsewhere.
+     */
+    PendingSave prepareSave() {
+        List<JSONObject> records = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            records.add(toJSON(message, !contentStore.isShared(message.getContentHash(), message.getContent())));
+        }
+        return new PendingSave(contentStore.copyContents(), records, ++saveGeneration, compressionEnabled);
+    }
 
-                jsonMessages.add(jsonMessage);
+    /**
+     * Writes a save taken by prepareSave(). Safe to call from any thread.
+     * If a newer save has already reached the file, this one is dropped.
+     *
+     * @return true if saved successfully (or superseded), false otherwise
+     */
+    boolean writeSave(PendingSave save) {
+        return writePartition(Paths.get(storageFile + ".pending.tmp"), save.generation, save.compressed, writer -> {
+            writer.write("{\"version\":" + FORMAT_VERSION + ",\"contents\":");
+            ContentStore.writeJSON(save.contents, writer);
+            writer.write(",\"messages\":[");
+            boolean first = true;
+            for (JSONObject record : save.records) {
+                if (!first) {
+                    writer.write(',');
+                }
+                first = false;
+                record.writeJSONString(writer);
             }
+            writer.write("]}");
+        });
+    }
 
-            // Write all messages to the file
-            try (FileWriter file = new FileWriter(STORAGE_FILE)) {
-                file.write(jsonMessages.toJSONString());
-                file.flush();
-                return true;
+    /**
+     * A copy of the partition taken on the storage's thread.
+     */
+    static final class PendingSave {
+        private final Map<String, String> contents;  // Body hash -> body
+        private final List<JSONObject> records;      // One per message, in order
+        private final long generation;
+        private final boolean compressed;
+
+        private PendingSave(Map<String, String> contents, List<JSONObject> records, long generation,
+                boolean compressed) {
+            this.contents = contents;
+            this.records = records;
+            this.generation = generation;
+            this.compressed = compressed;
+        }
+    }
+
+    /**
+     * Writes the partition to a temporary file and moves it into place,
+     * unless a newer save got there first.
+     */
+    private boolean writePartition(Path temp, long generation, boolean compress, JSONBody body) {
+        Path target = Paths.get(storageFile);
+        try {
+            try (Writer writer = MessageCompression.openWriter(temp, compress)) {
+                body.writeTo(writer);
             }
+            synchronized (fileLock) {
+                if (generation < writtenGeneration) {
+                    Files.delete(temp); // Older than the file on disk
+                    return true;
+                }
+                moveIntoPlace(temp, target);
+                writtenGeneration = generation;
+            }
+            return true;
         } catch (IOException e) {
             System.out.println("Error saving messages: " + e.getMessage());
             return false;
         }
     }
 
+    /** Writes the partition's JSON to the temporary file. */
+    private interface JSONBody {
+        void writeTo(Writer writer) throws IOException;
+    }
+
+    /** Writes the partition's JSON straight from memory (storage thread only). */
+    private void writeJSON(Writer writer) throws IOException {
+        writer.write("{\"version\":" + FORMAT_VERSION + ",\"contents\":");
+        contentStore.writeJSON(writer);
+        writer.write(",\"messages\":[");
+        boolean first = true;
+        for (Message message : messages) {
+            if (!first) {
+                writer.write(',');
+            }
+            first = false;
+            toJSON(message, !contentStore.isShared(message.getContentHash(), message.getContent()))
+                    .writeJSONString(writer);
+        }
+        writer.write("]}");
+    }
+
+    /**
+     * Converts one message into its JSON record.
+     * The body is left out (it is in "contents") unless it couldn't be shared,
+     * e.g. because it doesn't match its hash.
+     */
+    @SuppressWarnings("unchecked")
+    private static JSONObject toJSON(Message message, boolean inlineContent) {
+        JSONObject jsonMessage = new JSONObject();
+        jsonMessage.put("messageId", message.getMessageId());
+        jsonMessage.put("messageNumber", message.getMessageNumber());
+        jsonMessage.put("sender", message.getSender());
+        jsonMessage.put("recipient", message.getRecipient());
+        jsonMessage.put("contentHash", message.getContentHash());
+        if (inlineContent) {
+            jsonMessage.put("content", message.getContent());
+        }
+        jsonMessage.put("status", message.getStatus());
+        jsonMessage.put("createdAt", message.getCreatedAt());
+        if (message.getDeliverAt() > 0) {
+            jsonMessage.put("deliverAt", message.getDeliverAt()); // Only scheduled messages have one
+        }
+        return jsonMessage;
+    }
+
+    /**
+     * Replaces the target file with the temporary file, atomically where the
+     * file system supports it.
+     */
+    private static void moveIntoPlace(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Takes a snapshot of the partition as last saved.
+     * saveMessages() never changes the file in place (it writes a new file and
+     * moves it over the old one), so a hard link to the current file is an
+     * unchanging copy. Linking takes the same time whatever the file's size.
+     * If the file system can't link, the file is copied instead.
+     * Unsaved changes are not included, so save first if there are any.
+     *
+     * @return the snapshot's ID (its creation time), or null if it failed
+     */
+    public String createSnapshot() {
+        Path target = Paths.get(storageFile);
+        if (!Files.exists(target) && !saveMessages()) {
+            return null;
+        }
+        try {
+            Path directory = Files.createDirectories(snapshotDirectory());
+            String snapshotId = new SimpleDateFormat("yyyyMMdd-HHmmss-SSS").format(new Date());
+            Path snapshot = directory.resolve(snapshotId + ".json");
+            while (Files.exists(snapshot)) {
+                snapshotId += "_";  // Two snapshots in the same millisecond
+                snapshot = directory.resolve(snapshotId + ".json");
+            }
+            linkOrCopy(target, snapshot);
+            return snapshotId;
+        } catch (IOException e) {
+            System.out.println("Error creating snapshot: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return the IDs of this partition's snapshots, oldest first
+     */
+    public List<String> listSnapshots() {
+        List<String> snapshotIds = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(snapshotDirectory(), "*.json")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                snapshotIds.add(name.substring(0, name.length() - ".json".length()));
+            }
+        } catch (NoSuchFileException e) {
+            // No snapshots yet
+        } catch (IOException e) {
+            System.out.println("Error listing snapshots: " + e.getMessage());
+        }
+        Collections.sort(snapshotIds);
+        return snapshotIds;
+    }
+
+    /**
+     * Puts a snapshot back in place of the partition file and reloads it.
+     * Unsaved changes in memory are lost. The snapshot itself is kept.
+     * A REMOVED event is published for each message that was in memory and an
+     * ADDED event for each restored one, so listeners (e.g. the live count and
+     * the MessageScheduler) follow the swap.
+     *
+     * @return true if the snapshot was restored and loaded
+     * @throws IllegalArgumentException if the ID isn't one createSnapshot() makes
+     */
+    public boolean restoreSnapshot(String snapshotId) {
+        Path snapshot = snapshotFile(snapshotId);
+        Path target = Paths.get(storageFile);
+        Path temp = Paths.get(storageFile + ".tmp");
+        try {
+            if (!Files.exists(snapshot)) {
+                System.out.println("No such snapshot: " + snapshotId);
+                return false;
+            }
+            Files.deleteIfExists(temp);
+            linkOrCopy(snapshot, temp);
+            synchronized (fileLock) {
+                moveIntoPlace(temp, target);
+                writtenGeneration = ++saveGeneration; // A save taken before the restore mustn't undo it
+            }
+            Files.deleteIfExists(temp); // A move between two links to the same file leaves the source behind
+        } catch (IOException e) {
+            System.out.println("Error restoring snapshot: " + e.getMessage());
+            return false;
+        }
+        List<Message> before = new ArrayList<>(messages);
+        if (!loadMessages()) {
+            return false;
+        }
+        MessageEventBus bus = MessageEventBus.getInstance();
+        for (Message message : before) {
+            bus.publishRemoved(owner, message);
+        }
+        for (Message message : messages) {
+            bus.publishAdded(owner, message);
+        }
+        return true;
+    }
+
+    /**
+     * Deletes a snapshot.
+     *
+     * @return true if it existed
+     * @throws IllegalArgumentException if the ID isn't one createSnapshot() makes
+     */
+    public boolean deleteSnapshot(String snapshotId) {
+        try {
+            return Files.deleteIfExists(snapshotFile(snapshotId));
+        } catch (IOException e) {
+            System.out.println("Error deleting snapshot: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /** Snapshots live next to the partition file, e.g. messages_alice.json.snapshots/ */
+    private Path snapshotDirectory() {
+        return Paths.get(storageFile + ".snapshots");
+    }
+
+    /**
+     * Finds a snapshot's file. Only IDs in the form createSnapshot() makes are
+     * accepted, so an ID like "../x" can't reach outside the snapshot directory.
+     */
+    private Path snapshotFile(String snapshotId) {
+        if (snapshotId == null || !SNAPSHOT_ID.matcher(snapshotId).matches()) {
+            throw new IllegalArgumentException("Not a snapshot ID: " + snapshotId);
+        }
+        return snapshotDirectory().resolve(snapshotId + ".json");
+    }
+
+    private static void linkOrCopy(Path source, Path link) throws IOException {
+        try {
+            Files.createLink(link, source);
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            Files.copy(source, link, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
     /**
      * Loads messages from the JSON file into memory.
+     * Reads both the current format (shared bodies) and the older format
+     * (a plain array with the content inside each message).
      * If the file doesn’t exist yet, starts with an empty list.
      *
      * @return true if loaded successfully, false otherwise
@@ -90,56 +748,123 @@ public class MessageStorage {
             JSONParser jsonParser = new JSONParser();
 
             // Open and parse the JSON file
-            try (FileReader reader = new FileReader(STORAGE_FILE)) {
+            // Plain and compressed files are told apart by their first bytes
+            try (Reader reader = MessageCompression.openReader(Paths.get(storageFile))) {
                 Object obj = jsonParser.parse(reader);
-                JSONArray jsonMessages = (JSONArray) obj;
 
-                // Clear any existing messages before reloading
-                messages.clear();
+                JSONArray jsonMessages;
+                JSONObject contents;
+                if (obj instanceof JSONArray) {
+                    jsonMessages = (JSONArray) obj;   // Older format: bodies inline
+                    contents = new JSONObject();
+                } else {
+                    JSONObject root = (JSONObject) obj;
+                    jsonMessages = (JSONArray) root.get("messages");
+                    contents = (JSONObject) root.get("contents");
+                }
 
-                // Recreate each Message from its JSON data
+                // Recreate each Message from its JSON data.
+                // Parse everything first, so a bad record leaves the current state untouched
+                List<Message> loaded = new ArrayList<>(jsonMessages.size());
                 for (Object jsonMessageObj : jsonMessages) {
                     JSONObject messageObj = (JSONObject) jsonMessageObj;
 
                     int messageNumber = ((Long) messageObj.get("messageNumber")).intValue();
+                    String messageId = (String) messageObj.get("messageId");
+                    String sender = (String) messageObj.get("sender");
                     String recipient = (String) messageObj.get("recipient");
+                    String contentHash = (String) messageObj.get("contentHash");
                     String content = (String) messageObj.get("content");
+                    if (content == null) {
+                        content = (String) contents.get(contentHash); // Look the body up by hash
+                    }
+                    if (content == null) {
+                        content = ""; // Body missing from the file
+                    }
                     String status = (String) messageObj.get("status");
+                    Long createdAt = (Long) messageObj.get("createdAt");
 
-                    // Create a new Message object
-                    Message message = new Message(messageNumber, recipient, content);
-
-                    // Restore the saved status
-                    if (status != null) {
-                        message.setStatus(status);
+                    // Restore the Message with its original ID, hash and status
+                    Message message = new Message(messageId, messageNumber, sender, recipient,
+                            content, contentHash, status, createdAt != null ? createdAt : 0L);
+                    Long deliverAt = (Long) messageObj.get("deliverAt");
+                    if (deliverAt != null) {
+                        message.setDeliverAt(deliverAt);
                     }
 
-                    messages.add(message);
+                    loaded.add(message);
+                }
+
+                // Swap the new messages in
+                messages.clear();
+                messagesById.clear();
+                highestNumber = 0;
+                highestKnown = true;
+                conversations.clear();
+                contentStore.clear();
+                merkleTree = null;
+                for (Message message : loaded) {
+                    index(message);
+                }
+                if (duplicateFilter != null) {
+                    setDuplicateWindow(duplicateFilter.getWindowMillis()); // Forget messages that are gone
                 }
                 return true;
             }
-        } catch (IOException | ParseException e) {
-            // If file not found or unreadable, just start fresh (this happens on first run)
+        } catch (IOException | ParseException | ClassCastException | NullPointerException e) {
+            // If file not found or unreadable, keep what we have (empty on first run)
             System.out.println("Could not load messages (this is normal on first run): " + e.getMessage());
             return false;
         }
     }
 
+    /**
+     * Adds a loaded message to the list and indexes (no events, no dedup check).
+     */
+    private void index(Message message) {
+        messages.add(message);
+        messagesById.putIfAbsent(message.getMessageId(), message); // Older files may repeat an ID
+        highestNumber = Math.max(highestNumber, message.getMessageNumber());
+        conversations.add(message);
+        shareContent(message);
+    }
+
+    /**
+     * Points the message at the shared copy of its body, if it can be shared.
+     */
+    private void shareContent(Message message) {
+        String shared = contentStore.acquire(message.getContentHash(), message.getContent());
+        if (shared != null) {
+            message.shareContent(shared);
+        }
+    }
+
     /**
      * Determines what the next message number should be.
      * If no messages exist, starts at 1. Otherwise, returns the highest number + 1.
+     * The highest number is tracked as messages come and go, so this only
+     * scans the list after the highest-numbered message was removed.
      */
     public int getNextMessageNumber() {
-        if (messages.isEmpty()) {
-            return 1;
-        } else {
-            int maxNumber = 0;
+        if (!highestKnown) {
+            highestNumber = 0;
             for (Message message : messages) {
-                if (message.getMessageNumber() > maxNumber) {
-                    maxNumber = message.getMessageNumber();
+                if (message.getMessageNumber() > highestNumber) {
+                    highestNumber = message.getMessageNumber();
                 }
             }
-            return maxNumber + 1;
+            highestKnown = true;
+        }
+        return highestNumber + 1;
+    }
+
+    /**
+     * Called on removal: if the highest-numbered message went, the next call
+     * to getNextMessageNumber() works the highest number out again.
+     */
+    private void forgetHighest(Message message) {
+        if (message.getMessageNumber() >= highestNumber) {
+            highestKnown = false;
         }
     }
 
@@ -157,15 +882,45 @@ public class MessageStorage {
     }
 
     /**
-     * Finds all messages for a specific recipient (case-insensitive).
+     * Returns one page of the conversation with a recipient, oldest first.
+     * Pass ConversationIndex.NEWEST as the cursor for the latest page, then
+     * the page's next cursor to step back through older messages.
+     *
+     * @param recipient           who the conversation is with (case-insensitive, exact name)
+     * @param beforeMessageNumber only messages numbered below this are returned
+     * @param limit               maximum messages in the page
      */
-    public List<Message> getMessagesByRecipient(String recipient) {
-        List<Message> filteredMessages = new ArrayList<>();
+    public ConversationIndex.Page getConversationPage(String recipient, int beforeMessageNumber, int limit) {
+        return conversations.getPage(recipient, beforeMessageNumber, limit);
+    }
+
+    /**
+     * Groups messages that repeat the same content to the same recipient.
+     * Only groups with more than one message are returned.
+     *
+     * @return map of "recipient|contentHash" to the messages in that group, in first-seen order
+     */
+    public Map<String, List<Message>> getDuplicateGroups() {
+        Map<String, List<Message>> groups = new LinkedHashMap<>();
         for (Message message : messages) {
-            if (message.getRecipient().toLowerCase().contains(recipient.toLowerCase())) {
-                filteredMessages.add(message);
+            String key = message.getRecipient().trim().toLowerCase(Locale.ROOT) + "|" + message.getContentHash();
+            List<Message> group = groups.get(key);
+            if (group == null) {
+                group = new ArrayList<>();
+                groups.put(key, group);
             }
+            group.add(message);
         }
-        return filteredMessages;
+        groups.values().removeIf(group -> group.size() < 2);
+        return groups;
+    }
+
+    /**
+     * Finds all messages for a specific recipient (case-insensitive), oldest first.
+     * Matches the recipient the same way as getConversationPage(): the whole name,
+     * ignoring case and surrounding spaces ("Pa" doesn't find messages to "Paul").
+     */
+    public List<Message> getMessagesByRecipient(String recipient) {
+        return conversations.getTimeline(recipient);
     }
 }
@@ -0,0 +1,159 @@
+package part1;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.spec.InvalidKeySpecException;
+import java.util.Base64;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * The PasswordHasher class turns passwords into salted PBKDF2 hashes.
+ * - Every password gets its own random salt.
+ * - The work factor (iteration count) is stored inside the hash, so it can be
+ *   raised per deployment without breaking hashes that were already stored.
+ *
+ * Stored format: "iterations:base64(salt):base64(hash)"
+ */
+public final class PasswordHasher {
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;   // 128-bit random salt
+    private static final int KEY_BITS = 256;    // Length of the derived hash
+
+    // Default work factor, can be overridden with -Dquickchat.pbkdf2.iterations=N
+    public static final int DEFAULT_ITERATIONS = 120000;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final int iterations; // Work factor used for newly created hashes
+
+    /**
+     * Creates a hasher using the configured (or default) iteration count.
+     */
+    public PasswordHasher() {
+        this(Integer.getInteger("quickchat.pbkdf2.iterations", DEFAULT_ITERATIONS));
+    }
+
+    /**
+     * Creates a hasher with an explicit work factor.
+     *
+     * @param iterations number of PBKDF2 iterations (must be positive)
+     */
+    public PasswordHasher(int iterations) {
+        if (iterations <= 0) {
+            throw new IllegalArgumentException("Iterations must be positive: " + iterations);
+        }
+        this.iterations = iterations;
+    }
+
+    /** @return the work factor used for new hashes */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Hashes a password with a fresh random salt.
+     *
+     * @param password the plaintext password
+     * @return the encoded hash string to store
+     */
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        byte[] hash = derive(password.toCharArray(), salt, iterations);
+
+        Base64.Encoder encoder = Base64.getEncoder();
+        return iterations + ":" + encoder.encodeToString(salt) + ":" + encoder.encodeToString(hash);
+    }
+
+    /**
+     * Checks a password against a stored hash.
+     * Uses the salt and iteration count recorded in the stored hash.
+     *
+     * @param password   the plaintext password to check
+     * @param storedHash a value previously returned by hash()
+     * @return true if the password matches
+     */
+    public boolean verify(String password, String storedHash) {
+        if (password == null || storedHash == null) {
+            return false;
+        }
+
+        String[] parts = storedHash.split(":");
+        if (parts.length != 3) {
+            return false;
+        }
+
+        try {
+            int storedIterations = Integer.parseInt(parts[0]);
+            byte[] salt = Base64.getDecoder().decode(parts[1]);
+            byte[] expected = Base64.getDecoder().decode(parts[2]);
+            byte[] actual = derive(password.toCharArray(), salt, storedIterations);
+            return MessageDigest.isEqual(expected, actual); // Constant-time comparison
+        } catch (IllegalArgumentException e) {
+            // Corrupt stored value (bad number or bad Base64)
+            return false;
+        }
+    }
+
+    /**
+     * Measures how long one hash takes with the current work factor.
+     * Useful for tuning iterations on a particular machine.
+     *
+     * @param rounds how many hashes to time (after one warm-up hash)
+     * @return average milliseconds per hash
+     */
+    public double benchmark(int rounds) {
+        hash("warm-up-password"); // Let the JIT compile the hot path first
+
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            hash("Benchmark#" + i);
+        }
+        long elapsed = System.nanoTime() - start;
+        return elapsed / 1_000_000.0 / Math.max(1, rounds);
+    }
+
+    /**
+     * Picks an iteration count that makes one hash take roughly the target time
+     * on this machine.
+     *
+     * @param targetMillis desired time per hash in milliseconds
+     * @return the suggested iteration count
+     */
+    public static int calibrate(long targetMillis) {
+        PasswordHasher probe = new PasswordHasher(10000);
+        double millisPerHash = probe.benchmark(5);
+        long suggested = Math.round(10000 * (targetMillis / Math.max(0.01, millisPerHash)));
+        return (int) Math.max(10000, Math.min(Integer.MAX_VALUE, suggested));
+    }
+
+    /**
+     * Runs the PBKDF2 key derivation.
+     */
+    private static byte[] derive(char[] password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, KEY_BITS);
+        try {
+            SecretKeyFactory factory = SecretKeyFactory.getInstance(ALGORITHM);
+            return factory.generateSecret(spec).getEncoded();
+        } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
+            // PBKDF2WithHmacSHA256 ships with every JDK 8+, so this should never happen
+            throw new IllegalStateException("PBKDF2 is not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    /**
+     * Prints timing for the current work factor and a suggested value.
+     * Run with: java part1.PasswordHasher [targetMillis]
+     */
+    public static void main(String[] args) {
+        long target = args.length > 0 ? Long.parseLong(args[0]) : 100;
+        PasswordHasher hasher = new PasswordHasher();
+        System.out.println("Iterations: " + hasher.getIterations());
+        System.out.printf("Average hash time: %.2f ms%n", hasher.benchmark(10));
+        System.out.println("Suggested iterations for " + target + " ms: " + calibrate(target));
+    }
+}
@@ -127,8 +127,9 @@ public class Registration extends javax.swing.JFrame {
         JOptionPane.showMessageDialog(Registration.this, registrationMessage, "Registration Status", JOptionPane.INFORMATION_MESSAGE);
         if (registrationMessage.equals("Registration successful!")) {
             UserCredentials.getInstance().setCredentials(username, password); // Use Singleton
+            UserCredentials.getInstance().saveTo(CredentialFile.getDefault()); // So the delivery server knows the user too
             dispose(); // Close registration window
-            System.out.println("Stored username:" + username +" "+ "Stored Pssword:"+ password);
+            System.out.println("Stored username:" + username);
 
         }
     }//GEN-LAST:event_btnSubmitActionPerformed
@@ -0,0 +1,132 @@
+package part1;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The RetentionPolicy decides which messages are old enough to throw away.
+ * - Max age: messages created longer ago than this expire.
+ * - Max per recipient: only the newest N messages to each recipient are kept.
+ * - Dropped statuses: messages with these statuses (e.g. "Discarded") always expire.
+ *
+ * Scheduled messages never expire; they haven't been sent yet.
+ * A limit of 0 turns that rule off.
+ */
+public class RetentionPolicy {
+    private final long maxAgeMillis;         // 0 = keep messages of any age
+    private final int maxPerRecipient;       // 0 = no limit per recipient
+    private final Set<String> droppedStatuses;
+
+    /**
+     * @param maxAgeMillis    messages older than this expire (0 = off)
+     * @param maxPerRecipient newest messages kept per recipient (0 = off)
+     * @param droppedStatuses statuses that always expire
+     */
+    public RetentionPolicy(long maxAgeMillis, int maxPerRecipient, Set<String> droppedStatuses) {
+        if (maxAgeMillis < 0 || maxPerRecipient < 0) {
+            throw new IllegalArgumentException("Retention limits can't be negative");
+        }
+        this.maxAgeMillis = maxAgeMillis;
+        this.maxPerRecipient = maxPerRecipient;
+        this.droppedStatuses = Collections.unmodifiableSet(new LinkedHashSet<>(droppedStatuses));
+    }
+
+    /**
+     * Builds the policy from system properties:
+     * quickchat.retention.maxAgeDays (default 0 = off),
+     * quickchat.retention.maxPerRecipient (default 0 = off),
+     * quickchat.retention.dropStatuses (comma-separated, default "Discarded").
+     */
+    public static RetentionPolicy fromSystemProperties() {
+        long maxAgeDays = Long.getLong("quickchat.retention.maxAgeDays", 0L);
+        int maxPerRecipient = Integer.getInteger("quickchat.retention.maxPerRecipient", 0);
+        Set<String> dropped = new LinkedHashSet<>();
+        for (String status : System.getProperty("quickchat.retention.dropStatuses", "Discarded").split(",")) {
+            if (!status.trim().isEmpty()) {
+                dropped.add(status.trim());
+            }
+        }
+        return new RetentionPolicy(maxAgeDays * 24 * 60 * 60 * 1000, maxPerRecipient, dropped);
+    }
+
+    /** @return true if at least one rule is on */
+    public boolean isEnabled() {
+        return maxAgeMillis > 0 || maxPerRecipient > 0 || !droppedStatuses.isEmpty();
+    }
+
+    public long getMaxAgeMillis() {
+        return maxAgeMillis;
+    }
+
+    public int getMaxPerRecipient() {
+        return maxPerRecipient;
+    }
+
+    public Set<String> getDroppedStatuses() {
+        return droppedStatuses;
+    }
+
+    /**
+     * Checks the rules that only need the message itself (age and status).
+     */
+    public boolean isExpired(Message message, long now) {
+        if (message.isScheduled()) {
+            return false;
+        }
+        if (droppedStatuses.contains(message.getStatus())) {
+            return true;
+        }
+        // Legacy messages have no creation time, so age can't be judged
+        return maxAgeMillis > 0 && message.getCreatedAt() > 0 && now - message.getCreatedAt() > maxAgeMillis;
+    }
+
+    /**
+     * Works out which messages in a snapshot have expired.
+     * Runs off the storage's thread, so it only reads the snapshot.
+     *
+     * @param snapshot a copy of the storage's messages
+     * @param now      the current time in milliseconds
+     * @return the expired messages
+     */
+    public List<Message> selectExpired(List<Message> snapshot, long now) {
+        List<Message> expired = new ArrayList<>();
+        Map<String, List<Message>> kept = maxPerRecipient > 0 ? new HashMap<>() : null;
+        for (Message message : snapshot) {
+            if (isExpired(message, now)) {
+                expired.add(message);
+            } else if (kept != null && !message.isScheduled()) {
+                // Same recipient key as the ConversationIndex ("Dylan" and "dylan" share a thread)
+                String key = message.getRecipient().trim().toLowerCase(Locale.ROOT);
+                List<Message> timeline = kept.get(key);
+                if (timeline == null) {
+                    timeline = new ArrayList<>();
+                    kept.put(key, timeline);
+                }
+                timeline.add(message);
+            }
+        }
+
+        // Over the per-recipient limit: the lowest-numbered (oldest) messages go first
+        if (kept != null) {
+            for (List<Message> timeline : kept.values()) {
+                if (timeline.size() > maxPerRecipient) {
+                    timeline.sort((a, b) -> Integer.compare(a.getMessageNumber(), b.getMessageNumber()));
+                    expired.addAll(timeline.subList(0, timeline.size() - maxPerRecipient));
+                }
+            }
+        }
+        return expired;
+    }
+
+    @Override
+    public String toString() {
+        return "RetentionPolicy[maxAgeMillis=" + maxAgeMillis + ", maxPerRecipient=" + maxPerRecipient
+                + ", droppedStatuses=" + droppedStatuses + "]";
+    }
+}
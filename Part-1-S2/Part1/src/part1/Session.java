@@ -0,0 +1,145 @@
+package part1;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * The Session class holds one logged-in user's state in the session layer.
+ * - Steps (send, poll, report) run one after another, in the order they were
+ *   submitted, but a session owns no thread: each step is queued on the
+ *   shared session workers only when the one before it has finished.
+ * - A send saves the message first and only notifies the recipient once the
+ *   save has succeeded, so nobody is told about a message that was then lost.
+ * - A report forks its independent counts in a SessionScope; if one fails,
+ *   the other is cancelled and the report fails.
+ * - Messages for this user are left in an inbox until the user polls.
+ */
+public final class Session {
+    private final String user;
+    private final SessionManager manager;
+    private final Executor executor;
+    private final MessageStorage storage;             // Null when the manager doesn't persist
+    private final Queue<Message> inbox = new ConcurrentLinkedQueue<>();
+    private CompletableFuture<?> lastStep = CompletableFuture.completedFuture(null);
+    private int nextMessageNumber;
+    private volatile boolean closed;
+
+    Session(String user, SessionManager manager, Executor executor, MessageStorage storage) {
+        this.user = user;
+        this.manager = manager;
+        this.executor = executor;
+        this.storage = storage;
+        this.nextMessageNumber = storage == null ? 1 : storage.getNextMessageNumber();
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Queues a step to run after every step submitted before it.
+     */
+    private synchronized <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> step) {
+        if (closed) {
+            CompletableFuture<T> refused = new CompletableFuture<>();
+            refused.completeExceptionally(new IllegalStateException("Session for " + user + " is closed"));
+            return refused;
+        }
+        // handle(): a failed step must not stop later steps from running
+        CompletableFuture<T> next = lastStep.handle((value, error) -> null)
+                .thenComposeAsync(ignored -> step.get(), executor);
+        lastStep = next;
+        return next;
+    }
+
+    /**
+     * Sends a message: saves it to this user's partition, then notifies the
+     * recipient's session (if the recipient is online).
+     *
+     * @return the sent message, or a failed future if saving failed (the recipient is not notified)
+     */
+    public CompletableFuture<Message> send(String recipient, String content) {
+        return submit(() -> {
+            Message message = new Message(nextMessageNumber, user, recipient, content);
+            message.setStatus("Sent");
+
+            persist(message); // Throws (failing the step) before anyone is notified
+            nextMessageNumber++;
+            manager.deliver(message);
+            return CompletableFuture.completedFuture(message);
+        });
+    }
+
+    private void persist(Message message) {
+        if (storage == null) {
+            return;
+        }
+        if (!storage.addMessage(message)) {
+            throw new IllegalStateException("Duplicate message rejected");
+        }
+        if (!storage.saveMessages()) {
+            storage.removeMessage(message);
+            throw new IllegalStateException("Could not save message " + message.getMessageId());
+        }
+    }
+
+    /**
+     * Called by the manager when a message for this user arrives.
+     */
+    void receive(Message message) {
+        inbox.add(message);
+    }
+
+    /**
+     * @return messages received since the last poll, oldest first
+     */
+    public CompletableFuture<List<Message>> poll() {
+        return submit(() -> {
+            List<Message> received = new ArrayList<>();
+            Message message;
+            while ((message = inbox.poll()) != null) {
+                received.add(message);
+            }
+            return CompletableFuture.completedFuture(received);
+        });
+    }
+
+    /**
+     * @return a short report of this user's saved messages
+     */
+    public CompletableFuture<String> report() {
+        return submit(() -> {
+            if (storage == null) {
+                return CompletableFuture.completedFuture(
+                        user + ": " + (nextMessageNumber - 1) + " messages sent (not persisted)");
+            }
+            // The two counts only read the partition, so they can scan it at the same time
+            SessionScope scope = new SessionScope(executor);
+            CompletableFuture<Integer> sent = scope.fork(() -> storage.getMessagesByStatus("Sent").size());
+            CompletableFuture<Integer> stored = scope.fork(() -> storage.getMessagesByStatus("Stored").size());
+            return scope.join()
+                    .whenComplete((ignored, error) -> scope.close())
+                    .thenApply(ignored -> user + ": " + sent.join() + " sent, " + stored.join() + " stored, "
+                            + inbox.size() + " waiting in inbox");
+        });
+    }
+
+    /**
+     * Stops accepting steps; steps already queued still run.
+     *
+     * @return a future that completes when the last queued step has finished
+     */
+    synchronized CompletableFuture<Void> close() {
+        closed = true;
+        return lastStep.handle((value, error) -> (Void) null);
+    }
+}
@@ -0,0 +1,153 @@
+package part1;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The SessionManager hosts one Session per logged-in user when QuickChat runs as a service.
+ * - Every session's steps run on one small pool of worker threads (one per
+ *   core by default, -Dquickchat.session.threads). Sessions own no thread, so
+ *   tens of thousands can be open at once.
+ * - Messages sent to a user with an open session are put in that session's inbox.
+ */
+public final class SessionManager {
+    private static final int WORKER_THREADS = Integer.getInteger("quickchat.session.threads",
+            Runtime.getRuntime().availableProcessors());
+    private static SessionManager instance;
+
+    private final ExecutorService workers;
+    private final Path directory;          // Where partitions are saved, or null to not persist
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * @param threads number of worker threads shared by all sessions
+     * @param persist true to save sent messages to each user's partition
+     */
+    SessionManager(int threads, boolean persist) {
+        this(threads, persist ? Paths.get("") : null);
+    }
+
+    /**
+     * @param threads   number of worker threads shared by all sessions
+     * @param directory where each user's partition is saved, or null to not persist
+     */
+    SessionManager(int threads, Path directory) {
+        this.directory = directory;
+        this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "session-worker");
+            thread.setDaemon(true); // Don't keep the app alive on exit
+            return thread;
+        });
+    }
+
+    public static synchronized SessionManager getInstance() {
+        if (instance == null) {
+            instance = new SessionManager(WORKER_THREADS, true);
+        }
+        return instance;
+    }
+
+    /**
+     * Opens a session for a user, or returns the one already open.
+     */
+    public Session openSession(String user) {
+        return sessions.computeIfAbsent(user, u ->
+                new Session(u, this, workers, directory != null ? new MessageStorage(u, directory) : null));
+    }
+
+    /**
+     * @return the user's open session, or null if the user has none
+     */
+    public Session getSession(String user) {
+        return sessions.get(user);
+    }
+
+    /**
+     * Closes a user's session once its queued steps have run.
+     */
+    public CompletableFuture<Void> closeSession(String user) {
+        Session session = sessions.remove(user);
+        return session == null ? CompletableFuture.completedFuture(null) : session.close();
+    }
+
+    /** @return number of open sessions */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Hands a sent message to the recipient's session, if the recipient is online.
+     *
+     * @return true if the recipient had an open session
+     */
+    boolean deliver(Message message) {
+        Session recipient = sessions.get(message.getRecipient());
+        if (recipient == null) {
+            return false;
+        }
+        recipient.receive(message);
+        return true;
+    }
+
+    /**
+     * Stops the worker threads after the work already queued.
+     */
+    public void shutdown() throws InterruptedException {
+        workers.shutdown();
+        workers.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Opens many sessions, has each send messages to the next user, polls every
+     * inbox and reports throughput.
+     * Run with: java part1.SessionManager [sessions] [messagesPerSession] [persist]
+     * (persist=true writes one partition file per session into the current directory)
+     */
+    public static void main(String[] args) throws Exception {
+        int sessionCount = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+        int perSession = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        boolean persist = args.length > 2 && Boolean.parseBoolean(args[2]);
+
+        SessionManager manager = new SessionManager(WORKER_THREADS, persist);
+        long start = System.nanoTime();
+        List<Session> opened = new ArrayList<>(sessionCount);
+        for (int i = 0; i < sessionCount; i++) {
+            opened.add(manager.openSession("user" + i));
+        }
+        long openedAt = System.nanoTime();
+
+        List<CompletableFuture<Message>> sends = new ArrayList<>(sessionCount * perSession);
+        for (int m = 0; m < perSession; m++) {
+            for (int i = 0; i < sessionCount; i++) {
+                sends.add(opened.get(i).send("user" + ((i + 1) % sessionCount), "message " + m + " from user" + i));
+            }
+        }
+        CompletableFuture.allOf(sends.toArray(new CompletableFuture<?>[0])).join();
+        long sentAt = System.nanoTime();
+
+        long received = 0;
+        for (Session session : opened) {
+            received += session.poll().join().size();
+        }
+        long end = System.nanoTime();
+
+        int total = sessionCount * perSession;
+        System.out.printf("%,d sessions opened in %.1f ms on %d worker threads%n",
+                sessionCount, (openedAt - start) / 1_000_000.0, WORKER_THREADS);
+        System.out.printf("%,d messages sent in %.1f ms (%,.0f messages/sec)%s%n",
+                total, (sentAt - openedAt) / 1_000_000.0, total * 1_000_000_000.0 / (sentAt - openedAt),
+                persist ? " with persistence" : "");
+        System.out.printf("%,d messages received via inbox polls in %.1f ms | heap used: %,d MB%n",
+                received, (end - sentAt) / 1_000_000.0,
+                (Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory()) / (1024 * 1024));
+        System.out.println(opened.get(0).report().join());
+        manager.shutdown();
+    }
+}
@@ -0,0 +1,161 @@
+package part1;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The SessionScope class groups the subtasks of one session step.
+ * - fork() starts a subtask; join() completes when all of them have finished.
+ * - If any subtask fails, the others are cancelled and join() fails with
+ *   that first error ("shut down on failure").
+ * - Cancelling (on failure, or by close()) skips subtasks that haven't started
+ *   and interrupts the ones that are running. join() waits for every subtask's
+ *   body to return, not just for its result to be cancelled, so once join()
+ *   has completed nothing the scope started is still running.
+ *
+ * join() returns a future instead of blocking, so a step waiting on its
+ * subtasks never ties up one of the session worker threads.
+ */
+public final class SessionScope implements AutoCloseable {
+    private final Executor executor;
+    private final List<Subtask<?>> subtasks = new ArrayList<>();
+    private final AtomicReference<Throwable> firstError = new AtomicReference<>();
+
+    SessionScope(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Starts a subtask in this scope.
+     *
+     * @return the subtask's result (cancelled if the scope shuts down first)
+     */
+    public synchronized <T> CompletableFuture<T> fork(Callable<T> task) {
+        Subtask<T> subtask = new Subtask<>(task);
+        subtasks.add(subtask);
+        subtask.result.whenComplete((value, error) -> {
+            if (error != null && !subtask.result.isCancelled()) {
+                shutdown(error);
+            }
+        });
+        try {
+            executor.execute(subtask::run);
+        } catch (RejectedExecutionException e) {
+            subtask.result.completeExceptionally(e);
+            subtask.finished.complete(null);
+        }
+        return subtask.result;
+    }
+
+    /**
+     * @return a future that completes once every forked subtask's body has returned
+     *         (or was skipped), and fails with the first subtask error
+     */
+    public synchronized CompletableFuture<Void> join() {
+        CompletableFuture<?>[] finished = new CompletableFuture<?>[subtasks.size()];
+        CompletableFuture<?>[] results = new CompletableFuture<?>[subtasks.size()];
+        for (int i = 0; i < finished.length; i++) {
+            finished[i] = subtasks.get(i).finished;
+            results[i] = subtasks.get(i).result;
+        }
+        // The first error is recorded before the others are cancelled, so their
+        // CancellationExceptions never hide it
+        return CompletableFuture.allOf(finished)
+                .thenCompose(ignored -> CompletableFuture.allOf(results))
+                .handle((ignored, error) -> {
+                    Throwable first = firstError.get();
+                    if (first != null) {
+                        throw new CompletionException(first);
+                    }
+                    if (error != null) {
+                        throw error instanceof CompletionException ? (CompletionException) error : new CompletionException(error);
+                    }
+                    return (Void) null;
+                });
+    }
+
+    private void shutdown(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (firstError.compareAndSet(null, cause)) {
+            close();
+        }
+    }
+
+    /**
+     * Cancels every subtask that has not finished: ones still queued never run,
+     * and running ones are interrupted. Doesn't wait for them; join() does.
+     */
+    @Override
+    public synchronized void close() {
+        for (Subtask<?> subtask : subtasks) {
+            subtask.cancel();
+        }
+    }
+
+    /**
+     * One forked task, the thread running it, and when its body has returned.
+     */
+    private static final class Subtask<T> {
+        private final Callable<T> task;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final CompletableFuture<Void> finished = new CompletableFuture<>(); // Completed once the body has returned
+        private Thread worker;          // Running the body (guarded by this)
+        private boolean cancelled;      // Guarded by this
+        private boolean interrupted;    // The worker was interrupted by cancel() (guarded by this)
+
+        Subtask(Callable<T> task) {
+            this.task = task;
+        }
+
+        void run() {
+            synchronized (this) {
+                if (cancelled) {
+                    finished.complete(null); // Cancelled before it started
+                    return;
+                }
+                worker = Thread.currentThread();
+            }
+            try {
+                result.complete(task.call());
+            } catch (Exception e) {
+                if (isCancelled()) {
+                    result.cancel(false); // Most likely our interrupt; the scope doesn't want the result anyway
+                } else {
+                    result.completeExceptionally(e);
+                }
+            } finally {
+                synchronized (this) {
+                    worker = null;
+                    if (interrupted) {
+                        Thread.interrupted(); // Don't leave our interrupt on a pool thread
+                    }
+                }
+                finished.complete(null);
+            }
+        }
+
+        synchronized boolean isCancelled() {
+            return cancelled;
+        }
+
+        void cancel() {
+            synchronized (this) {
+                if (cancelled) {
+                    return;
+                }
+                cancelled = true;
+                if (worker != null) {
+                    worker.interrupt();
+                    interrupted = true;
+                }
+            }
+            result.cancel(false); // Outside the lock: this runs the result's callbacks
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package part1;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+/**
+ * The StartupBenchmark class measures cold start with and without an AppCDS archive.
+ * - probe() loads the classes a normal launch needs (Swing frames, Nimbus,
+ *   json-simple, message storage) and returns. "java part1.Main --startup-probe"
+ *   runs it; the cds-archive target in build.xml records those classes.
+ * - json-simple 1.1.1 is compiled for Java 1.2, which CDS cannot archive, so
+ *   its few classes still load from the jar; Swing and our own classes are shared.
+ * - main() launches fresh JVMs running the probe and compares launch times.
+ */
+public final class StartupBenchmark {
+    private StartupBenchmark() {
+    }
+
+    /**
+     * Loads the startup class set without showing any windows.
+     */
+    static void probe() {
+        long start = System.nanoTime();
+
+        // Nimbus, as set by the forms' own main methods
+        try {
+            for (javax.swing.UIManager.LookAndFeelInfo info : javax.swing.UIManager.getInstalledLookAndFeels()) {
+                if ("Nimbus".equals(info.getName())) {
+                    javax.swing.UIManager.setLookAndFeel(info.getClassName());
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            System.out.println("Could not set look and feel: " + e.getMessage());
+        }
+
+        // Build (but don't show) the first two frames; with no display just load the classes
+        if (!java.awt.GraphicsEnvironment.isHeadless()) {
+            new Login(new Registration()).dispose();
+        }
+        String[] classes = {"part1.Registration", "part1.Login", "part1.Welcome", "part1.ChatMenu",
+            "part1.MessageStorage", "part1.Message", "part1.UserCredentials", "part1.PasswordHasher"};
+        for (String name : classes) {
+            try {
+                Class.forName(name, true, StartupBenchmark.class.getClassLoader());
+            } catch (ClassNotFoundException e) {
+                System.out.println("Error loading " + name + ": " + e.getMessage());
+            }
+        }
+
+        // Exercise the JSON parser the way loadMessages() does
+        try {
+            new JSONParser().parse(new StringReader("{\"version\":2,\"contents\":{},\"messages\":[]}"));
+        } catch (IOException | ParseException e) {
+            System.out.println("Error parsing probe JSON: " + e.getMessage());
+        }
+
+        System.out.println("Startup probe: " + ManagementFactory.getClassLoadingMXBean().getLoadedClassCount()
+                + " classes loaded, " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    /**
+     * Launches the probe repeatedly without CDS, with the JDK's default CDS,
+     * and with the application archive, then prints median and best times.
+     * Run with: java part1.StartupBenchmark <classpath> dist/Part1.jsa [runs]
+     * (the classpath must match the one the archive was built with)
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.out.println("Usage: java part1.StartupBenchmark <classpath> <archive.jsa> [runs]");
+            return;
+        }
+        String classpath = args[0];
+        Path archive = Paths.get(args[1]);
+        int runs = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+
+        List<List<String>> configs = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        names.add("no CDS (-Xshare:off)");
+        configs.add(Arrays.asList("-Xshare:off"));
+        names.add("JDK default CDS");
+        configs.add(Collections.<String>emptyList());
+        if (Files.exists(archive)) {
+            names.add("AppCDS archive");
+            configs.add(Arrays.asList("-XX:SharedArchiveFile=" + archive));
+        } else {
+            System.out.println("Archive " + archive + " not found; run 'ant cds-archive' first");
+        }
+
+        long[][] times = new long[configs.size()][runs];
+        for (int run = 0; run < runs; run++) {
+            // Interleave configurations so disk cache and CPU state affect them equally
+            for (int c = 0; c < configs.size(); c++) {
+                times[c][run] = launch(java, configs.get(c), classpath);
+            }
+        }
+
+        System.out.printf("Cold launch of the startup probe, %d runs each:%n", runs);
+        for (int c = 0; c < configs.size(); c++) {
+            long[] sorted = times[c].clone();
+            Arrays.sort(sorted);
+            System.out.printf("%-24s median %6.1f ms  best %6.1f ms%n", names.get(c),
+                    sorted[runs / 2] / 1_000_000.0, sorted[0] / 1_000_000.0);
+        }
+    }
+
+    /**
+     * Starts one JVM running the probe and returns its wall-clock time in nanoseconds.
+     */
+    private static long launch(String java, List<String> jvmArgs, String classpath) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(java);
+        command.addAll(jvmArgs);
+        command.add("-cp");
+        command.add(classpath);
+        command.add("part1.Main");
+        command.add("--startup-probe");
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        try (BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            while (out.readLine() != null) {
+                // Drain output so the child never blocks on a full pipe
+            }
+        }
+        int exit = process.waitFor();
+        long elapsed = System.nanoTime() - start;
+        if (exit != 0) {
+            throw new IOException("Probe exited with " + exit + ": " + command);
+        }
+        return elapsed;
+    }
+}
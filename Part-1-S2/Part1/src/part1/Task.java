@@ -15,22 +15,51 @@ public final class Task {
     private final String developerDetails;
     private final int taskDuration;
     private final String taskStatus;
-    private static int taskCounter = 0; //  tracks task numbers
-    private static int totalHours = 0; //  total task hours
+    private final TaskRegistry registry; //  hands out task numbers and tracks total hours
     private final String taskID;
 
-    public Task(String taskName, String taskDescription, String developerDetails, int taskDuration, String taskStatus) {
+    private Task(String taskName, String taskDescription, String developerDetails, int taskDuration, String taskStatus, TaskRegistry registry) {
         this.taskName = taskName;
         this.taskDescription = taskDescription;
         this.developerDetails = developerDetails;
         this.taskDuration = taskDuration;
         this.taskStatus = taskStatus;
+        this.registry = registry;
         this.taskID = createTaskID();
-        totalHours += taskDuration;
+    }
+
+    /**
+     * Creates a new task with the next task number and registers it.
+     */
+    public static Task create(String taskName, String taskDescription, String developerDetails, int taskDuration, String taskStatus) {
+        return create(taskName, taskDescription, developerDetails, taskDuration, taskStatus, TaskRegistry.getInstance());
+    }
+
+    static Task create(String taskName, String taskDescription, String developerDetails, int taskDuration, String taskStatus, TaskRegistry registry) {
+        Task task = new Task(taskName, taskDescription, developerDetails, taskDuration, taskStatus, registry);
+        registry.register(task); // only once fully built: thread-safe unique number, atomic hours total
+        return task;
+    }
+
+    private Task(String taskID, String taskName, String taskDescription, String developerDetails, int taskDuration, String taskStatus, TaskRegistry registry) {
+        this.taskID = taskID;
+        this.taskName = taskName;
+        this.taskDescription = taskDescription;
+        this.developerDetails = developerDetails;
+        this.taskDuration = taskDuration;
+        this.taskStatus = taskStatus;
+        this.registry = registry; // already numbered and counted when it was first created
+    }
+
+    /**
+     * Recreates a saved task with its original ID, without taking a new number.
+     */
+    static Task restore(String taskID, String taskName, String taskDescription, String developerDetails, int taskDuration, String taskStatus, TaskRegistry registry) {
+        return new Task(taskID, taskName, taskDescription, developerDetails, taskDuration, taskStatus, registry);
     }
     
     public String createTaskID() {
-        taskCounter++;
+        int taskCounter = registry.nextTaskNumber();
         String taskNamePart = taskName.length() >= 2 ? taskName.substring(0, 2).toUpperCase() : taskName.toUpperCase();
         String developerNamePart = developerDetails.length() >= 3 ? developerDetails.substring(developerDetails.length() - 3).toUpperCase() : developerDetails.toUpperCase();
         return taskNamePart + ":" + taskCounter + ":" + developerNamePart;
@@ -44,7 +73,31 @@ public final class Task {
     }
 
     public static int returnTotalHours() {
-        return totalHours;
+        return (int) TaskRegistry.getInstance().getTotalHours();
+    }
+
+    public String getTaskName() {
+        return taskName;
+    }
+
+    public String getTaskDescription() {
+        return taskDescription;
+    }
+
+    public String getDeveloperDetails() {
+        return developerDetails;
+    }
+
+    public int getTaskDuration() {
+        return taskDuration;
+    }
+
+    public String getTaskStatus() {
+        return taskStatus;
+    }
+
+    public String getTaskID() {
+        return taskID;
     }
 
    
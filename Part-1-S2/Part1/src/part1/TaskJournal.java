@@ -0,0 +1,394 @@
+package part1;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * The TaskJournal persists tasks in an append-only file.
+ * - Each record is [length][task fields][CRC32], so a record cut short by a
+ *   crash is detected and dropped on the next start.
+ * - Every append is forced to disk before returning.
+ * - A checkpoint file (written atomically, like messages.json) holds the
+ *   tasks that were live at a journal position, plus the last task number and
+ *   total hours. On startup the checkpoint is loaded and only the records
+ *   after it are read, so removed tasks and old history aren't re-read.
+ * - The checkpoint is rewritten once the journal has grown by as many records
+ *   as there are live tasks (at least CHECKPOINT_EVERY), so its cost per
+ *   append stays constant however large the backlog gets.
+ * - Removing a task appends a removal record; forEach() skips removed tasks.
+ */
+public class TaskJournal implements AutoCloseable {
+    private static final int CHECKPOINT_MAGIC = 0x514A4332;  // "QJC2": totals followed by the live tasks
+    private static final int CHECKPOINT_EVERY = 1000;        // Fewest appends between checkpoints
+    private static final String REMOVED_MARKER = "\u0000removed"; // Leads a removal record (never a task ID)
+
+    private final Path checkpointFile;
+    private final FileChannel channel;
+
+    // State as of the end of the journal
+    private long position;
+    private int lastTaskNumber;
+    private long totalHours;
+    private final Map<String, Task> live = new LinkedHashMap<>(); // Tasks not removed, oldest first
+    private int appendsSinceCheckpoint;
+
+    /**
+     * Opens (or creates) a journal and recovers its totals.
+     *
+     * @param journalFile e.g. "tasks.dat"; the checkpoint is stored next to it as "tasks.dat.checkpoint"
+     */
+    public TaskJournal(String journalFile) throws IOException {
+        this.checkpointFile = Paths.get(journalFile + ".checkpoint");
+        this.channel = FileChannel.open(Paths.get(journalFile),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        recover();
+    }
+
+    /**
+     * Loads the checkpoint, then scans only the records written after it.
+     * A damaged tail (from a crash mid-append) is cut off.
+     */
+    private void recover() throws IOException {
+        readCheckpoint();
+
+        channel.position(position);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        long validEnd = position;
+        int tailRecords = 0;
+        while (true) {
+            Record record = readRecord(in, null); // Bound to a registry later, in forEach()
+            if (record == null) {
+                break;
+            }
+            validEnd += record.size;
+            if (record.task != null) {
+                apply(record.task);
+            } else if (live.remove(record.removedID) != null) {
+                totalHours -= record.removedHours;
+            }
+            tailRecords++;
+        }
+
+        // Drop any partial record left at the end
+        if (channel.size() > validEnd) {
+            channel.truncate(validEnd);
+        }
+        position = validEnd;
+        channel.position(position);
+
+        if (tailRecords > 0) {
+            writeCheckpoint();
+        }
+    }
+
+    /**
+     * Appends a task and forces it to disk.
+     */
+    public synchronized void append(Task task) throws IOException {
+        write(encode(task));
+        apply(task);
+        afterAppend();
+    }
+
+    private void apply(Task task) {
+        lastTaskNumber = Math.max(lastTaskNumber, numberFromID(task.getTaskID()));
+        Task previous = live.put(task.getTaskID(), task);
+        totalHours += task.getTaskDuration() - (previous != null ? previous.getTaskDuration() : 0);
+    }
+
+    /**
+     * Records that a task was removed and forces it to disk.
+     */
+    public synchronized void appendRemoval(Task task) throws IOException {
+        write(encodeRemoval(task));
+        if (live.remove(task.getTaskID()) != null) {
+            totalHours -= task.getTaskDuration();
+        }
+        afterAppend();
+    }
+
+    private void write(byte[] record) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+        channel.force(false);
+        position += record.length;
+    }
+
+    private void afterAppend() throws IOException {
+        if (++appendsSinceCheckpoint >= Math.max(CHECKPOINT_EVERY, live.size())) {
+            writeCheckpoint();
+        }
+    }
+
+    /**
+     * Hands over every task in the journal that hasn't been removed, oldest first.
+     * The tasks keep their saved IDs and belong to the shared TaskRegistry
+     * (so createTaskID() on them carries on its numbering).
+     */
+    public void forEach(Consumer<Task> action) {
+        forEach(TaskRegistry.getInstance(), action);
+    }
+
+    /**
+     * Hands over every task that hasn't been removed, oldest first, as tasks of the given registry.
+     * They come from memory (loaded from the checkpoint and the journal tail), so nothing is re-read.
+     */
+    synchronized void forEach(TaskRegistry registry, Consumer<Task> action) {
+        List<Task> tasks = new ArrayList<>(live.size());
+        for (Task task : live.values()) {
+            tasks.add(Task.restore(task.getTaskID(), task.getTaskName(), task.getTaskDescription(),
+                    task.getDeveloperDetails(), task.getTaskDuration(), task.getTaskStatus(), registry));
+        }
+        tasks.forEach(action);
+    }
+
+    /**
+     * Empties the journal (all tasks and totals are gone).
+     */
+    public synchronized void clear() throws IOException {
+        channel.truncate(0);
+        channel.force(false);
+        position = 0;
+        lastTaskNumber = 0;
+        totalHours = 0;
+        live.clear();
+        writeCheckpoint();
+    }
+
+    /** @return the highest task number in the journal */
+    public synchronized int getLastTaskNumber() {
+        return lastTaskNumber;
+    }
+
+    /** @return the sum of all task durations in the journal */
+    public synchronized long getTotalHours() {
+        return totalHours;
+    }
+
+    /** @return number of tasks in the journal (not counting removed ones) */
+    public synchronized long getRecordCount() {
+        return live.size();
+    }
+
+    /**
+     * Writes a final checkpoint and closes the file.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            if (appendsSinceCheckpoint > 0) {
+                writeCheckpoint();
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    // ----------- Checkpoint -----------
+
+    /**
+     * Loads the live tasks and totals from the checkpoint. If there is no usable
+     * checkpoint (missing, damaged or from an older version), everything starts
+     * at zero and recover() scans the whole journal instead.
+     */
+    private void readCheckpoint() {
+        position = 0;
+        lastTaskNumber = 0;
+        totalHours = 0;
+        live.clear();
+        if (!Files.exists(checkpointFile)) {
+            return;
+        }
+
+        try (InputStream raw = Files.newInputStream(checkpointFile);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(raw))) {
+            if (in.readInt() != CHECKPOINT_MAGIC) {
+                return;
+            }
+            long savedPosition = in.readLong();
+            int savedNumber = in.readInt();
+            long savedHours = in.readLong();
+            int savedCount = in.readInt();
+
+            // A checkpoint past the end of the journal can't be trusted: rescan from the start
+            if (savedPosition > channel.size()) {
+                return;
+            }
+            Map<String, Task> savedTasks = new LinkedHashMap<>();
+            for (int i = 0; i < savedCount; i++) {
+                Record record = readRecord(in, null);
+                if (record == null || record.task == null) {
+                    return; // Damaged: rescan from the start
+                }
+                savedTasks.put(record.task.getTaskID(), record.task);
+            }
+            position = savedPosition;
+            lastTaskNumber = savedNumber;
+            totalHours = savedHours;
+            live.putAll(savedTasks);
+        } catch (IOException e) {
+            // Unreadable checkpoint: fall back to scanning the whole journal
+            System.out.println("Could not read task checkpoint, rescanning journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the checkpoint (totals, then every live task in the journal's
+     * record format) to a temporary file and moves it into place.
+     */
+    private void writeCheckpoint() throws IOException {
+        Path temp = Paths.get(checkpointFile + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(CHECKPOINT_MAGIC);
+            out.writeLong(position);
+            out.writeInt(lastTaskNumber);
+            out.writeLong(totalHours);
+            out.writeInt(live.size());
+            for (Task task : live.values()) {
+                out.write(encode(task));
+            }
+        }
+        try {
+            Files.move(temp, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, checkpointFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+        appendsSinceCheckpoint = 0;
+    }
+
+    // ----------- Record format -----------
+
+    /**
+     * Record layout: int bodyLength, body (UTF fields + int duration), int CRC32 of body.
+     */
+    private static byte[] encode(Task task) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(body);
+        out.writeUTF(task.getTaskID());
+        out.writeUTF(task.getTaskName());
+        out.writeUTF(task.getTaskDescription());
+        out.writeUTF(task.getDeveloperDetails());
+        out.writeInt(task.getTaskDuration());
+        out.writeUTF(task.getTaskStatus());
+        return frame(body.toByteArray());
+    }
+
+    private static byte[] frame(byte[] bodyBytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bodyBytes, 0, bodyBytes.length);
+
+        ByteBuffer record = ByteBuffer.allocate(4 + bodyBytes.length + 4);
+        record.putInt(bodyBytes.length);
+        record.put(bodyBytes);
+        record.putInt((int) crc.getValue());
+        return record.array();
+    }
+
+    /**
+     * Removal record layout: the same framing, with a body of REMOVED_MARKER, the task ID and its duration.
+     */
+    private static byte[] encodeRemoval(Task task) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(32);
+        DataOutputStream out = new DataOutputStream(body);
+        out.writeUTF(REMOVED_MARKER);
+        out.writeUTF(task.getTaskID());
+        out.writeInt(task.getTaskDuration());
+        return frame(body.toByteArray());
+    }
+
+    /**
+     * Reads one record.
+     *
+     * @param registry registry restored tasks take new numbers from
+     * @return the task (or removal) and its size on disk, or null at the end of the journal or at a damaged record
+     */
+    private static Record readRecord(DataInputStream in, TaskRegistry registry) throws IOException {
+        try {
+            int length = in.readInt();
+            if (length <= 0 || length > 1 << 20) {
+                return null; // Garbage length: treat as end of valid data
+            }
+            byte[] body = new byte[length];
+            in.readFully(body);
+            int storedCrc = in.readInt();
+
+            CRC32 crc = new CRC32();
+            crc.update(body, 0, body.length);
+            if ((int) crc.getValue() != storedCrc) {
+                return null;
+            }
+
+            DataInputStream fields = new DataInputStream(new ByteArrayInputStream(body));
+            String taskID = fields.readUTF();
+            if (taskID.equals(REMOVED_MARKER)) {
+                return new Record(null, fields.readUTF(), fields.readInt(), 4 + length + 4);
+            }
+            String taskName = fields.readUTF();
+            String taskDescription = fields.readUTF();
+            String developerDetails = fields.readUTF();
+            int taskDuration = fields.readInt();
+            String taskStatus = fields.readUTF();
+            Task task = Task.restore(taskID, taskName, taskDescription, developerDetails, taskDuration, taskStatus, registry);
+            return new Record(task, null, 0, 4 + length + 4);
+        } catch (EOFException e) {
+            return null; // Clean end, or a record cut short
+        }
+    }
+
+    /**
+     * A task (or a removal) read from the journal together with its size in bytes.
+     */
+    private static final class Record {
+        private final Task task;          // Null for a removal record
+        private final String removedID;
+        private final int removedHours;
+        private final int size;
+
+        Record(Task task, String removedID, int removedHours, int size) {
+            this.task = task;
+            this.removedID = removedID;
+            this.removedHours = removedHours;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Pulls the number out of a task ID like "AD:12:BYN".
+     */
+    static int numberFromID(String taskID) {
+        int first = taskID.indexOf(':');
+        int last = taskID.lastIndexOf(':');
+        if (first < 0 || last <= first) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(taskID.substring(first + 1, last));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
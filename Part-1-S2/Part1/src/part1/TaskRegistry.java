@@ -0,0 +1,240 @@
+package part1;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The TaskRegistry hands out task numbers and keeps the running totals for tasks.
+ * - Task numbers come from an AtomicInteger, so IDs are unique across threads.
+ * - Total hours use a LongAdder, which stays fast when many threads add at once.
+ * - Tasks are indexed by ID for lookup, and can be aggregated by developer or status.
+ * - Tasks are registered by Task.create() once fully built, and can be removed again.
+ */
+public final class TaskRegistry {
+    private static TaskRegistry instance;
+
+    private final AtomicInteger taskCounter = new AtomicInteger();  // Last task number handed out
+    private final LongAdder totalHours = new LongAdder();           // Sum of all task durations
+    private final ConcurrentHashMap<String, Task> tasksById = new ConcurrentHashMap<>();
+    private volatile TaskJournal journal;                           // Optional persistence (null = memory only)
+
+    TaskRegistry() {
+    }
+
+    public static synchronized TaskRegistry getInstance() {
+        if (instance == null) {
+            instance = new TaskRegistry();
+        }
+        return instance;
+    }
+
+    /**
+     * @return the next task number (1, 2, 3, ...), unique even across threads
+     */
+    int nextTaskNumber() {
+        return taskCounter.incrementAndGet();
+    }
+
+    /**
+     * Records a newly created task and adds its hours to the total.
+     */
+    void register(Task task) {
+        tasksById.put(task.getTaskID(), task);
+        totalHours.add(task.getTaskDuration());
+
+        TaskJournal current = journal;
+        if (current != null) {
+            try {
+                current.append(task);
+            } catch (IOException e) {
+                System.out.println("Error saving task " + task.getTaskID() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Persists tasks through a journal from now on. The tasks it holds are
+     * restored (so findById(), getTasks() and reports see them), and the task
+     * counter carries on from its highest number. The tasks come from the
+     * journal's memory (its checkpoint plus the records after it), not a re-read of the file.
+     */
+    public void attachJournal(TaskJournal journal) {
+        journal.forEach(this, task -> {
+            if (tasksById.putIfAbsent(task.getTaskID(), task) == null) {
+                totalHours.add(task.getTaskDuration());
+            }
+        });
+        taskCounter.accumulateAndGet(journal.getLastTaskNumber(), Math::max);
+        this.journal = journal;
+    }
+
+    /**
+     * Stops persisting tasks and closes the journal (e.g. on exit).
+     */
+    public void closeJournal() {
+        TaskJournal current = journal;
+        journal = null;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                System.out.println("Error closing task journal: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Removes a task and takes its hours off the total.
+     * Its number is not handed out again.
+     *
+     * @return the removed task, or null if no task has that ID
+     */
+    public Task remove(String taskID) {
+        Task task = tasksById.remove(taskID);
+        if (task != null) {
+            totalHours.add(-task.getTaskDuration());
+
+            TaskJournal current = journal;
+            if (current != null) {
+                try {
+                    current.appendRemoval(task);
+                } catch (IOException e) {
+                    System.out.println("Error saving removal of task " + taskID + ": " + e.getMessage());
+                }
+            }
+        }
+        return task;
+    }
+
+    /**
+     * Looks up a task by its ID (e.g. "AD:1:BYN").
+     *
+     * @return the task, or null if no task has that ID
+     */
+    public Task findById(String taskID) {
+        return tasksById.get(taskID);
+    }
+
+    /** @return all registered tasks (in no particular order) */
+    public Collection<Task> getTasks() {
+        return tasksById.values();
+    }
+
+    /** @return number of registered tasks */
+    public int getTaskCount() {
+        return tasksById.size();
+    }
+
+    /** @return the highest task number handed out so far */
+    public int getLastTaskNumber() {
+        return taskCounter.get();
+    }
+
+    /** @return the sum of all registered task durations */
+    public long getTotalHours() {
+        return totalHours.sum();
+    }
+
+    /**
+     * @return total hours per developer
+     */
+    public Map<String, Long> getHoursByDeveloper() {
+        Map<String, Long> hours = new ConcurrentHashMap<>();
+        for (Task task : tasksById.values()) {
+            hours.merge(task.getDeveloperDetails(), (long) task.getTaskDuration(), Long::sum);
+        }
+        return hours;
+    }
+
+    /**
+     * @return number of tasks per status
+     */
+    public Map<String, Long> getCountByStatus() {
+        Map<String, Long> counts = new ConcurrentHashMap<>();
+        for (Task task : tasksById.values()) {
+            counts.merge(task.getTaskStatus(), 1L, Long::sum);
+        }
+        return counts;
+    }
+
+    /**
+     * Clears all tasks and sets the counter and total hours back to zero.
+     * An attached journal is emptied too, so the tasks don't come back on the next start.
+     */
+    public void reset() {
+        tasksById.clear();
+        taskCounter.set(0);
+        totalHours.reset();
+
+        TaskJournal current = journal;
+        if (current != null) {
+            try {
+                current.clear();
+            } catch (IOException e) {
+                System.out.println("Error clearing task journal: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Creates tasks from many threads at once and checks IDs and totals.
+     * Run with: java part1.TaskRegistry [threads] [tasksPerThread]
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int perThread = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+
+        for (int round = 1; round <= 3; round++) { // First rounds warm up the JIT
+            TaskRegistry registry = new TaskRegistry();
+            CountDownLatch startSignal = new CountDownLatch(1);
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int worker = t;
+                Thread thread = new Thread(() -> {
+                    try {
+                        startSignal.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < perThread; i++) {
+                        Task.create("Task" + i, "Benchmark task", "Dev" + worker, 1 + i % 8, "To Do", registry);
+                    }
+                });
+                workers.add(thread);
+                thread.start();
+            }
+
+            long start = System.nanoTime();
+            startSignal.countDown();
+            for (Thread thread : workers) {
+                thread.join();
+            }
+            long elapsed = System.nanoTime() - start;
+
+            long expectedHours = 0;
+            for (int i = 0; i < perThread; i++) {
+                expectedHours += 1 + i % 8;
+            }
+            expectedHours *= threads;
+
+            Set<String> ids = new HashSet<>();
+            for (Task task : registry.getTasks()) {
+                ids.add(task.getTaskID());
+            }
+            int expected = threads * perThread;
+            System.out.printf("Round %d: %,d tasks on %d threads in %.1f ms (%,.0f tasks/sec) | unique IDs: %s | total hours: %s%n",
+                    round, expected, threads, elapsed / 1_000_000.0, expected * 1_000_000_000.0 / elapsed,
+                    ids.size() == expected ? "OK" : "FAIL (" + ids.size() + ")",
+                    registry.getTotalHours() == expectedHours ? "OK" : "FAIL (" + registry.getTotalHours() + ")");
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package part1;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The TaskReport class answers summary questions over a set of tasks.
+ * - Group-by developer or status with count, total, average, min and max duration.
+ * - Top-N longest tasks, using a small heap instead of sorting everything.
+ * - Filtered listings written line by line to any Appendable (a Writer,
+ *   System.out, a StringBuilder), so big reports are never built as one string.
+ *
+ * Each aggregation is a single pass with primitive counters. Large task sets
+ * (over PARALLEL_THRESHOLD) are processed with parallel streams.
+ */
+public class TaskReport {
+    static final int PARALLEL_THRESHOLD = 10000;
+
+    private final Collection<Task> tasks;
+
+    /**
+     * @param tasks the tasks to report on (e.g. TaskRegistry.getInstance().getTasks())
+     */
+    public TaskReport(Collection<Task> tasks) {
+        this.tasks = tasks;
+    }
+
+    /**
+     * Builds a report over every task saved in a journal.
+     */
+    public static TaskReport fromJournal(TaskJournal journal) {
+        List<Task> saved = new ArrayList<>();
+        journal.forEach(saved::add);
+        return new TaskReport(saved);
+    }
+
+    private Stream<Task> stream() {
+        return tasks.size() > PARALLEL_THRESHOLD ? tasks.parallelStream() : tasks.stream();
+    }
+
+    /**
+     * @return duration statistics for all tasks together
+     */
+    public DurationStats getOverallStats() {
+        return stream().collect(DurationStats.collector());
+    }
+
+    /**
+     * @return duration statistics per developer, sorted by developer
+     */
+    public Map<String, DurationStats> groupByDeveloper() {
+        return groupBy(Task::getDeveloperDetails);
+    }
+
+    /**
+     * @return duration statistics per status, sorted by status
+     */
+    public Map<String, DurationStats> groupByStatus() {
+        return groupBy(Task::getTaskStatus);
+    }
+
+    private Map<String, DurationStats> groupBy(Function<Task, String> key) {
+        return stream().collect(Collectors.groupingBy(key, TreeMap::new, DurationStats.collector()));
+    }
+
+    /**
+     * Finds the longest tasks without sorting the whole set.
+     *
+     * @param n how many tasks to return
+     * @return up to n tasks, longest first
+     */
+    public List<Task> topLongest(int n) {
+        if (n <= 0) {
+            return new ArrayList<>();
+        }
+        Comparator<Task> byDuration = Comparator.comparingInt(Task::getTaskDuration);
+
+        // Each thread keeps a min-heap of its n longest; heaps are merged at the end
+        PriorityQueue<Task> heap = stream().collect(Collector.of(
+                () -> new PriorityQueue<>(n + 1, byDuration),
+                (queue, task) -> offer(queue, task, n),
+                (left, right) -> {
+                    for (Task task : right) {
+                        offer(left, task, n);
+                    }
+                    return left;
+                }));
+
+        List<Task> longest = new ArrayList<>(heap);
+        longest.sort(byDuration.reversed());
+        return longest;
+    }
+
+    private static void offer(PriorityQueue<Task> queue, Task task, int n) {
+        if (queue.size() < n) {
+            queue.add(task);
+        } else if (task.getTaskDuration() > queue.peek().getTaskDuration()) {
+            queue.poll();
+            queue.add(task);
+        }
+    }
+
+    /**
+     * Writes one line per matching task.
+     *
+     * @param filter which tasks to include (e.g. t -> "Done".equals(t.getTaskStatus()))
+     * @param out    where to write the listing
+     * @return number of tasks written
+     */
+    public int writeListing(Predicate<Task> filter, Appendable out) throws IOException {
+        int written = 0;
+        for (Task task : tasks) {
+            if (filter.test(task)) {
+                out.append(task.getTaskID()).append(" | ")
+                        .append(task.getTaskName()).append(" | ")
+                        .append(task.getDeveloperDetails()).append(" | ")
+                        .append(String.valueOf(task.getTaskDuration())).append("h | ")
+                        .append(task.getTaskStatus()).append(System.lineSeparator());
+                written++;
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Writes the standard summary: totals, per-developer and per-status tables, and the top 5.
+     */
+    public void writeSummary(Appendable out) throws IOException {
+        String newLine = System.lineSeparator();
+        out.append("=== TASK SUMMARY ===").append(newLine);
+        out.append(getOverallStats().toString()).append(newLine).append(newLine);
+
+        out.append("--- By Developer ---").append(newLine);
+        for (Map.Entry<String, DurationStats> entry : groupByDeveloper().entrySet()) {
+            out.append(entry.getKey()).append(": ").append(entry.getValue().toString()).append(newLine);
+        }
+
+        out.append(newLine).append("--- By Status ---").append(newLine);
+        for (Map.Entry<String, DurationStats> entry : groupByStatus().entrySet()) {
+            out.append(entry.getKey()).append(": ").append(entry.getValue().toString()).append(newLine);
+        }
+
+        out.append(newLine).append("--- Longest Tasks ---").append(newLine);
+        for (Task task : topLongest(5)) {
+            out.append(task.getTaskID()).append(" (").append(task.getTaskName()).append("): ")
+                    .append(String.valueOf(task.getTaskDuration())).append("h").append(newLine);
+        }
+    }
+
+    /**
+     * Count, total, min, max and average duration, accumulated with primitives.
+     */
+    public static class DurationStats {
+        private long count;
+        private long totalHours;
+        private int minHours = Integer.MAX_VALUE;
+        private int maxHours = Integer.MIN_VALUE;
+
+        static Collector<Task, DurationStats, DurationStats> collector() {
+            return Collector.of(DurationStats::new, DurationStats::add, DurationStats::combine);
+        }
+
+        void add(Task task) {
+            int hours = task.getTaskDuration();
+            count++;
+            totalHours += hours;
+            minHours = Math.min(minHours, hours);
+            maxHours = Math.max(maxHours, hours);
+        }
+
+        DurationStats combine(DurationStats other) {
+            count += other.count;
+            totalHours += other.totalHours;
+            minHours = Math.min(minHours, other.minHours);
+            maxHours = Math.max(maxHours, other.maxHours);
+            return this;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getTotalHours() {
+            return totalHours;
+        }
+
+        /** @return shortest duration, or 0 if there are no tasks */
+        public int getMinHours() {
+            return count == 0 ? 0 : minHours;
+        }
+
+        /** @return longest duration, or 0 if there are no tasks */
+        public int getMaxHours() {
+            return count == 0 ? 0 : maxHours;
+        }
+
+        public double getAverageHours() {
+            return count == 0 ? 0 : (double) totalHours / count;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d tasks, %d hours total, avg %.1f, min %d, max %d",
+                    count, totalHours, getAverageHours(), getMinHours(), getMaxHours());
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package part1;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The TaskTable stores tasks column by column, like a small in-memory table.
+ * - Columns grow automatically (no fixed 100-task limit).
+ * - Durations are plain ints; developers and statuses are stored once and
+ *   referred to by a small number, so repeated names cost no extra memory.
+ * - Rows are indexed by task ID, developer and status, and hours per developer
+ *   and the longest task are kept up to date as rows are added.
+ */
+public class TaskTable {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int size;                                              // Number of rows in use
+    private String[] taskNames = new String[INITIAL_CAPACITY];
+    private String[] taskIDs = new String[INITIAL_CAPACITY];
+    private int[] taskDurations = new int[INITIAL_CAPACITY];
+    private int[] developerCodes = new int[INITIAL_CAPACITY];      // Index into 'developers'
+    private int[] statusCodes = new int[INITIAL_CAPACITY];         // Index into 'statuses'
+
+    // Each distinct developer / status is stored once and given a code
+    private final List<String> developers = new ArrayList<>();
+    private final Map<String, Integer> developerCodeByName = new HashMap<>();
+    private final List<String> statuses = new ArrayList<>();
+    private final Map<String, Integer> statusCodeByName = new HashMap<>();
+
+    // Secondary indexes and running aggregates
+    private final Map<String, Integer> rowByTaskID = new HashMap<>();
+    private final List<IntList> rowsByDeveloper = new ArrayList<>();
+    private final List<IntList> rowsByStatus = new ArrayList<>();
+    private long[] hoursByDeveloper = new long[INITIAL_CAPACITY];
+    private long totalHours;
+    private int longestRow = -1;
+
+    /**
+     * Adds a task row.
+     *
+     * @return the row number of the new task
+     */
+    public int add(String developer, String taskName, String taskID, int duration, String status) {
+        if (size == taskDurations.length) {
+            grow();
+        }
+
+        int developerCode = code(developer, developers, developerCodeByName, rowsByDeveloper);
+        int statusCode = code(status, statuses, statusCodeByName, rowsByStatus);
+
+        int row = size++;
+        taskNames[row] = taskName;
+        taskIDs[row] = taskID;
+        taskDurations[row] = duration;
+        developerCodes[row] = developerCode;
+        statusCodes[row] = statusCode;
+
+        rowByTaskID.putIfAbsent(taskID, row); // First row wins if an ID repeats
+        rowsByDeveloper.get(developerCode).add(row);
+        rowsByStatus.get(statusCode).add(row);
+        if (developerCode == hoursByDeveloper.length) {
+            hoursByDeveloper = Arrays.copyOf(hoursByDeveloper, developerCode * 2);
+        }
+        hoursByDeveloper[developerCode] += duration;
+        totalHours += duration;
+        if (longestRow < 0 || duration > taskDurations[longestRow]) {
+            longestRow = row;
+        }
+        return row;
+    }
+
+    /**
+     * Adds a row for an existing Task.
+     *
+     * @return the row number of the new task
+     */
+    public int add(Task task) {
+        return add(task.getDeveloperDetails(), task.getTaskName(), task.getTaskID(),
+                task.getTaskDuration(), task.getTaskStatus());
+    }
+
+    /** @return number of tasks in the table */
+    public int size() {
+        return size;
+    }
+
+    public String getDeveloper(int row) {
+        checkRow(row);
+        return developers.get(developerCodes[row]);
+    }
+
+    public String getTaskName(int row) {
+        checkRow(row);
+        return taskNames[row];
+    }
+
+    public String getTaskID(int row) {
+        checkRow(row);
+        return taskIDs[row];
+    }
+
+    public int getTaskDuration(int row) {
+        checkRow(row);
+        return taskDurations[row];
+    }
+
+    public String getTaskStatus(int row) {
+        checkRow(row);
+        return statuses.get(statusCodes[row]);
+    }
+
+    /**
+     * @return the row of the task with the longest duration, or -1 if the table is empty
+     */
+    public int findLongestTask() {
+        return longestRow;
+    }
+
+    /** @return the sum of all task durations */
+    public long getTotalHours() {
+        return totalHours;
+    }
+
+    /**
+     * @return total hours for one developer (0 if the developer has no tasks)
+     */
+    public long getHoursForDeveloper(String developer) {
+        Integer code = developerCodeByName.get(developer);
+        return code == null ? 0 : hoursByDeveloper[code];
+    }
+
+    /**
+     * @return total hours for every developer, in the order developers first appeared
+     */
+    public Map<String, Long> getHoursByDeveloper() {
+        Map<String, Long> hours = new LinkedHashMap<>();
+        for (int code = 0; code < developers.size(); code++) {
+            hours.put(developers.get(code), hoursByDeveloper[code]);
+        }
+        return hours;
+    }
+
+    /**
+     * @return rows belonging to a developer, in the order they were added
+     */
+    public int[] getRowsForDeveloper(String developer) {
+        Integer code = developerCodeByName.get(developer);
+        return code == null ? new int[0] : rowsByDeveloper.get(code).toArray();
+    }
+
+    /**
+     * @return rows with the given status, in the order they were added
+     */
+    public int[] getRowsWithStatus(String status) {
+        Integer code = statusCodeByName.get(status);
+        return code == null ? new int[0] : rowsByStatus.get(code).toArray();
+    }
+
+    /**
+     * Finds a task by its ID.
+     *
+     * @return the row, or -1 if there is no such task
+     */
+    public int findByTaskID(String taskID) {
+        Integer row = rowByTaskID.get(taskID);
+        return row == null ? -1 : row;
+    }
+
+    private static int code(String value, List<String> values, Map<String, Integer> codes, List<IntList> index) {
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = values.size();
+            values.add(value);
+            codes.put(value, code);
+            index.add(new IntList());
+        }
+        return code;
+    }
+
+    private void grow() {
+        int capacity = taskDurations.length * 2;
+        taskNames = Arrays.copyOf(taskNames, capacity);
+        taskIDs = Arrays.copyOf(taskIDs, capacity);
+        taskDurations = Arrays.copyOf(taskDurations, capacity);
+        developerCodes = Arrays.copyOf(developerCodes, capacity);
+        statusCodes = Arrays.copyOf(statusCodes, capacity);
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+        }
+    }
+
+    /**
+     * A growable list of ints (avoids boxing every row number).
+     */
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -1,35 +1,167 @@
 
 package part1;
 
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
 /**
  *Student Number st10456177
  * Full Name:Monde Matlhaku
- * 
- * 
+ *
+ * Stores the registered user as a salted PBKDF2 hash (never the plaintext password).
+ * Verification runs on a small dedicated thread pool so the Swing EDT is never
+ * blocked, and recent results are kept in a bounded cache.
  */
 public class UserCredentials {
+    private static final int CACHE_SIZE = Integer.getInteger("quickchat.credentials.cacheSize", 256);
+    private static final int VERIFIER_THREADS = Integer.getInteger("quickchat.credentials.threads",
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+
     private static UserCredentials instance;
     private String username;
-    private String password;
+    private String passwordHash;
+    private final PasswordHasher hasher = new PasswordHasher();
+
+    // Random key for the cache's HMAC, made fresh each run and never stored
+    private static final byte[] CACHE_KEY_SECRET = new byte[32];
+
+    static {
+        new SecureRandom().nextBytes(CACHE_KEY_SECRET);
+    }
+
+    // Bounded LRU cache: key is an HMAC of (stored hash + attempt), value is the result
+    private final Map<String, Boolean> verificationCache = Collections.synchronizedMap(
+            new LinkedHashMap<String, Boolean>(CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            });
+
+    // Dedicated pool for the (deliberately slow) hash checks
+    private final ExecutorService verifierPool = Executors.newFixedThreadPool(VERIFIER_THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "credential-verifier");
+        thread.setDaemon(true); // Don't keep the app alive on exit
+        return thread;
+    });
 
-    private UserCredentials() 
+    private UserCredentials()
     {
-    
+
     }
 
-    public static UserCredentials getInstance() {
+    public static synchronized UserCredentials getInstance() {
         if (instance == null) {
             instance = new UserCredentials();
         }
         return instance;
     }
 
-    public void setCredentials(String username, String password) {
+    public synchronized void setCredentials(String username, String password) {
         this.username = username;
-        this.password = password;
+        this.passwordHash = hasher.hash(password);
+        verificationCache.clear(); // Old results no longer apply
+    }
+
+    /** @return the registered username, or null if nobody has registered yet */
+    public synchronized String getUsername() {
+        return username;
     }
 
     public boolean checkCredentials(String username, String password) {
-        return this.username != null && this.username.equals(username) && this.password != null && this.password.equals(password);
+        String storedUsername;
+        String storedHash;
+        synchronized (this) {
+            storedUsername = this.username;
+            storedHash = this.passwordHash;
+        }
+        if (storedUsername == null || !storedUsername.equals(username)) {
+            return false;
+        }
+        return verify(storedHash, password);
+    }
+
+    /**
+     * Checks a password against a stored hash, using the cache when the same
+     * attempt was checked before.
+     */
+    private boolean verify(String storedHash, String password) {
+        if (storedHash == null || password == null) {
+            return false;
+        }
+
+        String cacheKey = cacheKey(storedHash, password);
+        Boolean cached = verificationCache.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+
+        boolean result = hasher.verify(password, storedHash);
+        verificationCache.put(cacheKey, result);
+        return result;
+    }
+
+    /**
+     * Checks credentials on the verification pool instead of the calling thread.
+     *
+     * @return a future that completes with the check result
+     */
+    public CompletableFuture<Boolean> checkCredentialsAsync(String username, String password) {
+        return CompletableFuture.supplyAsync(() -> checkCredentials(username, password), verifierPool);
+    }
+
+    /**
+     * Checks credentials against every user in a credential file (not just the
+     * one registered in this process), on the verification pool.
+     *
+     * @return a future that completes with the check result
+     */
+    public CompletableFuture<Boolean> checkRegisteredAsync(CredentialFile file, String username, String password) {
+        return CompletableFuture.supplyAsync(() -> verify(file.getPasswordHash(username), password), verifierPool);
+    }
+
+    /**
+     * Adds the registered user's hash to a credential file, so other processes
+     * (the DeliveryServer) can check their password.
+     *
+     * @return false if nobody has registered or the file could not be written
+     */
+    public boolean saveTo(CredentialFile file) {
+        String storedUsername;
+        String storedHash;
+        synchronized (this) {
+            storedUsername = this.username;
+            storedHash = this.passwordHash;
+        }
+        return storedUsername != null && file.register(storedUsername, storedHash);
+    }
+
+    /**
+     * Builds the cache key with an HMAC under a secret that only lives in this process.
+     * A plain hash would let anyone who can read memory test password guesses
+     * at SHA-256 speed against the cached keys, skipping the PBKDF2 work factor.
+     */
+    private static String cacheKey(String storedHash, String password) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(CACHE_KEY_SECRET, "HmacSHA256"));
+            mac.update(storedHash.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            mac.update(password.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(mac.doFinal());
+        } catch (GeneralSecurityException e) {
+            // HmacSHA256 is always available
+            throw new IllegalStateException(e);
+        }
     }
 }
@@ -2,8 +2,9 @@ package part1;
 
 import javax.swing.*;
 import java.awt.*;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 
 /**
  * The Welcome class displays a welcome message and automatically opens the chat menu.
@@ -12,12 +13,8 @@ import java.awt.event.ActionListener;
  * Assignment:PART2 CONTINUES
  */
 public class Welcome extends javax.swing.JFrame {
-private String[] developers = new String[100];
-    private String[] taskNames = new String[100];
-    private String[] taskIDs = new String[100];
-    private int[] taskDurations = new int[100];
-    private String[] taskStatuses = new String[100];
-    private int taskCounter = 0; // Counter to track task numbers
+    // Growable task table (developer, name, ID, duration, status) - no fixed task limit
+    private final TaskTable taskTable = new TaskTable();
 
     /**
      * Creates new form Welcome
@@ -29,26 +26,57 @@ private String[] developers = new String[100];
         setTitle("Welcome to Deacon chat");
         setSize(500, 300);
         setLocationRelativeTo(null);
+
+        loadTasks();
         
-        // Show "Signed in successfully" message
+        // Show "Signed in successfully" message (with a task summary if there are saved tasks)
+        String summary = taskTable.size() == 0 ? ""
+                : "\nYou have " + taskTable.size() + " task(s), " + taskTable.getTotalHours() + " hours in total.";
         JOptionPane.showMessageDialog(this, 
-                "Signed in successfully!", 
+                "Signed in successfully!" + summary, 
                 "Login Success", 
                 JOptionPane.INFORMATION_MESSAGE);
         
-        // Add a timer to automatically open the chat menu after a short delay
-        Timer timer = new Timer(1500, new ActionListener() {
+        // Open the chat menu as soon as the dialog is closed (no fixed delay).
+        // Queued so it runs after the caller's setVisible(true).
+        EventQueue.invokeLater(new Runnable() {
             @Override
-            public void actionPerformed(ActionEvent e) {
-                // Open the chat menu
+            public void run() {
+                // Open the chat menu (it shows a loading state until messages are ready)
                 ChatMenu chatMenu = new ChatMenu();
                 chatMenu.setVisible(true);
                 // Close this welcome screen
                 dispose();
             }
         });
-        timer.setRepeats(false); // Only run once
-        timer.start();
+    }
+
+    /**
+     * Fills the task table with the tasks already registered (e.g. restored from the journal),
+     * in task-number order.
+     */
+    private void loadTasks() {
+        List<Task> tasks = new ArrayList<>(TaskRegistry.getInstance().getTasks());
+        tasks.sort(Comparator.comparingInt(task -> TaskJournal.numberFromID(task.getTaskID())));
+        for (Task task : tasks) {
+            taskTable.add(task);
+        }
+    }
+
+    /**
+     * Creates and registers a new task, and adds it to the task table.
+     *
+     * @return the new task
+     */
+    public Task addTask(String taskName, String taskDescription, String developerDetails, int taskDuration, String taskStatus) {
+        Task task = Task.create(taskName, taskDescription, developerDetails, taskDuration, taskStatus);
+        taskTable.add(task);
+        return task;
+    }
+
+    /** @return the tasks shown by this screen */
+    public TaskTable getTaskTable() {
+        return taskTable;
     }
 
     /**
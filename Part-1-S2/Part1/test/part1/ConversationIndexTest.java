@@ -0,0 +1,138 @@
+package part1;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for ConversationIndex.
+ */
+public class ConversationIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static List<Integer> numbers(ConversationIndex.Page page) {
+        List<Integer> numbers = new ArrayList<>();
+        for (Message message : page.getMessages()) {
+            numbers.add(message.getMessageNumber());
+        }
+        return numbers;
+    }
+
+    private static ConversationIndex indexWith(String recipient, int... messageNumbers) {
+        ConversationIndex index = new ConversationIndex();
+        for (int number : messageNumbers) {
+            index.add(new Message(number, "alice", recipient, "Message " + number));
+        }
+        return index;
+    }
+
+    /**
+     * Paging from NEWEST walks back through the timeline; each page is oldest first,
+     * and the last page says there is nothing older.
+     */
+    @Test
+    public void testPagesWalkBackOldestFirst() {
+        ConversationIndex index = indexWith("bob", 1, 2, 3, 4, 5, 6, 7);
+
+        ConversationIndex.Page newest = index.getPage("bob", ConversationIndex.NEWEST, 3);
+        assertEquals(Arrays.asList(5, 6, 7), numbers(newest));
+        assertTrue(newest.hasMore());
+        assertEquals(5, newest.getNextCursor());
+
+        ConversationIndex.Page middle = index.getPage("bob", newest.getNextCursor(), 3);
+        assertEquals(Arrays.asList(2, 3, 4), numbers(middle));
+        assertTrue(middle.hasMore());
+
+        ConversationIndex.Page oldest = index.getPage("bob", middle.getNextCursor(), 3);
+        assertEquals(Collections.singletonList(1), numbers(oldest));
+        assertFalse(oldest.hasMore());
+        assertEquals(-1, oldest.getNextCursor());
+    }
+
+    /**
+     * A page that ends exactly at the start of the timeline has no next cursor,
+     * and cursors between numbers (gaps left by removals) still work.
+     */
+    @Test
+    public void testPageBoundaries() {
+        ConversationIndex index = indexWith("bob", 10, 20, 30, 40);
+
+        ConversationIndex.Page all = index.getPage("bob", ConversationIndex.NEWEST, 4);
+        assertEquals(Arrays.asList(10, 20, 30, 40), numbers(all));
+        assertFalse(all.hasMore());
+
+        assertEquals(Arrays.asList(20, 30), numbers(index.getPage("bob", 35, 2)));
+        assertEquals(Arrays.asList(20, 30), numbers(index.getPage("bob", 40, 2))); // The cursor itself is excluded
+        assertTrue(index.getPage("bob", 10, 5).getMessages().isEmpty());
+        assertFalse(index.getPage("bob", 10, 5).hasMore());
+        assertTrue(index.getPage("bob", ConversationIndex.NEWEST, 0).getMessages().isEmpty());
+        assertTrue(index.getPage("nobody", ConversationIndex.NEWEST, 5).getMessages().isEmpty());
+    }
+
+    /**
+     * Messages added out of order land in number order, and recipients are matched
+     * ignoring case and surrounding spaces.
+     */
+    @Test
+    public void testOutOfOrderAddAndRecipientKey() {
+        ConversationIndex index = new ConversationIndex();
+        index.add(new Message(3, "alice", "Dylan", "three"));
+        index.add(new Message(1, "alice", "dylan ", "one"));
+        index.add(new Message(2, "alice", " DYLAN", "two"));
+        index.add(new Message(4, "alice", "Dylan Smith", "someone else"));
+
+        assertEquals(3, index.size("dylan"));
+        assertEquals(Arrays.asList(1, 2, 3), numbers(index.getPage("Dylan", ConversationIndex.NEWEST, 10)));
+        assertEquals(1, index.size("dylan smith"));
+        assertEquals(3, index.getTimeline(" dylan").size());
+    }
+
+    /**
+     * remove() and removeAll() take messages out of their timelines, and an empty
+     * timeline is dropped.
+     */
+    @Test
+    public void testRemove() {
+        ConversationIndex index = new ConversationIndex();
+        Message first = new Message(1, "alice", "bob", "one");
+        Message second = new Message(2, "alice", "Bob", "two");
+        Message third = new Message(3, "alice", "bob", "three");
+        Message toCarol = new Message(4, "alice", "carol", "four");
+        for (Message message : Arrays.asList(first, second, third, toCarol)) {
+            index.add(message);
+        }
+
+        index.remove(second);
+        assertEquals(Arrays.asList(1, 3), numbers(index.getPage("bob", ConversationIndex.NEWEST, 10)));
+        index.remove(second); // Not there any more: no change
+        assertEquals(2, index.size("bob"));
+
+        index.removeAll(new HashSet<>(Arrays.asList(first, third)));
+        assertEquals(0, index.size("bob"));
+        assertTrue(index.getTimeline("bob").isEmpty());
+        assertEquals(1, index.size("carol"));
+    }
+
+    /**
+     * MessageStorage finds a recipient's messages the same way as its conversation pages.
+     */
+    @Test
+    public void testStorageRecipientLookupMatchesIndex() {
+        MessageStorage storage = new MessageStorage("alice", folder.getRoot().toPath());
+        storage.addMessage(new Message(1, "alice", "Pa", "to Pa"));
+        storage.addMessage(new Message(2, "alice", "Paul", "to Paul"));
+        storage.addMessage(new Message(3, "alice", "pa ", "to Pa again"));
+
+        List<Message> toPa = storage.getMessagesByRecipient("PA");
+        assertEquals(2, toPa.size());
+        assertEquals(toPa, storage.getConversationPage("PA", ConversationIndex.NEWEST, 10).getMessages());
+    }
+}
@@ -0,0 +1,348 @@
+package part1;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for DeliveryServer.
+ */
+public class DeliveryServerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory;
+    private DeliveryServer server;
+    private final List<Client> clients = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        directory = folder.getRoot().toPath();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        for (Client client : clients) {
+            client.socket.close();
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    /**
+     * Starts a server where each user's password is "secret".
+     */
+    private DeliveryServer startServer() throws IOException {
+        return startServer((user, password) -> CompletableFuture.completedFuture("secret".equals(password)));
+    }
+
+    private DeliveryServer startServer(DeliveryServer.Authenticator authenticator) throws IOException {
+        server = new DeliveryServer(0, directory, authenticator);
+        return server;
+    }
+
+    private Client connect() throws IOException {
+        Client client = new Client(server.getPort());
+        clients.add(client);
+        return client;
+    }
+
+    /** Connects and logs in with the password "secret". */
+    private Client login(String user) throws IOException {
+        Client client = connect();
+        client.write(hello(user, "secret"));
+        JSONObject welcome = client.next();
+        assertEquals("welcome", welcome.get("type"));
+        assertEquals(user, welcome.get("user"));
+        return client;
+    }
+
+    private static String hello(String user, String password) {
+        return "{\"type\":\"hello\",\"user\":\"" + user + "\",\"password\":\"" + password + "\"}\n";
+    }
+
+    private static String send(long seq, String recipient, String content) {
+        return "{\"type\":\"send\",\"seq\":" + seq + ",\"recipient\":\"" + recipient + "\",\"content\":\"" + content + "\"}\n";
+    }
+
+    private static void assertAck(JSONObject ack, long seq, String status) {
+        assertEquals("ack", ack.get("type"));
+        assertEquals(seq, ((Number) ack.get("seq")).longValue());
+        assertEquals(status, ack.get("status"));
+    }
+
+    /**
+     * Sends before a hello and bad passwords are refused; blank lines are skipped;
+     * a line split over two writes, and two lines in one write, are each read whole.
+     */
+    @Test
+    public void testFramingAndHello() throws Exception {
+        startServer();
+        Client client = connect();
+
+        client.write(send(1, "bob", "too early"));
+        assertEquals("Say hello before sending", client.next().get("reason"));
+        client.write("\n  \nnot json\n");
+        assertEquals("Invalid JSON", client.next().get("reason"));
+        client.write(hello("alice", "wrong"));
+        assertEquals("Invalid username or password", client.next().get("reason"));
+
+        client.write("{\"type\":\"hel");
+        Thread.sleep(50);
+        client.write("lo\",\"user\":\"alice\",\"password\":\"secret\"}\n");
+        assertEquals("welcome", client.next().get("type"));
+
+        client.write(send(2, "bob", "first") + send(3, "bob", "second"));
+        assertAck(client.next(), 2, "Sent");
+        assertAck(client.next(), 3, "Sent");
+    }
+
+    /**
+     * A line longer than the limit closes the connection instead of buffering forever.
+     */
+    @Test
+    public void testOverlongLineClosesConnection() throws Exception {
+        startServer();
+        Client client = connect();
+        char[] line = new char[70 * 1024];
+        Arrays.fill(line, 'a');
+        try {
+            client.write(new String(line));
+            assertNull(client.reader.readLine());
+        } catch (SocketException e) {
+            // Reset while writing: closed just the same
+        }
+    }
+
+    /**
+     * A send is acked with its number and ID, delivered to the recipient, and in
+     * the sender's partition file once the server has closed.
+     */
+    @Test
+    public void testAckAndDelivery() throws Exception {
+        startServer();
+        Client alice = login("alice");
+        Client bob = login("bob");
+
+        alice.write(send(7, "bob", "Hello Bob"));
+        JSONObject ack = alice.next();
+        assertAck(ack, 7, "Sent");
+        assertEquals(1L, ack.get("messageNumber"));
+
+        JSONObject delivery = bob.next();
+        assertEquals("deliver", delivery.get("type"));
+        assertEquals(ack.get("messageId"), delivery.get("messageId"));
+        assertEquals("alice", delivery.get("sender"));
+        assertEquals("Hello Bob", delivery.get("content"));
+
+        server.close();
+        List<Message> saved = new MessageStorage("alice", directory).getMessages();
+        assertEquals(1, saved.size());
+        assertEquals("Sent", saved.get(0).getStatus());
+        assertEquals(ack.get("messageId"), saved.get(0).getMessageId());
+    }
+
+    /**
+     * Sends that arrive together are committed together: fewer commits than
+     * messages, numbers in order, every acked message already in the journal,
+     * and the partition file saved in full on close.
+     */
+    @Test
+    public void testGroupCommitJournalsBeforeAck() throws Exception {
+        startServer();
+        Client alice = login("alice");
+        int count = 300;
+        StringBuilder burst = new StringBuilder();
+        for (int i = 1; i <= count; i++) {
+            burst.append(send(i, "bob", "Message " + i));
+        }
+        alice.write(burst.toString());
+        for (int i = 1; i <= count; i++) {
+            JSONObject ack = alice.next();
+            assertAck(ack, i, "Sent");
+            assertEquals((long) i, ack.get("messageNumber"));
+        }
+        assertEquals(count, server.getMessagesSaved());
+        assertTrue("Expected group commits, got " + server.getSaveBatches(), server.getSaveBatches() < count);
+
+        String partitionFile = directory.resolve(MessageStorage.partitionFile("alice")).toString();
+        try (MessageJournal journal = new MessageJournal(partitionFile)) {
+            assertEquals(count, journal.replay().size());
+        }
+        assertFalse(Files.exists(Paths.get(partitionFile))); // Not saved in full yet
+
+        server.close();
+        assertEquals(count, new MessageStorage("alice", directory).getMessages().size());
+        assertEquals(0, Files.size(Paths.get(partitionFile + ".journal")));
+    }
+
+    /**
+     * A commit that fails is taken back: its number is used again and the same
+     * message can be resent without being called a duplicate. A failure on the
+     * storage thread is acked "Failed" and later sends still go through.
+     */
+    @Test
+    public void testFailedCommitIsRolledBack() throws Exception {
+        FlakyStorage storage = new FlakyStorage(directory);
+        storage.setDuplicateWindow(TimeUnit.HOURS.toMillis(1));
+        startServer();
+        server.attach(storage, Runnable::run);
+
+        storage.failNext = true;
+        assertEquals("Failed", server.send(new Message(1, "alice", "bob", "Hello")));
+        assertTrue(storage.getMessages().isEmpty());
+        assertEquals("Sent", server.send(new Message(1, "alice", "bob", "Hello")));
+        assertEquals("Rejected", server.send(new Message(2, "alice", "bob", "Hello")));
+
+        Client alice = login("alice");
+        storage.failNext = true;
+        alice.write(send(1, "carol", "Hi Carol"));
+        assertAck(alice.next(), 1, "Failed");
+        alice.write(send(2, "carol", "Hi Carol"));
+        JSONObject ack = alice.next();
+        assertAck(ack, 2, "Sent");
+        assertEquals(2L, ack.get("messageNumber"));
+        assertEquals(2, server.getMessagesSaved());
+    }
+
+    /**
+     * With a partition attached, client sends for that user are committed on its
+     * owner, and a send from this process is delivered to connected recipients.
+     */
+    @Test
+    public void testAttachedPartitionSharesOneWriter() throws Exception {
+        ExecutorService owner = Executors.newSingleThreadExecutor();
+        try {
+            MessageStorage storage = owner.submit(() -> new MessageStorage("alice", directory)).get();
+            startServer();
+            owner.submit(() -> {
+                server.attach(storage, owner);
+                return null;
+            }).get();
+
+            Client alice = login("alice");
+            Client bob = login("bob");
+            alice.write(send(1, "bob", "From a client"));
+            assertAck(alice.next(), 1, "Sent");
+            assertEquals("From a client", bob.next().get("content"));
+
+            String status = owner.submit(() -> server.send(new Message(2, "alice", "bob", "From the menu"))).get();
+            assertEquals("Sent", status);
+            assertEquals("From the menu", bob.next().get("content"));
+            assertEquals(2, (int) owner.submit(() -> storage.getMessages().size()).get());
+        } finally {
+            owner.shutdown();
+        }
+    }
+
+    /**
+     * The server doesn't write a partition another writer has claimed.
+     */
+    @Test
+    public void testClaimedPartitionIsNotWritten() throws Exception {
+        FileLock claim = new MessageStorage("alice", directory).claim();
+        assertNotNull(claim);
+        startServer();
+        Client alice = login("alice");
+
+        alice.write(send(1, "bob", "Blocked"));
+        assertAck(alice.next(), 1, "Failed");
+        claim.channel().close();
+        alice.write(send(2, "bob", "Allowed"));
+        assertAck(alice.next(), 2, "Sent");
+    }
+
+    /**
+     * The default authentication accepts users from the credential file, which
+     * another CredentialFile (e.g. another process) reads back.
+     */
+    @Test
+    public void testHelloAgainstCredentialFile() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("credentials.properties");
+        CredentialFile credentials = new CredentialFile(file);
+        assertTrue(credentials.register("ca_ro", new PasswordHasher(1000).hash("Secret1!")));
+        assertNotNull(new CredentialFile(file).getPasswordHash("ca_ro"));
+
+        startServer(DeliveryServer.registeredUsers(credentials));
+        Client client = connect();
+        client.write(hello("ca_ro", "Wrong1!"));
+        assertEquals("Invalid username or password", client.next().get("reason"));
+        client.write(hello("nobody", "Secret1!"));
+        assertEquals("Invalid username or password", client.next().get("reason"));
+        client.write(hello("ca_ro", "Secret1!"));
+        assertEquals("welcome", client.next().get("type"));
+    }
+
+    /**
+     * A partition whose addMessage fails (after adding) when told to.
+     */
+    private static final class FlakyStorage extends MessageStorage {
+        private volatile boolean failNext;
+
+        FlakyStorage(Path directory) {
+            super("alice", directory);
+        }
+
+        @Override
+        public boolean addMessage(Message message) {
+            boolean added = super.addMessage(message);
+            if (failNext) {
+                failNext = false;
+                throw new IllegalStateException("Disk full");
+            }
+            return added;
+        }
+    }
+
+    /**
+     * A blocking line-at-a-time client.
+     */
+    private static final class Client {
+        private final Socket socket;
+        private final BufferedReader reader;
+        private final OutputStream out;
+
+        Client(int port) throws IOException {
+            socket = new Socket("127.0.0.1", port);
+            socket.setSoTimeout(10000);
+            reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            out = socket.getOutputStream();
+        }
+
+        void write(String text) throws IOException {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+
+        JSONObject next() throws IOException {
+            String line = reader.readLine();
+            assertNotNull("Connection closed", line);
+            return (JSONObject) JSONValue.parse(line);
+        }
+    }
+}
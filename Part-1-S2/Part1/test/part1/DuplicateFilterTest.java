@@ -0,0 +1,90 @@
+package part1;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for DuplicateFilter.
+ */
+public class DuplicateFilterTest {
+
+    private static final long WINDOW = 60_000;
+    private static final long NOW = 1_700_000_000_000L;
+
+    /**
+     * The same content to the same recipient inside the window is a duplicate;
+     * recipients match ignoring case and surrounding spaces.
+     */
+    @Test
+    public void testRepeatInsideWindowIsDuplicate() {
+        DuplicateFilter filter = new DuplicateFilter(WINDOW);
+        assertFalse(filter.isDuplicate(new Message(1, "alice", "bob", "Hello"), NOW));
+        assertTrue(filter.isDuplicate(new Message(2, "alice", "bob", "Hello"), NOW + WINDOW - 1));
+        assertTrue(filter.isDuplicate(new Message(3, "alice", " Bob ", "Hello"), NOW + 10));
+
+        assertFalse(filter.isDuplicate(new Message(4, "alice", "carol", "Hello"), NOW + 10));
+        assertFalse(filter.isDuplicate(new Message(5, "alice", "bob", "Hello again"), NOW + 10));
+    }
+
+    /**
+     * Once the window has passed the message is accepted again, and the window
+     * starts over from then.
+     */
+    @Test
+    public void testRepeatAfterWindowIsAccepted() {
+        DuplicateFilter filter = new DuplicateFilter(WINDOW);
+        assertFalse(filter.isDuplicate(new Message(1, "alice", "bob", "Hello"), NOW));
+        assertFalse(filter.isDuplicate(new Message(2, "alice", "bob", "Hello"), NOW + WINDOW));
+        assertTrue(filter.isDuplicate(new Message(3, "alice", "bob", "Hello"), NOW + WINDOW + 1));
+    }
+
+    /**
+     * A Bloom filter hit for a key that was never seen falls through to the exact
+     * index and is accepted. "xz" and "y[" have the same String hash code, so
+     * their keys set exactly the same Bloom bits.
+     */
+    @Test
+    public void testBloomFalsePositiveFallsThrough() {
+        assertEquals("xz".hashCode(), "y[".hashCode());
+        DuplicateFilter filter = new DuplicateFilter(WINDOW);
+        assertFalse(filter.isDuplicate(new Message(1, "alice", "xz", "Hello"), NOW));
+        assertFalse(filter.isDuplicate(new Message(2, "alice", "y[", "Hello"), NOW + 1));
+        assertTrue(filter.isDuplicate(new Message(3, "alice", "y[", "Hello"), NOW + 2));
+    }
+
+    /**
+     * remember() seeds the filter with existing messages at their own time.
+     */
+    @Test
+    public void testRememberSeedsFilter() {
+        DuplicateFilter filter = new DuplicateFilter(WINDOW);
+        filter.remember(new Message(1, "alice", "bob", "Hello"), NOW - WINDOW / 2);
+        filter.remember(new Message(2, "alice", "carol", "Hello"), NOW - WINDOW * 2);
+
+        assertTrue(filter.isDuplicate(new Message(3, "alice", "bob", "Hello"), NOW));
+        assertFalse(filter.isDuplicate(new Message(4, "alice", "carol", "Hello"), NOW)); // Seen too long ago
+        assertEquals(WINDOW, filter.getWindowMillis());
+    }
+
+    /**
+     * Pruning stale keys keeps recent ones, and a window of Long.MAX_VALUE never expires.
+     */
+    @Test
+    public void testPruneKeepsRecentKeys() {
+        DuplicateFilter filter = new DuplicateFilter(WINDOW);
+        assertFalse(filter.isDuplicate(new Message(1, "alice", "bob", "Keep me"), NOW + WINDOW));
+        for (int i = 0; i < 3000; i++) {
+            filter.remember(new Message(i, "alice", "contact" + i, "Old " + i), NOW);
+        }
+        // These land after the old keys have expired, so pruning runs and drops them
+        for (int i = 0; i < 1100; i++) {
+            assertFalse(filter.isDuplicate(new Message(i, "alice", "new" + i, "New " + i), NOW + WINDOW + 10));
+        }
+        assertTrue(filter.isDuplicate(new Message(2, "alice", "bob", "Keep me"), NOW + WINDOW + 20));
+        assertFalse(filter.isDuplicate(new Message(3, "alice", "contact5", "Old 5"), NOW + WINDOW + 20));
+
+        DuplicateFilter forever = new DuplicateFilter(Long.MAX_VALUE);
+        assertFalse(forever.isDuplicate(new Message(1, "alice", "bob", "Hello"), 0));
+        assertTrue(forever.isDuplicate(new Message(2, "alice", "bob", "Hello"), NOW));
+    }
+}
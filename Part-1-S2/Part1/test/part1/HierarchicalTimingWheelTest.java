@@ -0,0 +1,84 @@
+package part1;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for HierarchicalTimingWheel.
+ */
+public class HierarchicalTimingWheelTest {
+
+    /**
+     * Entries fire in deadline order, and not before their deadline.
+     */
+    @Test
+    public void testExpiresInDeadlineOrder() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(10, 8, 3, 0);
+        wheel.add("c", 300);
+        wheel.add("a", 25);
+        wheel.add("b", 90);
+
+        List<String> fired = new ArrayList<>();
+        wheel.advanceTo(80, fired::add);
+        assertEquals(1, fired.size());
+        assertEquals("a", fired.get(0));
+
+        wheel.advanceTo(1000, fired::add);
+        assertEquals(3, fired.size());
+        assertEquals("b", fired.get(1));
+        assertEquals("c", fired.get(2));
+        assertEquals(0, wheel.size());
+    }
+
+    /**
+     * A cancelled entry never fires and can't be cancelled twice.
+     */
+    @Test
+    public void testCancel() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(10, 8, 3, 0);
+        HierarchicalTimingWheel.Entry<String> keep = wheel.add("keep", 500);
+        HierarchicalTimingWheel.Entry<String> drop = wheel.add("drop", 500);
+
+        assertTrue(wheel.cancel(drop));
+        assertFalse(wheel.cancel(drop));
+        assertFalse(drop.isPending());
+
+        List<String> fired = new ArrayList<>();
+        wheel.advanceTo(1000, fired::add);
+        assertEquals(1, fired.size());
+        assertEquals("keep", fired.get(0));
+        assertFalse(keep.isPending());
+        assertFalse(wheel.cancel(keep));
+    }
+
+    /**
+     * Deadlines beyond the top level's range still fire on time.
+     */
+    @Test
+    public void testDeadlineBeyondRange() {
+        // Range is 10 ms * 4^2 = 160 ms
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(10, 4, 2, 0);
+        wheel.add("far", 1000);
+
+        List<String> fired = new ArrayList<>();
+        wheel.advanceTo(990, fired::add);
+        assertTrue(fired.isEmpty());
+        wheel.advanceTo(1000, fired::add);
+        assertEquals(1, fired.size());
+    }
+
+    /**
+     * A deadline in the past fires on the next tick.
+     */
+    @Test
+    public void testPastDeadlineFiresOnNextTick() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(10, 8, 3, 5000);
+        wheel.add("overdue", 100);
+
+        List<String> fired = new ArrayList<>();
+        wheel.advanceTo(5010, fired::add);
+        assertEquals(1, fired.size());
+    }
+}
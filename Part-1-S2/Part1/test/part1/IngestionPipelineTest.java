@@ -0,0 +1,96 @@
+package part1;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for IngestionPipeline.
+ */
+public class IngestionPipelineTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Messages come out numbered in submission order and are in the partition after close().
+     */
+    @Test
+    public void testMessagesAreNumberedInOrder() throws Exception {
+        MessageStorage storage = new MessageStorage("alice", folder.getRoot().toPath());
+        List<CompletableFuture<Message>> futures = new ArrayList<>();
+        try (IngestionPipeline pipeline = new IngestionPipeline(storage)) {
+            for (int i = 0; i < 1000; i++) {
+                futures.add(pipeline.submit("alice", "bob", "message " + i, "Sent"));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                Message message = futures.get(i).get(10, TimeUnit.SECONDS);
+                assertEquals(i + 1, message.getMessageNumber());
+                assertEquals("message " + i, message.getContent());
+            }
+        }
+
+        MessageStorage reloaded = new MessageStorage("alice", folder.getRoot().toPath());
+        assertEquals(1000, reloaded.getMessages().size());
+    }
+
+    /**
+     * A submission that fails before it is numbered (here: the caller is
+     * interrupted) doesn't hold up the messages after it, and close() returns.
+     */
+    @Test(timeout = 20_000)
+    public void testFailedSubmissionDoesNotStallLaterMessages() throws Exception {
+        MessageStorage storage = new MessageStorage("alice", folder.getRoot().toPath());
+        try (IngestionPipeline pipeline = new IngestionPipeline(storage)) {
+            CompletableFuture<Message> before = pipeline.submit("alice", "bob", "before", "Sent");
+
+            Thread.currentThread().interrupt();
+            CompletableFuture<Message> interrupted = pipeline.submit("alice", "bob", "interrupted", "Sent");
+            assertTrue(Thread.interrupted()); // submit() keeps the caller's interrupt
+
+            CompletableFuture<Message> after = pipeline.submit("alice", "bob", "after", "Sent");
+
+            try {
+                interrupted.get(5, TimeUnit.SECONDS);
+                fail("The interrupted submission should fail");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof InterruptedException);
+            }
+            assertEquals(1, before.get(5, TimeUnit.SECONDS).getMessageNumber());
+            assertEquals(2, after.get(5, TimeUnit.SECONDS).getMessageNumber()); // The failed one took no number
+        }
+        assertEquals(2, new MessageStorage("alice", folder.getRoot().toPath()).getMessages().size());
+    }
+
+    /**
+     * Journaled messages the partition file doesn't have yet are replayed when the pipeline opens.
+     */
+    @Test
+    public void testJournaledMessagesAreRecovered() throws Exception {
+        MessageStorage storage = new MessageStorage("alice", folder.getRoot().toPath());
+        List<Message> lost = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            Message message = new Message(i, "alice", "bob", "journaled " + i);
+            message.setStatus("Sent");
+            lost.add(message);
+        }
+        // As if a run crashed after journaling but before saving the partition
+        try (MessageJournal journal = new MessageJournal(storage.getStorageFile())) {
+            journal.append(lost);
+        }
+
+        try (IngestionPipeline pipeline = new IngestionPipeline(storage)) {
+            assertEquals(3, storage.getMessages().size());
+            assertEquals(4, pipeline.submit("alice", "bob", "new", "Sent").get(5, TimeUnit.SECONDS).getMessageNumber());
+        }
+        MessageStorage reloaded = new MessageStorage("alice", folder.getRoot().toPath());
+        assertEquals(4, reloaded.getMessages().size());
+        assertEquals("journaled 2", reloaded.getMessages().get(1).getContent());
+    }
+}
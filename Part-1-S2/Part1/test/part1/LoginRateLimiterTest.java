@@ -0,0 +1,85 @@
+package part1;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for LoginRateLimiter, driven by a fake clock.
+ */
+public class LoginRateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    /**
+     * 3 attempts per user, one back every second; 10 overall, one back every 100 ms.
+     */
+    private LoginRateLimiter limiter() {
+        return new LoginRateLimiter(3, 1000, 10, 100, 1000, now::get);
+    }
+
+    /**
+     * A user is locked out after the burst and gets one attempt back per refill period.
+     */
+    @Test
+    public void testLockoutAndRefill() {
+        LoginRateLimiter limiter = limiter();
+        assertTrue(limiter.tryAcquire("Kyl_1"));
+        assertTrue(limiter.tryAcquire("Kyl_1"));
+        assertTrue(limiter.tryAcquire("Kyl_1"));
+        assertFalse(limiter.tryAcquire("Kyl_1"));
+
+        now.addAndGet(999);
+        assertFalse(limiter.tryAcquire("Kyl_1"));
+        now.addAndGet(1);
+        assertTrue(limiter.tryAcquire("Kyl_1"));
+        assertFalse(limiter.tryAcquire("Kyl_1"));
+    }
+
+    /**
+     * The bucket never refills past its capacity, however long the user waits.
+     */
+    @Test
+    public void testRefillIsCapped() {
+        LoginRateLimiter limiter = limiter();
+        now.addAndGet(60_000);
+        assertTrue(limiter.tryAcquire("Kyl_1"));
+        assertTrue(limiter.tryAcquire("Kyl_1"));
+        assertTrue(limiter.tryAcquire("Kyl_1"));
+        assertFalse(limiter.tryAcquire("Kyl_1"));
+    }
+
+    /**
+     * One user's lockout doesn't affect anyone else.
+     */
+    @Test
+    public void testUsersAreIndependent() {
+        LoginRateLimiter limiter = limiter();
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limiter.tryAcquire("Kyl_1"));
+        }
+        assertFalse(limiter.tryAcquire("Kyl_1"));
+        assertTrue(limiter.tryAcquire("dyl_2"));
+    }
+
+    /**
+     * Attempts rejected by the global limit don't use up a user's own attempts.
+     */
+    @Test
+    public void testGlobalFloodDoesNotBurnUserBudget() {
+        LoginRateLimiter limiter = limiter();
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.tryAcquire("user" + i)); // Drains the global bucket
+        }
+        for (int i = 0; i < 5; i++) {
+            assertFalse(limiter.tryAcquire("Kyl_1"));   // Rejected globally
+        }
+
+        // Once the global bucket has refilled, the user still has the full burst
+        now.addAndGet(300);
+        assertTrue(limiter.tryAcquire("Kyl_1"));
+        assertTrue(limiter.tryAcquire("Kyl_1"));
+        assertTrue(limiter.tryAcquire("Kyl_1"));
+        assertFalse(limiter.tryAcquire("Kyl_1"));
+    }
+}
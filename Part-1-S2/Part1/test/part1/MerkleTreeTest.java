@@ -0,0 +1,68 @@
+package part1;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for MerkleTree.
+ */
+public class MerkleTreeTest {
+
+    private static List<Message> messages(int count) {
+        List<Message> messages = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            messages.add(new Message(i, "Kyl_", "dylan", "Message " + i));
+        }
+        return messages;
+    }
+
+    /**
+     * Appending one leaf at a time gives the same root as building in one go.
+     */
+    @Test
+    public void testIncrementalAppendMatchesBuild() {
+        List<Message> messages = messages(37);
+        MerkleTree incremental = MerkleTree.build(messages.subList(0, 20));
+        for (Message message : messages.subList(20, 37)) {
+            incremental.append(message);
+        }
+        assertEquals(MerkleTree.build(messages).getRootHex(), incremental.getRootHex());
+        assertEquals(37, incremental.size());
+    }
+
+    /**
+     * Identical stores have no differences.
+     */
+    @Test
+    public void testDiffOfEqualTrees() {
+        List<Message> messages = messages(100);
+        assertTrue(MerkleTree.build(messages).diff(MerkleTree.build(messages)).isEmpty());
+    }
+
+    /**
+     * A changed message is found at its leaf position.
+     */
+    @Test
+    public void testDiffFindsChangedLeaf() {
+        List<Message> live = messages(100);
+        List<Message> backup = new ArrayList<>(live);
+        backup.set(41, new Message(42, "Kyl_", "dylan", "Tampered"));
+
+        List<int[]> ranges = MerkleTree.build(live).diff(MerkleTree.build(backup));
+        assertEquals(1, ranges.size());
+        assertArrayEquals(new int[] {41, 42}, ranges.get(0));
+    }
+
+    /**
+     * Messages only one side has show up as one trailing range.
+     */
+    @Test
+    public void testDiffFindsAppendedTail() {
+        List<Message> live = messages(70);
+        List<int[]> ranges = MerkleTree.build(live).diff(MerkleTree.build(live.subList(0, 64)));
+        assertEquals(1, ranges.size());
+        assertArrayEquals(new int[] {64, 70}, ranges.get(0));
+    }
+}
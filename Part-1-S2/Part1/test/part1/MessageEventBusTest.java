@@ -0,0 +1,153 @@
+package part1;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for MessageEventBus.
+ */
+public class MessageEventBusTest {
+
+    /**
+     * Events from several publishers arrive once each, in sequence order, and
+     * each publisher's events keep the order they were published in.
+     */
+    @Test
+    public void testMultiProducerOrdering() throws Exception {
+        int publishers = 4;
+        int perPublisher = 20_000;
+        int total = publishers * perPublisher;
+        MessageEventBus bus = new MessageEventBus(64); // Small ring, so it wraps many times
+
+        List<MessageEvent> received = new ArrayList<>(total);
+        CountDownLatch done = new CountDownLatch(1);
+        MessageEventBus.Subscription subscription = bus.subscribe("ordering-test", events -> {
+            received.addAll(events); // Only the subscriber thread writes here
+            if (received.size() == total) {
+                done.countDown();
+            }
+        });
+
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < publishers; p++) {
+            Message message = new Message(p + 1, "publisher" + p, "bob", "event source " + p);
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < perPublisher; i++) {
+                    bus.publishStatusChanged(message, "Stored", String.valueOf(i));
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue("Not every event arrived", done.await(10, TimeUnit.SECONDS));
+        subscription.close();
+
+        int[] lastByPublisher = new int[publishers];
+        Arrays.fill(lastByPublisher, -1);
+        for (int i = 0; i < total; i++) {
+            MessageEvent event = received.get(i);
+            assertEquals(i, event.getSequence());
+            int publisher = event.getMessage().getMessageNumber() - 1;
+            int index = Integer.parseInt(event.getNewStatus());
+            assertEquals("Publisher " + publisher + " out of order", lastByPublisher[publisher] + 1, index);
+            lastByPublisher[publisher] = index;
+        }
+        assertEquals(total, subscription.getEventCount());
+        assertEquals(total, bus.getPublishedCount());
+    }
+
+    /**
+     * Publishers wait for a stalled subscriber instead of overwriting events it
+     * hasn't read, and nothing is lost once it catches up.
+     */
+    @Test
+    public void testBackpressureFromSlowSubscriber() throws Exception {
+        int ringSize = 16;
+        int total = 200;
+        MessageEventBus bus = new MessageEventBus(ringSize);
+
+        CountDownLatch release = new CountDownLatch(1);
+        List<Long> sequences = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+        MessageEventBus.Subscription slow = bus.subscribe("slow-test", events -> {
+            try {
+                release.await();
+                Thread.sleep(1); // Stays slow after being released
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            for (MessageEvent event : events) {
+                sequences.add(event.getSequence());
+            }
+            if (sequences.size() == total) {
+                done.countDown();
+            }
+        });
+
+        Message message = new Message(1, "alice", "bob", "backpressure");
+        Thread publisher = new Thread(() -> {
+            for (int i = 0; i < total; i++) {
+                bus.publishStatusChanged(message, "Stored", "Sent");
+            }
+        });
+        publisher.start();
+
+        // The subscriber hasn't finished a batch, so only one ring's worth can be published
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (bus.getPublishedCount() < ringSize && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        Thread.sleep(100);
+        assertEquals(ringSize, bus.getPublishedCount());
+        assertTrue(publisher.isAlive());
+
+        release.countDown();
+        publisher.join(10_000);
+        assertTrue("Not every event arrived", done.await(10, TimeUnit.SECONDS));
+        slow.close();
+
+        for (int i = 0; i < total; i++) {
+            assertEquals(Long.valueOf(i), sequences.get(i));
+        }
+    }
+
+    /**
+     * An idle subscriber parks without a timeout and is woken by the next publish.
+     */
+    @Test
+    public void testIdleSubscriberParksAndWakes() throws Exception {
+        MessageEventBus bus = new MessageEventBus(16);
+        CountDownLatch received = new CountDownLatch(1);
+        MessageEventBus.Subscription subscription = bus.subscribe("idle-test", events -> received.countDown());
+        try {
+            Thread thread = findThread("events-idle-test");
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (thread.getState() != Thread.State.WAITING && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(Thread.State.WAITING, thread.getState()); // Parked with no timeout
+
+            bus.publishAdded("alice", new Message(1, "alice", "bob", "wake up"));
+            assertTrue("Subscriber was not woken", received.await(5, TimeUnit.SECONDS));
+        } finally {
+            subscription.close();
+        }
+    }
+
+    private static Thread findThread(String name) {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals(name)) {
+                return thread;
+            }
+        }
+        throw new AssertionError("No thread named " + name);
+    }
+}
@@ -0,0 +1,201 @@
+package part1;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for MessageExporter.
+ */
+public class MessageExporterTest {
+
+    // Everything CSV quoting and JSON escaping have to handle, plus multi-byte and surrogate-pair characters
+    private static final String TRICKY = "Quote \" comma , CRLF \r\n LF \n backslash \\ tab \t"
+            + " bell \u0007 nul \u0000 unit \u001f café 中文 😀 end";
+    private static final long CREATED_AT = 1_700_000_000_000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Message message(int number, String sender, String recipient, String content, String status) {
+        return new Message(null, number, sender, recipient, content, null, status, CREATED_AT + number);
+    }
+
+    private List<Message> trickyMessages() {
+        Message scheduled = message(3, "alice", "dave", "Later", "Stored");
+        scheduled.setDeliverAt(CREATED_AT + 60_000);
+        return Arrays.asList(
+                message(1, "alice", "bob, \"the builder\"", TRICKY, "Sent"),
+                message(2, null, "carol", "plain", "Stored"),
+                scheduled);
+    }
+
+    private String export(MessageExporter.Format format, List<Message> messages) throws IOException {
+        Path target = folder.newFile("export" + format.getExtension()).toPath();
+        long written = new MessageExporter(format).export(messages, MessageExporter.filter(null, null, 0, Integer.MAX_VALUE), target);
+        assertEquals(messages.size(), written);
+        return new String(Files.readAllBytes(target), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Splits CSV text into records of fields, following RFC 4180 quoting.
+     */
+    private static List<List<String>> parseCsv(String text) {
+        List<List<String>> records = new ArrayList<>();
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',' || c == '\n') {
+                fields.add(field.toString());
+                field.setLength(0);
+                if (c == '\n') {
+                    records.add(fields);
+                    fields = new ArrayList<>();
+                }
+            } else {
+                field.append(c);
+            }
+        }
+        assertFalse("Unterminated quoted field", quoted);
+        assertTrue("Last record has no line break", fields.isEmpty() && field.length() == 0);
+        return records;
+    }
+
+    private static List<JSONObject> parseJsonLines(String text) throws Exception {
+        List<JSONObject> records = new ArrayList<>();
+        JSONParser parser = new JSONParser();
+        for (String line : text.split("\n", -1)) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            for (int i = 0; i < line.length(); i++) {
+                assertTrue("Unescaped control character", line.charAt(i) >= 0x20);
+            }
+            records.add((JSONObject) parser.parse(line));
+        }
+        assertTrue(text.endsWith("\n"));
+        return records;
+    }
+
+    /**
+     * Quotes, commas, line breaks, backslashes, control characters and non-ASCII
+     * text come back unchanged from the CSV; a missing sender is an empty field.
+     */
+    @Test
+    public void testCsvRoundTrip() throws IOException {
+        List<Message> messages = trickyMessages();
+        List<List<String>> records = parseCsv(export(MessageExporter.Format.CSV, messages));
+
+        assertEquals(4, records.size());
+        assertEquals(Arrays.asList("messageNumber", "messageId", "sender", "recipient", "status",
+                "createdAt", "deliverAt", "contentHash", "content"), records.get(0));
+        Message first = messages.get(0);
+        assertEquals(Arrays.asList("1", first.getMessageId(), "alice", "bob, \"the builder\"", "Sent",
+                String.valueOf(CREATED_AT + 1), "0", first.getContentHash(), TRICKY), records.get(1));
+        assertEquals("", records.get(2).get(2));
+        assertEquals("plain", records.get(2).get(8));
+        assertEquals(String.valueOf(CREATED_AT + 60_000), records.get(3).get(6));
+    }
+
+    /**
+     * The same text comes back unchanged from JSON lines, one object per line,
+     * with control characters escaped; deliverAt is only written when set.
+     */
+    @Test
+    public void testJsonLinesRoundTrip() throws Exception {
+        List<Message> messages = trickyMessages();
+        List<JSONObject> records = parseJsonLines(export(MessageExporter.Format.JSONL, messages));
+
+        assertEquals(3, records.size());
+        JSONObject first = records.get(0);
+        assertEquals(1L, first.get("messageNumber"));
+        assertEquals(messages.get(0).getMessageId(), first.get("messageId"));
+        assertEquals("bob, \"the builder\"", first.get("recipient"));
+        assertEquals(TRICKY, first.get("content"));
+        assertEquals(messages.get(0).getContentHash(), first.get("contentHash"));
+        assertFalse(first.containsKey("deliverAt"));
+
+        assertTrue(records.get(1).containsKey("sender"));
+        assertNull(records.get(1).get("sender"));
+        assertEquals(CREATED_AT + 60_000, records.get(2).get("deliverAt"));
+        assertEquals(MessageExporter.Format.JSONL, MessageExporter.Format.parse("json-lines"));
+    }
+
+    /**
+     * A record larger than the encode buffer is written out across several
+     * buffer fills, and multi-byte characters that straddle a fill survive.
+     */
+    @Test
+    public void testRecordLargerThanBuffer() throws Exception {
+        StringBuilder huge = new StringBuilder();
+        while (huge.length() < MessageExporter.BUFFER_SIZE) {
+            huge.append("a€😀,\"\n"); // 1, 3 and 4 byte characters, so fills split them
+        }
+        String content = huge.toString();
+        List<Message> messages = Arrays.asList(
+                message(1, "alice", "bob", "before", "Sent"),
+                message(2, "alice", "bob", content, "Sent"),
+                message(3, "alice", "bob", "after", "Sent"));
+
+        List<List<String>> csv = parseCsv(export(MessageExporter.Format.CSV, messages));
+        assertEquals(4, csv.size());
+        assertEquals(content, csv.get(2).get(8));
+        assertEquals("after", csv.get(3).get(8));
+
+        List<JSONObject> json = parseJsonLines(export(MessageExporter.Format.JSONL, messages));
+        assertEquals(3, json.size());
+        assertEquals(content, json.get(1).get("content"));
+        assertEquals("after", json.get(2).get("content"));
+    }
+
+    /**
+     * The filter keeps messages by status (any case), by recipient text
+     * (contained, any case) and by an inclusive number range.
+     */
+    @Test
+    public void testFilter() throws Exception {
+        List<Message> messages = new ArrayList<>();
+        String[] recipients = {"Bob", "bobby", "Carol", " BOB "};
+        for (int i = 1; i <= 12; i++) {
+            messages.add(message(i, "alice", recipients[i % 4], "Message " + i, i % 3 == 0 ? "Stored" : "Sent"));
+        }
+
+        Path target = folder.newFile("filtered.jsonl").toPath();
+        long written = new MessageExporter(MessageExporter.Format.JSONL).export(messages,
+                MessageExporter.filter("sent", " bob ", 2, 11), target);
+        List<Long> numbers = new ArrayList<>();
+        for (JSONObject record : parseJsonLines(new String(Files.readAllBytes(target), StandardCharsets.UTF_8))) {
+            numbers.add((Long) record.get("messageNumber"));
+        }
+        // Bob, bobby and " BOB " get 3, 4, 5, 7, 8, 9 and 11 in range; 3 and 9 are Stored
+        assertEquals(Arrays.asList(4L, 5L, 7L, 8L, 11L), numbers);
+        assertEquals(5, written);
+
+        assertEquals(12, messages.stream().filter(MessageExporter.filter(null, " ", 0, Integer.MAX_VALUE)).count());
+        assertEquals(4, messages.stream().filter(MessageExporter.filter("STORED", null, 0, 100)).count());
+        assertEquals(1, messages.stream().filter(MessageExporter.filter(null, "carol", 3, 6)).count());
+    }
+}
@@ -0,0 +1,149 @@
+package part1;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for MessageJournal.
+ */
+public class MessageJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private String storageFile;
+    private Path journalFile;
+
+    @Before
+    public void setUp() {
+        storageFile = folder.getRoot().toPath().resolve("messages_alice.json").toString();
+        journalFile = folder.getRoot().toPath().resolve("messages_alice.json.journal");
+    }
+
+    private static List<Message> messages(int from, int count) {
+        List<Message> messages = new ArrayList<>();
+        for (int i = from; i < from + count; i++) {
+            Message message = new Message(i, i % 2 == 0 ? "alice" : null, "+27831234567", "Message " + i + " é");
+            message.setStatus("Sent");
+            messages.add(message);
+        }
+        return messages;
+    }
+
+    /**
+     * Batches appended in one run are replayed in order, field for field, in the next.
+     */
+    @Test
+    public void testReplayReturnsAppendedMessages() throws IOException {
+        List<Message> written = messages(1, 5);
+        try (MessageJournal journal = new MessageJournal(storageFile)) {
+            journal.append(written.subList(0, 3));
+            journal.append(written.subList(3, 5));
+            journal.append(new ArrayList<>());
+        }
+
+        List<Message> replayed;
+        try (MessageJournal journal = new MessageJournal(storageFile)) {
+            replayed = journal.replay();
+            assertEquals(Files.size(journalFile), journal.size());
+        }
+        assertEquals(written.size(), replayed.size());
+        for (int i = 0; i < written.size(); i++) {
+            Message a = written.get(i);
+            Message b = replayed.get(i);
+            assertEquals(a.getMessageId(), b.getMessageId());
+            assertEquals(a.getMessageNumber(), b.getMessageNumber());
+            assertEquals(a.getSender(), b.getSender());
+            assertEquals(a.getRecipient(), b.getRecipient());
+            assertEquals(a.getContent(), b.getContent());
+            assertEquals(a.getContentHash(), b.getContentHash());
+            assertEquals(a.getStatus(), b.getStatus());
+            assertEquals(a.getCreatedAt(), b.getCreatedAt());
+        }
+    }
+
+    /**
+     * A record cut short by a crash is dropped, the file is truncated to the
+     * last whole record, and new appends follow on from there.
+     */
+    @Test
+    public void testTornTailIsTruncated() throws IOException {
+        try (MessageJournal journal = new MessageJournal(storageFile)) {
+            journal.append(messages(1, 2));
+            journal.append(messages(3, 1));
+        }
+        long fullSize = Files.size(journalFile);
+        try (FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.WRITE)) {
+            channel.truncate(fullSize - 5); // Lose the end of the third record
+        }
+
+        try (MessageJournal journal = new MessageJournal(storageFile)) {
+            List<Message> replayed = journal.replay();
+            assertEquals(2, replayed.size());
+            assertEquals(2, replayed.get(1).getMessageNumber());
+            assertEquals(journal.size(), Files.size(journalFile));
+            journal.append(messages(3, 1));
+        }
+
+        try (MessageJournal journal = new MessageJournal(storageFile)) {
+            List<Message> replayed = journal.replay();
+            assertEquals(3, replayed.size());
+            assertEquals(3, replayed.get(2).getMessageNumber());
+        }
+    }
+
+    /**
+     * A record whose checksum doesn't match ends the replay at the record before it.
+     */
+    @Test
+    public void testCorruptRecordEndsReplay() throws IOException {
+        try (MessageJournal journal = new MessageJournal(storageFile)) {
+            journal.append(messages(1, 3));
+        }
+        byte[] bytes = Files.readAllBytes(journalFile);
+        bytes[bytes.length - 10] ^= 0x55; // Inside the last record
+        Files.write(journalFile, bytes);
+
+        try (MessageJournal journal = new MessageJournal(storageFile)) {
+            assertEquals(Arrays.asList(1, 2), numbers(journal.replay()));
+        }
+    }
+
+    /**
+     * Appending to a journal that was opened without a replay keeps what is already there.
+     */
+    @Test
+    public void testAppendWithoutReplayKeepsRecords() throws IOException {
+        try (MessageJournal journal = new MessageJournal(storageFile)) {
+            journal.append(messages(1, 2));
+        }
+        try (MessageJournal journal = new MessageJournal(storageFile)) {
+            journal.append(messages(3, 1));
+        }
+        try (MessageJournal journal = new MessageJournal(storageFile)) {
+            assertEquals(Arrays.asList(1, 2, 3), numbers(journal.replay()));
+            journal.clear();
+            assertEquals(0, journal.size());
+            assertTrue(journal.replay().isEmpty());
+        }
+    }
+
+    private static List<Integer> numbers(List<Message> messages) {
+        List<Integer> numbers = new ArrayList<>();
+        for (Message message : messages) {
+            numbers.add(message.getMessageNumber());
+        }
+        return numbers;
+    }
+}
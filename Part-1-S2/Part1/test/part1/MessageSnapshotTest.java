@@ -0,0 +1,214 @@
+package part1;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for MessageStorage snapshots (create, list, restore and delete).
+ */
+public class MessageSnapshotTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory;
+    private MessageStorage storage;
+
+    @Before
+    public void setUp() {
+        directory = folder.getRoot().toPath();
+        storage = new MessageStorage("alice", directory);
+        storage.addMessage(new Message(1, "alice", "bob", "Hello Bob"));
+        storage.addMessage(new Message(2, "alice", "carol", "Hello Carol"));
+        assertTrue(storage.saveMessages());
+    }
+
+    private Path snapshotFile(String snapshotId) {
+        return Paths.get(storage.getStorageFile() + ".snapshots").resolve(snapshotId + ".json");
+    }
+
+    /**
+     * A snapshot is a copy of the file as last saved, and later saves don't change it.
+     */
+    @Test
+    public void testCreateKeepsSavedFile() throws IOException {
+        byte[] saved = Files.readAllBytes(Paths.get(storage.getStorageFile()));
+        String first = storage.createSnapshot();
+        String second = storage.createSnapshot();
+        assertNotNull(first);
+        assertNotEquals(first, second);
+        assertEquals(Arrays.asList(first, second), storage.listSnapshots());
+
+        storage.addMessage(new Message(3, "alice", "bob", "Not in the snapshot"));
+        assertTrue(storage.saveMessages());
+        assertArrayEquals(saved, Files.readAllBytes(snapshotFile(first)));
+    }
+
+    /**
+     * Restoring brings back the messages as they were, keeps the snapshot,
+     * and publishes events so listeners see the swap.
+     */
+    @Test
+    public void testRestoreReplacesMessagesAndPublishesEvents() throws Exception {
+        String snapshotId = storage.createSnapshot();
+        Message later = new Message(3, "alice", "bob", "Not in the snapshot");
+        storage.addMessage(later);
+        assertTrue(storage.saveMessages());
+
+        List<MessageEvent> received = Collections.synchronizedList(new ArrayList<>());
+        MessageEventBus.Subscription subscription = MessageEventBus.getInstance().subscribe("snapshot-test",
+                events -> received.addAll(events));
+        try {
+            assertTrue(storage.restoreSnapshot(snapshotId));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (received.size() < 5 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+        } finally {
+            subscription.close();
+        }
+
+        assertEquals(2, storage.getMessages().size());
+        assertNull(storage.getMessageById(later.getMessageId()));
+        assertEquals(3, storage.getNextMessageNumber());
+        assertTrue(Files.exists(snapshotFile(snapshotId)));
+        assertEquals(2, new MessageStorage("alice", directory).getMessages().size());
+
+        int removed = 0;
+        int added = 0;
+        for (MessageEvent event : received) {
+            if ("alice".equals(event.getOwner()) && event.getType() == MessageEvent.Type.REMOVED) {
+                removed++;
+            } else if ("alice".equals(event.getOwner()) && event.getType() == MessageEvent.Type.ADDED) {
+                added++;
+            }
+        }
+        assertEquals(3, removed);
+        assertEquals(2, added);
+    }
+
+    /**
+     * Restoring right after a snapshot, when the partition file and the snapshot
+     * are hard links to the same file, works and leaves no temporary file behind.
+     */
+    @Test
+    public void testRestoreOfSameFile() throws IOException {
+        String snapshotId = storage.createSnapshot();
+        Path partition = Paths.get(storage.getStorageFile());
+        if (Files.getFileStore(partition).supportsFileAttributeView("unix")) {
+            assertEquals(Files.getAttribute(partition, "unix:ino"),
+                    Files.getAttribute(snapshotFile(snapshotId), "unix:ino"));
+        }
+
+        assertTrue(storage.restoreSnapshot(snapshotId));
+        assertEquals(2, storage.getMessages().size());
+        assertFalse(Files.exists(Paths.get(storage.getStorageFile() + ".tmp")));
+        assertTrue(Files.exists(snapshotFile(snapshotId)));
+
+        // Saving after the restore replaces the partition file, not the snapshot
+        byte[] snapshot = Files.readAllBytes(snapshotFile(snapshotId));
+        storage.addMessage(new Message(3, "alice", "bob", "After the restore"));
+        assertTrue(storage.saveMessages());
+        assertArrayEquals(snapshot, Files.readAllBytes(snapshotFile(snapshotId)));
+    }
+
+    /**
+     * The MessageScheduler follows a restore: a pending message that isn't in the
+     * snapshot is dropped, and a scheduled one that is comes back.
+     */
+    @Test
+    public void testSchedulerFollowsRestore() throws Exception {
+        String withoutScheduled = storage.createSnapshot();
+        try (MessageScheduler scheduler = new MessageScheduler(storage, Runnable::run)) {
+            assertTrue(scheduler.schedule(new Message(3, "alice", "bob", "Later"),
+                    System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1)));
+            String withScheduled = storage.createSnapshot();
+            assertEquals(1, scheduler.getPendingCount());
+
+            assertTrue(storage.restoreSnapshot(withoutScheduled));
+            awaitPending(scheduler, 0);
+            assertEquals(0, scheduler.getPendingCount());
+
+            assertTrue(storage.restoreSnapshot(withScheduled));
+            awaitPending(scheduler, 1);
+            assertEquals(1, scheduler.getPendingCount());
+        }
+    }
+
+    private static void awaitPending(MessageScheduler scheduler, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (scheduler.getPendingCount() != expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * A restored partition doesn't reject messages as duplicates of ones that aren't in it any more.
+     */
+    @Test
+    public void testRestoreResetsDuplicateFilter() {
+        storage.setDuplicateWindow(TimeUnit.HOURS.toMillis(1));
+        String snapshotId = storage.createSnapshot();
+        assertTrue(storage.addMessage(new Message(3, "alice", "dave", "Hello Dave")));
+        assertFalse(storage.addMessage(new Message(4, "alice", "dave", "Hello Dave")));
+
+        assertTrue(storage.restoreSnapshot(snapshotId));
+        assertTrue(storage.addMessage(new Message(3, "alice", "dave", "Hello Dave")));
+        assertFalse(storage.addMessage(new Message(4, "alice", "bob", "Hello Bob"))); // Still in the partition
+    }
+
+    /**
+     * Deleting removes only that snapshot, and deleting it again reports it was already gone.
+     */
+    @Test
+    public void testDelete() {
+        String first = storage.createSnapshot();
+        String second = storage.createSnapshot();
+
+        assertTrue(storage.deleteSnapshot(first));
+        assertFalse(storage.deleteSnapshot(first));
+        assertEquals(Collections.singletonList(second), storage.listSnapshots());
+        assertFalse(storage.restoreSnapshot(first));
+        assertEquals(2, storage.getMessages().size());
+    }
+
+    /**
+     * IDs that aren't in the generated form are rejected, so nothing outside
+     * the snapshot directory can be deleted or restored.
+     */
+    @Test
+    public void testSnapshotIdIsValidated() throws IOException {
+        Path outside = directory.resolve("x.json");
+        Files.write(outside, "[]".getBytes(StandardCharsets.UTF_8));
+
+        for (String snapshotId : new String[]{"../x", "20240101-120000-000/../../x", "", null}) {
+            try {
+                storage.deleteSnapshot(snapshotId);
+                fail("Delete should reject " + snapshotId);
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+            try {
+                storage.restoreSnapshot(snapshotId);
+                fail("Restore should reject " + snapshotId);
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+        }
+        assertTrue(Files.exists(outside));
+        assertEquals(2, storage.getMessages().size());
+    }
+}
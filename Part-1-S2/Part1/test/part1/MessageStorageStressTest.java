@@ -0,0 +1,203 @@
+package part1;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ * Randomized stress test for MessageStorage and Message.
+ * - Several threads mix adds, status changes, lookups, page reads and saves
+ *   on one storage (each operation holds the storage's lock, as the EDT would).
+ * - Afterwards the invariants are checked: unique IDs, increasing numbers,
+ *   valid content hashes, and a save/load round trip that gives back the same messages.
+ * - Throughput is printed alongside the result.
+ *
+ * Runs 20,000 operations by default. For a soak run, raise it, e.g.
+ * ant test -Dtest-sys-prop.quickchat.stress.messages=2000000
+ */
+public class MessageStorageStressTest {
+
+    private static final int OPERATIONS = Integer.getInteger("quickchat.stress.messages", 20_000);
+    private static final int THREADS = 4;
+    private static final String[] STATUSES = {"Created", "Sent", "Stored", "Discarded"};
+
+    private final String owner = "stress-test-" + System.nanoTime();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MessageStorage openStorage() {
+        return new MessageStorage(owner, folder.getRoot().toPath());
+    }
+
+    /**
+     * Random text: plain words, quotes, commas, line breaks, non-ASCII, and
+     * sometimes more than the 250-character limit.
+     */
+    private static String randomContent(Random random) {
+        String[] pieces = {"hello", "\"quoted\"", "a,b", "line\nbreak", "café", "你好", "\\", "{}", " "};
+        StringBuilder content = new StringBuilder();
+        int length = random.nextInt(10) == 0 ? 300 : 1 + random.nextInt(60);
+        while (content.length() < length) {
+            content.append(pieces[random.nextInt(pieces.length)]);
+        }
+        return content.toString();
+    }
+
+    /**
+     * Concurrent mixed workload, then invariant and round-trip checks.
+     */
+    @Test
+    public void testConcurrentWorkloadKeepsInvariants() throws Exception {
+        MessageStorage storage = openStorage();
+        AtomicLong adds = new AtomicLong();
+        AtomicLong statusChanges = new AtomicLong();
+        AtomicLong queries = new AtomicLong();
+        AtomicLong saves = new AtomicLong();
+        int saveEvery = Math.max(1000, OPERATIONS / 5);   // A handful of full saves per run
+
+        ExecutorService threads = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> results = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            long seed = 42 + t;
+            int share = OPERATIONS / THREADS;
+            results.add(threads.submit(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < share; i++) {
+                    int roll = random.nextInt(100);
+                    if (roll < 60) {
+                        // Build (and hash) the content outside the lock, like a real sender would
+                        String content = randomContent(random);
+                        String recipient = "contact" + random.nextInt(100);
+                        synchronized (storage) {
+                            Message message = new Message(storage.getNextMessageNumber(), owner, recipient, content);
+                            assertTrue(storage.addMessage(message));
+                        }
+                        adds.incrementAndGet();
+                    } else if (roll < 75) {
+                        synchronized (storage) {
+                            List<Message> messages = storage.getMessages();
+                            if (!messages.isEmpty()) {
+                                messages.get(random.nextInt(messages.size()))
+                                        .setStatus(STATUSES[random.nextInt(STATUSES.length)]);
+                            }
+                        }
+                        statusChanges.incrementAndGet();
+                    } else {
+                        synchronized (storage) {
+                            List<Message> messages = storage.getMessages();
+                            if (!messages.isEmpty()) {
+                                Message message = messages.get(random.nextInt(messages.size()));
+                                assertSame(message, storage.getMessageById(message.getMessageId()));
+                                ConversationIndex.Page page = storage.getConversationPage(
+                                        message.getRecipient(), ConversationIndex.NEWEST, 20);
+                                assertFalse(page.getMessages().isEmpty());
+                            }
+                        }
+                        queries.incrementAndGet();
+                    }
+                    if (i > 0 && i % saveEvery == 0) {
+                        synchronized (storage) {
+                            assertTrue(storage.saveMessages());
+                        }
+                        saves.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get(); // Rethrows any assertion failure from the workers
+        }
+        threads.shutdown();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        List<Message> messages = storage.getMessages();
+        assertEquals(adds.get(), messages.size());
+        checkInvariants(storage);
+
+        // Round trip through the file
+        long saveStart = System.nanoTime();
+        assertTrue(storage.saveMessages());
+        long loadStart = System.nanoTime();
+        MessageStorage reloaded = openStorage();
+        long loadEnd = System.nanoTime();
+        assertSameMessages(messages, reloaded.getMessages());
+        checkInvariants(reloaded);
+
+        System.out.printf("MessageStorage stress: %,d ops (%,d adds, %,d status changes, %,d queries, %,d saves)"
+                + " in %.2f s = %,.0f ops/s; final save %d ms, load %d ms%n",
+                adds.get() + statusChanges.get() + queries.get(), adds.get(), statusChanges.get(),
+                queries.get(), saves.get(), seconds,
+                (adds.get() + statusChanges.get() + queries.get()) / seconds,
+                (loadStart - saveStart) / 1_000_000, (loadEnd - loadStart) / 1_000_000);
+    }
+
+    /**
+     * The compressed format gives back exactly the same messages.
+     */
+    @Test
+    public void testCompressedRoundTrip() {
+        MessageStorage storage = openStorage();
+        Random random = new Random(7);
+        for (int i = 0; i < 2000; i++) {
+            Message message = new Message(storage.getNextMessageNumber(), owner,
+                    "contact" + random.nextInt(20), randomContent(random));
+            if (random.nextInt(10) == 0) {
+                message.scheduleFor(1_800_000_000_000L + i);
+            }
+            storage.addMessage(message);
+        }
+        storage.setCompressionEnabled(true);
+        assertTrue(storage.saveMessages());
+
+        MessageStorage reloaded = openStorage();
+        assertSameMessages(storage.getMessages(), reloaded.getMessages());
+    }
+
+    /**
+     * Unique IDs, strictly increasing numbers, valid hashes, content within the limit.
+     */
+    private static void checkInvariants(MessageStorage storage) {
+        Set<String> ids = new HashSet<>();
+        int lastNumber = 0;
+        for (Message message : storage.getMessages()) {
+            assertTrue("Duplicate ID " + message.getMessageId(), ids.add(message.getMessageId()));
+            assertEquals(10, message.getMessageId().length());
+            assertTrue("Numbers must increase", message.getMessageNumber() > lastNumber);
+            lastNumber = message.getMessageNumber();
+            assertEquals(Message.calculateContentHash(message.getContent()), message.getContentHash());
+            assertTrue(message.getContent().length() <= 250);
+            assertSame(message, storage.getMessageById(message.getMessageId()));
+        }
+        assertEquals(lastNumber + 1, storage.getNextMessageNumber());
+    }
+
+    private static void assertSameMessages(List<Message> expected, List<Message> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Message a = expected.get(i);
+            Message b = actual.get(i);
+            assertEquals(a.getMessageId(), b.getMessageId());
+            assertEquals(a.getMessageNumber(), b.getMessageNumber());
+            assertEquals(a.getSender(), b.getSender());
+            assertEquals(a.getRecipient(), b.getRecipient());
+            assertEquals(a.getContent(), b.getContent());
+            assertEquals(a.getContentHash(), b.getContentHash());
+            assertEquals(a.getStatus(), b.getStatus());
+            assertEquals(a.getCreatedAt(), b.getCreatedAt());
+            assertEquals(a.getDeliverAt(), b.getDeliverAt());
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package part1;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for MessageStorage loading, migration and recovery.
+ * Each test works in its own temporary directory.
+ */
+public class MessageStorageTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // Same shape as the messages.json written before partitions: a plain array, bodies inline, no sender
+    private static final String LEGACY_FILE = "["
+            + "{\"messageNumber\":1,\"recipient\":\"Pa\",\"messageId\":\"1288201743\",\"content\":\"hello\","
+            + "\"contentHash\":\"2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824\",\"status\":\"Created\"},"
+            + "{\"messageNumber\":2,\"recipient\":\"dylan\",\"messageId\":\"1867868255\",\"content\":\"hi\","
+            + "\"contentHash\":\"8f434346648f6b96df89dda901c5176b10a6d83961dd3c1ac88b59b2dc327aa4\",\"status\":\"Sent\"},"
+            + "{\"messageNumber\":3,\"sender\":\"Kyl_1\",\"recipient\":\"calvin\",\"messageId\":\"1206037111\",\"content\":\"hello\","
+            + "\"contentHash\":\"2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824\",\"status\":\"Stored\"},"
+            + "{\"messageNumber\":4,\"sender\":\"dyl_2\",\"recipient\":\"Pa\",\"messageId\":\"1111111111\",\"content\":\"hi\","
+            + "\"contentHash\":\"8f434346648f6b96df89dda901c5176b10a6d83961dd3c1ac88b59b2dc327aa4\",\"status\":\"Sent\"}"
+            + "]";
+
+    private Path writeFile(String name, String text) throws IOException {
+        Path file = new File(folder.getRoot(), name).toPath();
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    /**
+     * The first login after upgrading splits the old shared file up: the user gets
+     * the sender-less messages, other senders get their own, and the shared file is
+     * renamed so nobody else gets copies.
+     */
+    @Test
+    public void testLegacySharedFileIsMigratedOnce() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        Path shared = writeFile("messages.json", LEGACY_FILE);
+
+        assertEquals(4, MessageStorage.migrateSharedFile("Kyl_1", directory));
+        MessageStorage storage = new MessageStorage("Kyl_1", directory);
+        assertEquals(3, storage.getMessages().size());
+        assertEquals("hello", storage.getMessageById("1288201743").getContent());
+        assertEquals("Sent", storage.getMessageById("1867868255").getStatus());
+        assertNotNull(storage.getMessageById("1206037111"));
+        assertNull(storage.getMessageById("1111111111")); // Someone else's message
+        assertEquals(4, storage.getNextMessageNumber());
+        assertNotNull(new MessageStorage("dyl_2", directory).getMessageById("1111111111"));
+
+        assertFalse(Files.exists(shared));
+        Path migrated = directory.resolve("messages.json.migrated");
+        assertEquals(LEGACY_FILE, new String(Files.readAllBytes(migrated), StandardCharsets.UTF_8));
+
+        // Nothing left to migrate: later logins and other users get nothing from it
+        assertEquals(0, MessageStorage.migrateSharedFile("bob", directory));
+        assertTrue(new MessageStorage("bob", directory).getMessages().isEmpty());
+
+        // A message removed from the partition doesn't come back
+        storage.removeMessage(storage.getMessageById("1288201743"));
+        storage.saveMessages();
+        assertEquals(2, new MessageStorage("Kyl_1", directory).getMessages().size());
+    }
+
+    /**
+     * Opening a partition never migrates as a side effect.
+     */
+    @Test
+    public void testConstructorDoesNotMigrate() throws IOException {
+        Path shared = writeFile("messages.json", LEGACY_FILE);
+        assertTrue(new MessageStorage("newcomer", folder.getRoot().toPath()).getMessages().isEmpty());
+        assertTrue(Files.exists(shared));
+    }
+
+    /**
+     * Migrating into a partition that already has messages numbers the migrated
+     * ones after its own, and a retry doesn't copy them twice.
+     */
+    @Test
+    public void testMigrationIntoExistingPartition() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        MessageStorage existing = new MessageStorage("Kyl_1", directory);
+        existing.addMessage(new Message(1, "Kyl_1", "bob", "Already here"));
+        assertTrue(existing.saveMessages());
+        writeFile("messages.json", LEGACY_FILE);
+
+        assertEquals(4, MessageStorage.migrateSharedFile("Kyl_1", directory));
+        MessageStorage storage = new MessageStorage("Kyl_1", directory);
+        assertEquals(4, storage.getMessages().size());
+        assertEquals(2, storage.getMessageById("1288201743").getMessageNumber());
+        assertEquals(4, storage.getMessageById("1206037111").getMessageNumber());
+
+        // An interrupted earlier run left the shared file behind: nothing is copied again
+        writeFile("messages.json", LEGACY_FILE);
+        assertEquals(0, MessageStorage.migrateSharedFile("Kyl_1", directory));
+        assertEquals(4, new MessageStorage("Kyl_1", directory).getMessages().size());
+    }
+
+    /**
+     * A record whose body doesn't match its hash neither overwrites nor borrows the
+     * good body with that hash, and is saved with its own body so the verifier still sees it.
+     */
+    @Test
+    public void testCorruptBodyIsNotShared() throws Exception {
+        String helloHash = Message.calculateContentHash("hello");
+        writeFile("messages.json", "["
+                + "{\"messageNumber\":1,\"recipient\":\"Pa\",\"messageId\":\"1000000001\",\"content\":\"tampered\","
+                + "\"contentHash\":\"" + helloHash + "\",\"status\":\"Sent\"},"
+                + "{\"messageNumber\":2,\"recipient\":\"Pa\",\"messageId\":\"1000000002\",\"content\":\"hello\","
+                + "\"contentHash\":\"" + helloHash + "\",\"status\":\"Sent\"}"
+                + "]");
+
+        Path directory = folder.getRoot().toPath();
+        MessageStorage storage = new MessageStorage(null, directory);
+        assertEquals("tampered", storage.getMessageById("1000000001").getContent());
+        assertEquals("hello", storage.getMessageById("1000000002").getContent());
+
+        // Round trip in the current format keeps both bodies as they were
+        assertTrue(storage.saveMessages());
+        MessageStorage reloaded = new MessageStorage(null, directory);
+        assertEquals("tampered", reloaded.getMessageById("1000000001").getContent());
+        assertEquals("hello", reloaded.getMessageById("1000000002").getContent());
+
+        IntegrityVerifier.Report report = new IntegrityVerifier().verifyFile(storage.getStorageFile());
+        assertEquals(1, report.getMismatches().size());
+        assertTrue(report.getMismatches().get(0).startsWith("Message #1"));
+    }
+
+    /**
+     * A file that fails part-way through loading leaves the messages already in memory alone.
+     */
+    @Test
+    public void testFailedReloadKeepsCurrentMessages() throws IOException {
+        writeFile("messages.json", LEGACY_FILE);
+        MessageStorage storage = new MessageStorage(null, folder.getRoot().toPath());
+        assertEquals(4, storage.getMessages().size());
+
+        // Second record has a string where the number should be
+        writeFile("messages.json", "[{\"messageNumber\":9,\"recipient\":\"Pa\",\"content\":\"x\"},"
+                + "{\"messageNumber\":\"ten\",\"recipient\":\"Pa\",\"content\":\"y\"}]");
+        assertFalse(storage.loadMessages());
+        assertEquals(4, storage.getMessages().size());
+        assertNotNull(storage.getMessageById("1288201743"));
+        assertEquals(5, storage.getNextMessageNumber());
+    }
+
+    /**
+     * A save copied with prepareSave() is written by writeSave() on another thread,
+     * but never replaces a newer save that reached the file first.
+     */
+    @Test
+    public void testPendingSaveDoesNotOverwriteNewerSave() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        MessageStorage storage = new MessageStorage("alice", directory);
+        storage.addMessage(new Message(1, "alice", "bob", "first"));
+        MessageStorage.PendingSave first = storage.prepareSave();
+
+        assertTrue(CompletableFuture.supplyAsync(() -> storage.writeSave(first)).get(5, TimeUnit.SECONDS));
+        assertEquals(1, new MessageStorage("alice", directory).getMessages().size());
+
+        MessageStorage.PendingSave stale = storage.prepareSave();
+        storage.addMessage(new Message(2, "alice", "bob", "second"));
+        assertTrue(storage.saveMessages());
+        assertTrue(storage.writeSave(stale)); // Superseded: dropped
+        MessageStorage reloaded = new MessageStorage("alice", directory);
+        assertEquals(2, reloaded.getMessages().size());
+        assertEquals("second", reloaded.getMessages().get(1).getContent());
+        assertFalse(Files.exists(directory.resolve(MessageStorage.partitionFile("alice") + ".pending.tmp")));
+    }
+
+    /**
+     * The shared partition still opens the legacy file directly.
+     */
+    @Test
+    public void testLegacyFileLoadsAsSharedPartition() throws IOException {
+        writeFile("messages.json", LEGACY_FILE);
+        MessageStorage shared = new MessageStorage(null, folder.getRoot().toPath());
+        assertEquals(4, shared.getMessages().size());
+    }
+}
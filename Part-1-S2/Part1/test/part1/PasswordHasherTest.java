@@ -0,0 +1,64 @@
+package part1;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for PasswordHasher and the hashed UserCredentials check.
+ */
+public class PasswordHasherTest {
+
+    // Low work factor keeps the tests fast, the format is the same
+    private final PasswordHasher hasher = new PasswordHasher(1000);
+
+    /**
+     * A hashed password verifies, a wrong one does not.
+     */
+    @Test
+    public void testHashAndVerify() {
+        String stored = hasher.hash("Makaveli123*");
+        assertTrue(hasher.verify("Makaveli123*", stored));
+        assertFalse(hasher.verify("makaveli123*", stored));
+    }
+
+    /**
+     * The same password gets a different salt every time.
+     */
+    @Test
+    public void testHashIsSalted() {
+        assertNotEquals(hasher.hash("Makaveli123*"), hasher.hash("Makaveli123*"));
+    }
+
+    /**
+     * Hashes keep their own iteration count, so raising the work factor
+     * doesn't break passwords that were already stored.
+     */
+    @Test
+    public void testVerifyUsesStoredIterations() {
+        String stored = hasher.hash("Makaveli123*");
+        assertTrue(stored.startsWith("1000:"));
+        assertTrue(new PasswordHasher(2000).verify("Makaveli123*", stored));
+    }
+
+    /**
+     * Corrupt stored values are rejected instead of throwing.
+     */
+    @Test
+    public void testVerifyRejectsCorruptHash() {
+        assertFalse(hasher.verify("Makaveli123*", "not-a-hash"));
+        assertFalse(hasher.verify("Makaveli123*", "abc:###:###"));
+    }
+
+    /**
+     * UserCredentials no longer compares plaintext, but still accepts the right password.
+     */
+    @Test
+    public void testCheckCredentials() throws Exception {
+        UserCredentials credentials = UserCredentials.getInstance();
+        credentials.setCredentials("Kyl_", "Makaveli123*");
+        assertTrue(credentials.checkCredentials("Kyl_", "Makaveli123*"));
+        assertTrue(credentials.checkCredentials("Kyl_", "Makaveli123*")); // Served from the cache
+        assertFalse(credentials.checkCredentials("Kyl_", "wrong"));
+        assertFalse(credentials.checkCredentialsAsync("Bob_", "Makaveli123*").get());
+    }
+}
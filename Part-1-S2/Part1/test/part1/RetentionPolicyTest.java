@@ -0,0 +1,113 @@
+package part1;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for RetentionPolicy.
+ */
+public class RetentionPolicyTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    private static Message message(int number, String recipient, String status, long createdAt) {
+        String content = "Message " + number;
+        return new Message(null, number, "alice", recipient, content, Message.calculateContentHash(content),
+                status, createdAt);
+    }
+
+    /**
+     * Messages older than the max age expire; newer ones and legacy ones with no
+     * creation time are kept.
+     */
+    @Test
+    public void testMaxAge() {
+        RetentionPolicy policy = new RetentionPolicy(30 * DAY, 0, Collections.<String>emptySet());
+        Message old = message(1, "bob", "Sent", NOW - 31 * DAY);
+        Message recent = message(2, "bob", "Sent", NOW - 29 * DAY);
+        Message legacy = message(3, "bob", "Sent", 0L);
+
+        List<Message> expired = policy.selectExpired(Arrays.asList(old, recent, legacy), NOW);
+
+        assertEquals(Collections.singletonList(old), expired);
+    }
+
+    /**
+     * Only the newest messages to each recipient are kept, and "Bob" and "bob"
+     * count as the same recipient.
+     */
+    @Test
+    public void testMaxPerRecipient() {
+        RetentionPolicy policy = new RetentionPolicy(0, 2, Collections.<String>emptySet());
+        Message bob1 = message(1, "bob", "Sent", NOW);
+        Message carol1 = message(2, "carol", "Sent", NOW);
+        Message bob2 = message(3, "Bob", "Sent", NOW);
+        Message bob3 = message(4, "bob ", "Stored", NOW);
+        Message carol2 = message(5, "carol", "Sent", NOW);
+
+        // Out of number order on purpose: the lowest numbers go first, not the first in the list
+        List<Message> expired = policy.selectExpired(Arrays.asList(bob3, carol1, bob2, carol2, bob1), NOW);
+
+        assertEquals(Collections.singletonList(bob1), expired);
+    }
+
+    /**
+     * Messages with a dropped status expire whatever their age, and don't count
+     * towards the per-recipient limit.
+     */
+    @Test
+    public void testDroppedStatuses() {
+        RetentionPolicy policy = new RetentionPolicy(0, 1, new HashSet<>(Arrays.asList("Discarded", "Failed")));
+        Message discarded = message(1, "bob", "Discarded", NOW);
+        Message failed = message(2, "bob", "Failed", NOW);
+        Message sent = message(3, "bob", "Sent", NOW);
+
+        List<Message> expired = policy.selectExpired(Arrays.asList(discarded, failed, sent), NOW);
+
+        assertEquals(Arrays.asList(discarded, failed), expired);
+        assertTrue(policy.isExpired(discarded, NOW));
+        assertFalse(policy.isExpired(sent, NOW));
+    }
+
+    /**
+     * Scheduled messages never expire and don't use up the per-recipient limit.
+     */
+    @Test
+    public void testScheduledMessagesAreExempt() {
+        RetentionPolicy policy = new RetentionPolicy(DAY, 1, Collections.singleton("Scheduled"));
+        Message scheduled = message(1, "bob", "Scheduled", NOW - 10 * DAY);
+        Message older = message(2, "bob", "Sent", NOW);
+        Message newer = message(3, "bob", "Sent", NOW);
+
+        List<Message> expired = policy.selectExpired(Arrays.asList(scheduled, older, newer), NOW);
+
+        assertEquals(Collections.singletonList(older), expired);
+        assertFalse(policy.isExpired(scheduled, NOW));
+    }
+
+    /**
+     * With every rule off nothing expires and the policy is disabled.
+     */
+    @Test
+    public void testDisabledPolicyKeepsEverything() {
+        RetentionPolicy policy = new RetentionPolicy(0, 0, Collections.<String>emptySet());
+        Message old = message(1, "bob", "Sent", NOW - 1000 * DAY);
+
+        assertFalse(policy.isEnabled());
+        assertTrue(policy.selectExpired(Collections.singletonList(old), NOW).isEmpty());
+    }
+
+    /**
+     * Negative limits are rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeLimitRejected() {
+        new RetentionPolicy(-1, 0, Collections.<String>emptySet());
+    }
+}
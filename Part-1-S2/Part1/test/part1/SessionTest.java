@@ -0,0 +1,192 @@
+package part1;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for Session, SessionManager and SessionScope.
+ */
+public class SessionTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private SessionManager manager;
+
+    @After
+    public void shutDown() throws InterruptedException {
+        if (manager != null) {
+            manager.shutdown();
+        }
+    }
+
+    /**
+     * A send is saved to the sender's partition and then put in the recipient's inbox.
+     */
+    @Test
+    public void testSendSavesThenDelivers() throws Exception {
+        manager = new SessionManager(2, folder.getRoot().toPath());
+        Session alice = manager.openSession("alice");
+        Session bob = manager.openSession("bob");
+
+        Message sent = alice.send("bob", "Hello Bob").get(5, TimeUnit.SECONDS);
+
+        List<Message> received = bob.poll().get(5, TimeUnit.SECONDS);
+        assertEquals(1, received.size());
+        assertSame(sent, received.get(0));
+        MessageStorage saved = new MessageStorage("alice", folder.getRoot().toPath());
+        assertNotNull(saved.getMessageById(sent.getMessageId()));
+        assertEquals("alice: 1 sent, 0 stored, 0 waiting in inbox", alice.report().get(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * If the save fails, the send fails and the recipient is never notified;
+     * later steps still run.
+     */
+    @Test
+    public void testFailedSaveDoesNotNotify() throws Exception {
+        File notADirectory = folder.newFile("not-a-directory");
+        manager = new SessionManager(2, notADirectory.toPath());
+        Session alice = manager.openSession("alice");
+        Session bob = manager.openSession("bob");
+
+        try {
+            alice.send("bob", "This is never saved").get(5, TimeUnit.SECONDS);
+            fail("Send should fail when the partition can't be saved");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+
+        assertTrue(bob.poll().get(5, TimeUnit.SECONDS).isEmpty());
+        assertEquals("alice: 0 sent, 0 stored, 0 waiting in inbox", alice.report().get(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Steps of one session run in the order they were submitted.
+     */
+    @Test
+    public void testStepsRunInOrder() throws Exception {
+        manager = new SessionManager(4, false);
+        Session alice = manager.openSession("alice");
+        Session bob = manager.openSession("bob");
+
+        CompletableFuture<Message> last = null;
+        for (int i = 1; i <= 200; i++) {
+            last = alice.send("bob", "message " + i);
+        }
+        last.get(5, TimeUnit.SECONDS);
+
+        List<Message> received = bob.poll().get(5, TimeUnit.SECONDS);
+        assertEquals(200, received.size());
+        for (int i = 0; i < received.size(); i++) {
+            assertEquals(i + 1, received.get(i).getMessageNumber());
+            assertEquals("message " + (i + 1), received.get(i).getContent());
+        }
+    }
+
+    /**
+     * A closed session refuses new steps.
+     */
+    @Test
+    public void testClosedSessionRefusesSteps() throws Exception {
+        manager = new SessionManager(1, false);
+        Session alice = manager.openSession("alice");
+        manager.closeSession("alice").get(5, TimeUnit.SECONDS);
+
+        assertTrue(alice.isClosed());
+        assertNull(manager.getSession("alice"));
+        try {
+            alice.send("bob", "Too late").get(5, TimeUnit.SECONDS);
+            fail("A closed session should refuse sends");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    /**
+     * When one subtask fails, join() fails with its error and the others are cancelled.
+     */
+    @Test
+    public void testScopeCancelsOnFailure() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch neverReleased = new CountDownLatch(1);
+        try (SessionScope scope = new SessionScope(executor)) {
+            CompletableFuture<Boolean> slow = scope.fork(() -> neverReleased.await(5, TimeUnit.SECONDS));
+            scope.fork(() -> {
+                throw new IllegalStateException("boom");
+            });
+
+            try {
+                scope.join().get(5, TimeUnit.SECONDS);
+                fail("join() should fail when a subtask fails");
+            } catch (ExecutionException e) {
+                assertEquals("boom", e.getCause().getMessage());
+            }
+            assertTrue(slow.isCancelled());
+        } finally {
+            neverReleased.countDown();
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * A sibling that is still running when another subtask fails is interrupted,
+     * and join() doesn't complete until its body has returned.
+     */
+    @Test
+    public void testJoinWaitsForInterruptedSibling() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean siblingStopped = new AtomicBoolean();
+        try (SessionScope scope = new SessionScope(executor)) {
+            scope.fork(() -> {
+                started.countDown();
+                while (true) {
+                    try {
+                        release.await(); // Keeps running after the interrupt until released
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted.countDown();
+                    }
+                }
+                siblingStopped.set(true);
+                return null;
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            scope.fork(() -> {
+                throw new IllegalStateException("boom");
+            });
+
+            CompletableFuture<Boolean> joinedAfterStop = scope.join().handle((ignored, error) -> siblingStopped.get());
+            assertTrue("The running sibling should be interrupted", interrupted.await(5, TimeUnit.SECONDS));
+            Thread.sleep(100);
+            assertFalse("join() completed while a subtask was still running", joinedAfterStop.isDone());
+
+            release.countDown();
+            assertTrue(joinedAfterStop.get(5, TimeUnit.SECONDS));
+            try {
+                scope.join().get(5, TimeUnit.SECONDS);
+                fail("join() should fail when a subtask fails");
+            } catch (ExecutionException e) {
+                assertEquals("boom", e.getCause().getMessage());
+            }
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package part1;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for TaskJournal and restoring a TaskRegistry from it.
+ */
+public class TaskJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private String journalFile;
+
+    @Before
+    public void setUp() {
+        journalFile = folder.getRoot().toPath().resolve("tasks.dat").toString();
+    }
+
+    /**
+     * Tasks written in one run are back in the registry in the next, removals
+     * stay removed, and numbering carries on.
+     */
+    @Test
+    public void testRoundTripRestoresTasks() throws IOException {
+        TaskRegistry first = new TaskRegistry();
+        try (TaskJournal journal = new TaskJournal(journalFile)) {
+            first.attachJournal(journal);
+            Task.create("Login Feature", "Create Login", "Robyn Harrison", 8, "To Do", first);
+            Task.create("Add Task Feature", "Create Add Task", "Mike Smith", 10, "Doing", first);
+            Task.create("Reports", "Create Reports", "Edward Harrison", 5, "Done", first);
+            first.remove("AD:2:ITH");
+        }
+
+        TaskRegistry second = new TaskRegistry();
+        try (TaskJournal journal = new TaskJournal(journalFile)) {
+            second.attachJournal(journal);
+            assertEquals(2, journal.getRecordCount());
+            assertEquals(13, journal.getTotalHours());
+
+            assertEquals(2, second.getTaskCount());
+            assertEquals(13, second.getTotalHours());
+            assertNull(second.findById("AD:2:ITH"));
+            Task restored = second.findById("LO:1:SON");
+            assertEquals("Create Login", restored.getTaskDescription());
+            assertEquals(8, restored.getTaskDuration());
+            assertEquals("To Do", restored.getTaskStatus());
+            assertEquals(2, new TaskReport(second.getTasks()).getOverallStats().getCount());
+
+            // Restored tasks belong to the registry, so they can still hand out numbers
+            assertEquals("LO:4:SON", restored.createTaskID());
+            Task next = Task.create("Fix Bugs", "Fix bugs", "Mike Smith", 3, "To Do", second);
+            assertEquals("FI:5:ITH", next.getTaskID());
+        }
+
+        List<String> ids = new ArrayList<>();
+        try (TaskJournal journal = new TaskJournal(journalFile)) {
+            journal.forEach(new TaskRegistry(), task -> ids.add(task.getTaskID()));
+        }
+        assertEquals(3, ids.size());
+        assertEquals("LO:1:SON", ids.get(0));
+        assertEquals("FI:5:ITH", ids.get(2));
+    }
+
+    /**
+     * A record cut short by a crash is dropped and the file is truncated, and
+     * appends after that are read back normally.
+     */
+    @Test
+    public void testTornTailIsTruncated() throws IOException {
+        TaskRegistry registry = new TaskRegistry();
+        try (TaskJournal journal = new TaskJournal(journalFile)) {
+            registry.attachJournal(journal);
+            Task.create("Login Feature", "Create Login", "Robyn Harrison", 8, "To Do", registry);
+            Task.create("Add Task Feature", "Create Add Task", "Mike Smith", 10, "Doing", registry);
+        }
+        Path file = folder.getRoot().toPath().resolve("tasks.dat");
+        long fullSize = Files.size(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(fullSize - 3); // Lose the end of the second record
+        }
+
+        TaskRegistry restored = new TaskRegistry();
+        try (TaskJournal journal = new TaskJournal(journalFile)) {
+            restored.attachJournal(journal);
+            assertEquals(1, journal.getRecordCount());
+            assertEquals(1, restored.getTaskCount());
+            assertNotNull(restored.findById("LO:1:SON"));
+            assertNull(restored.findById("AD:2:ITH"));
+            assertTrue(Files.size(file) < fullSize - 3);
+
+            Task.create("Reports", "Create Reports", "Edward Harrison", 5, "Done", restored);
+        }
+
+        TaskRegistry again = new TaskRegistry();
+        try (TaskJournal journal = new TaskJournal(journalFile)) {
+            again.attachJournal(journal);
+            assertEquals(2, again.getTaskCount());
+            assertEquals(13, again.getTotalHours());
+            assertNotNull(again.findById("RE:2:SON"));
+        }
+    }
+
+    /**
+     * Garbage after the last record (a torn length) is dropped as well.
+     */
+    @Test
+    public void testGarbageTailIsTruncated() throws IOException {
+        TaskRegistry registry = new TaskRegistry();
+        try (TaskJournal journal = new TaskJournal(journalFile)) {
+            registry.attachJournal(journal);
+            Task.create("Login Feature", "Create Login", "Robyn Harrison", 8, "To Do", registry);
+        }
+        Path file = folder.getRoot().toPath().resolve("tasks.dat");
+        long goodSize = Files.size(file);
+        Files.write(file, new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        try (TaskJournal journal = new TaskJournal(journalFile)) {
+            assertEquals(1, journal.getRecordCount());
+            assertEquals(goodSize, Files.size(file));
+        }
+    }
+
+    /**
+     * Startup loads the live tasks from the checkpoint: the records before it
+     * aren't read again (here they are overwritten with zeros and nothing is lost).
+     */
+    @Test
+    public void testStartupLoadsCheckpointNotWholeJournal() throws IOException {
+        TaskRegistry first = new TaskRegistry();
+        try (TaskJournal journal = new TaskJournal(journalFile)) {
+            first.attachJournal(journal);
+            Task.create("Login Feature", "Create Login", "Robyn Harrison", 8, "To Do", first);
+            Task.create("Add Task Feature", "Create Add Task", "Mike Smith", 10, "Doing", first);
+            first.remove("LO:1:SON");
+        } // close() writes the checkpoint
+        Path file = folder.getRoot().toPath().resolve("tasks.dat");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate((int) Files.size(file)), 0);
+        }
+
+        TaskRegistry second = new TaskRegistry();
+        try (TaskJournal journal = new TaskJournal(journalFile)) {
+            second.attachJournal(journal);
+            assertEquals(1, second.getTaskCount());
+            assertEquals(10, second.getTotalHours());
+            assertEquals(2, second.getLastTaskNumber());
+            assertEquals("Create Add Task", second.findById("AD:2:ITH").getTaskDescription());
+        }
+    }
+
+    /**
+     * Records written after the checkpoint (adds and removals) are applied on top of it.
+     */
+    @Test
+    public void testTailAfterCheckpointIsApplied() throws IOException {
+        Path checkpoint = folder.getRoot().toPath().resolve("tasks.dat.checkpoint");
+        TaskRegistry first = new TaskRegistry();
+        try (TaskJournal journal = new TaskJournal(journalFile)) {
+            first.attachJournal(journal);
+            Task.create("Login Feature", "Create Login", "Robyn Harrison", 8, "To Do", first);
+            Task.create("Add Task Feature", "Create Add Task", "Mike Smith", 10, "Doing", first);
+        }
+        byte[] olderCheckpoint = Files.readAllBytes(checkpoint);
+
+        TaskRegistry second = new TaskRegistry();
+        try (TaskJournal journal = new TaskJournal(journalFile)) {
+            second.attachJournal(journal);
+            Task.create("Reports", "Create Reports", "Edward Harrison", 5, "Done", second);
+            second.remove("LO:1:SON");
+        }
+        Files.write(checkpoint, olderCheckpoint); // As if the app stopped before checkpointing again
+
+        TaskRegistry third = new TaskRegistry();
+        try (TaskJournal journal = new TaskJournal(journalFile)) {
+            third.attachJournal(journal);
+            assertEquals(2, journal.getRecordCount());
+            assertEquals(15, journal.getTotalHours());
+            assertNull(third.findById("LO:1:SON"));
+            assertNotNull(third.findById("RE:3:SON"));
+            assertEquals(3, third.getLastTaskNumber());
+        }
+    }
+
+    /**
+     * A damaged or unknown checkpoint falls back to reading the whole journal.
+     */
+    @Test
+    public void testBadCheckpointRescansJournal() throws IOException {
+        TaskRegistry first = new TaskRegistry();
+        try (TaskJournal journal = new TaskJournal(journalFile)) {
+            first.attachJournal(journal);
+            Task.create("Login Feature", "Create Login", "Robyn Harrison", 8, "To Do", first);
+            Task.create("Add Task Feature", "Create Add Task", "Mike Smith", 10, "Doing", first);
+        }
+        Files.write(folder.getRoot().toPath().resolve("tasks.dat.checkpoint"), new byte[]{0x51, 0x4A, 0x43, 0x50, 1, 2});
+
+        TaskRegistry second = new TaskRegistry();
+        try (TaskJournal journal = new TaskJournal(journalFile)) {
+            second.attachJournal(journal);
+            assertEquals(2, second.getTaskCount());
+            assertEquals(18, second.getTotalHours());
+        }
+    }
+
+    /**
+     * reset() empties the journal too, so nothing comes back on the next start.
+     */
+    @Test
+    public void testResetClearsJournal() throws IOException {
+        TaskRegistry registry = new TaskRegistry();
+        try (TaskJournal journal = new TaskJournal(journalFile)) {
+            registry.attachJournal(journal);
+            Task.create("Login Feature", "Create Login", "Robyn Harrison", 8, "To Do", registry);
+            registry.reset();
+            assertEquals(0, journal.getRecordCount());
+        }
+
+        TaskRegistry restored = new TaskRegistry();
+        try (TaskJournal journal = new TaskJournal(journalFile)) {
+            restored.attachJournal(journal);
+            assertEquals(0, restored.getTaskCount());
+            assertEquals(0, restored.getLastTaskNumber());
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package part1;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for TaskRegistry.
+ */
+public class TaskRegistryTest {
+
+    private static final int THREADS = 8;
+    private static final int TASKS_PER_THREAD = 5000;
+
+    /**
+     * Tasks created from many threads at once get unique, gap-free numbers,
+     * and the total hours equal the sum of every duration.
+     */
+    @Test
+    public void testConcurrentNumberingAndTotals() throws Exception {
+        TaskRegistry registry = new TaskRegistry();
+        CountDownLatch startSignal = new CountDownLatch(1);
+        ExecutorService threads = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            String developer = "Dev" + t;
+            results.add(threads.submit(() -> {
+                startSignal.await();
+                for (int i = 0; i < TASKS_PER_THREAD; i++) {
+                    Task.create("Task" + i, "Concurrent task", developer, 1 + i % 8, "To Do", registry);
+                }
+                return null;
+            }));
+        }
+        startSignal.countDown();
+        for (Future<?> result : results) {
+            result.get();
+        }
+        threads.shutdown();
+
+        int expected = THREADS * TASKS_PER_THREAD;
+        long expectedHours = 0;
+        for (int i = 0; i < TASKS_PER_THREAD; i++) {
+            expectedHours += 1 + i % 8;
+        }
+        expectedHours *= THREADS;
+
+        Set<Integer> numbers = new HashSet<>();
+        for (Task task : registry.getTasks()) {
+            assertTrue("Duplicate number in " + task.getTaskID(), numbers.add(TaskJournal.numberFromID(task.getTaskID())));
+        }
+        assertEquals(expected, numbers.size());
+        assertTrue(numbers.contains(1));
+        assertTrue(numbers.contains(expected));
+        assertEquals(expected, registry.getTaskCount());
+        assertEquals(expected, registry.getLastTaskNumber());
+        assertEquals(expectedHours, registry.getTotalHours());
+        assertEquals(expectedHours / THREADS, (long) registry.getHoursByDeveloper().get("Dev0"));
+    }
+
+    /**
+     * A task is registered under its ID as soon as create() returns.
+     */
+    @Test
+    public void testCreateRegistersTask() {
+        TaskRegistry registry = new TaskRegistry();
+        Task task = Task.create("Login Feature", "Create Login", "Robyn Harrison", 8, "To Do", registry);
+
+        assertEquals("LO:1:SON", task.getTaskID());
+        assertSame(task, registry.findById("LO:1:SON"));
+        assertEquals(8, registry.getTotalHours());
+    }
+
+    /**
+     * Removing a task drops it from lookups and totals, and its number is not reused.
+     */
+    @Test
+    public void testRemove() {
+        TaskRegistry registry = new TaskRegistry();
+        Task first = Task.create("Login Feature", "Create Login", "Robyn Harrison", 8, "To Do", registry);
+        Task.create("Add Task Feature", "Create Add Task", "Mike Smith", 10, "Doing", registry);
+
+        assertSame(first, registry.remove(first.getTaskID()));
+        assertNull(registry.remove(first.getTaskID()));
+        assertNull(registry.findById(first.getTaskID()));
+        assertEquals(1, registry.getTaskCount());
+        assertEquals(10, registry.getTotalHours());
+        assertNull(registry.getHoursByDeveloper().get("Robyn Harrison"));
+
+        Task next = Task.create("Reports", "Create Reports", "Edward Harrison", 5, "Done", registry);
+        assertEquals(3, TaskJournal.numberFromID(next.getTaskID()));
+    }
+}
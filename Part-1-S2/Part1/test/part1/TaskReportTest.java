@@ -0,0 +1,143 @@
+package part1;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for TaskReport.
+ */
+public class TaskReportTest {
+
+    private TaskRegistry registry;
+    private TaskReport report;
+
+    @Before
+    public void setUp() {
+        registry = new TaskRegistry();
+        Task.create("Login Feature", "Create Login", "Mike Smith", 5, "To Do", registry);
+        Task.create("Add Task Feature", "Create Add Task", "Edward Harrison", 8, "Doing", registry);
+        Task.create("Reports", "Create Reports", "Samantha Paulson", 2, "Done", registry);
+        Task.create("Arrays", "Add Arrays", "Glenda Oberholzer", 11, "To Do", registry);
+        Task.create("Fix Login", "Fix Login", "Mike Smith", 3, "Done", registry);
+        report = new TaskReport(registry.getTasks());
+    }
+
+    private static List<Integer> durations(List<Task> tasks) {
+        List<Integer> durations = new ArrayList<>();
+        for (Task task : tasks) {
+            durations.add(task.getTaskDuration());
+        }
+        return durations;
+    }
+
+    /**
+     * Count, total, min, max and average over all tasks.
+     */
+    @Test
+    public void testOverallStats() {
+        TaskReport.DurationStats stats = report.getOverallStats();
+        assertEquals(5, stats.getCount());
+        assertEquals(29, stats.getTotalHours());
+        assertEquals(2, stats.getMinHours());
+        assertEquals(11, stats.getMaxHours());
+        assertEquals(5.8, stats.getAverageHours(), 1e-9);
+        assertTrue(stats.toString().startsWith("5 tasks, 29 hours total"));
+    }
+
+    /**
+     * Grouping by developer and by status, each sorted by key.
+     */
+    @Test
+    public void testGrouping() {
+        Map<String, TaskReport.DurationStats> byDeveloper = report.groupByDeveloper();
+        assertEquals(Arrays.asList("Edward Harrison", "Glenda Oberholzer", "Mike Smith", "Samantha Paulson"),
+                new ArrayList<>(byDeveloper.keySet()));
+        TaskReport.DurationStats mike = byDeveloper.get("Mike Smith");
+        assertEquals(2, mike.getCount());
+        assertEquals(8, mike.getTotalHours());
+        assertEquals(3, mike.getMinHours());
+        assertEquals(5, mike.getMaxHours());
+        assertEquals(4.0, mike.getAverageHours(), 1e-9);
+
+        Map<String, TaskReport.DurationStats> byStatus = report.groupByStatus();
+        assertEquals(Arrays.asList("Doing", "Done", "To Do"), new ArrayList<>(byStatus.keySet()));
+        assertEquals(16, byStatus.get("To Do").getTotalHours());
+        assertEquals(2, byStatus.get("Done").getCount());
+    }
+
+    /**
+     * No tasks: zero everywhere instead of the MIN/MAX sentinels.
+     */
+    @Test
+    public void testEmptyStats() {
+        TaskReport empty = new TaskReport(Collections.<Task>emptyList());
+        TaskReport.DurationStats stats = empty.getOverallStats();
+        assertEquals(0, stats.getCount());
+        assertEquals(0, stats.getMinHours());
+        assertEquals(0, stats.getMaxHours());
+        assertEquals(0.0, stats.getAverageHours(), 0);
+        assertTrue(empty.groupByDeveloper().isEmpty());
+        assertTrue(empty.topLongest(3).isEmpty());
+    }
+
+    /**
+     * Top-N is longest first; with ties at the cut-off, one of the tied tasks is
+     * kept and the result never exceeds N.
+     */
+    @Test
+    public void testTopLongestWithTies() {
+        Task.create("Tie", "Same as Add Task", "Mike Smith", 8, "To Do", registry);
+
+        assertEquals(Arrays.asList(11, 8, 8), durations(report.topLongest(3)));
+        assertEquals(Arrays.asList(11, 8), durations(report.topLongest(2)));
+        assertEquals(Arrays.asList(11, 8, 8, 5, 3, 2), durations(report.topLongest(10)));
+        assertTrue(report.topLongest(0).isEmpty());
+    }
+
+    /**
+     * Above the parallel threshold, the per-thread heaps merge into the right top N.
+     */
+    @Test
+    public void testTopLongestParallel() {
+        TaskRegistry large = new TaskRegistry();
+        int count = TaskReport.PARALLEL_THRESHOLD + 5000;
+        for (int i = 0; i < count; i++) {
+            Task.create("Task" + i, "Bulk", "Dev" + (i % 7), i % 1000, "To Do", large);
+        }
+        TaskReport bulk = new TaskReport(large.getTasks());
+
+        List<Integer> top = durations(bulk.topLongest(20));
+        assertEquals(20, top.size());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(999 - i / 15, (int) top.get(i)); // 15 tasks of each duration
+        }
+        assertEquals(count, bulk.getOverallStats().getCount());
+        assertEquals(7, bulk.groupByDeveloper().size());
+    }
+
+    /**
+     * The listing writes one line per task that passes the filter.
+     */
+    @Test
+    public void testListingFilter() throws IOException {
+        StringBuilder out = new StringBuilder();
+        int written = report.writeListing(task -> "Done".equals(task.getTaskStatus()), out);
+
+        assertEquals(2, written);
+        String[] lines = out.toString().split(System.lineSeparator());
+        assertEquals(2, lines.length);
+        List<String> sorted = new ArrayList<>(Arrays.asList(lines));
+        Collections.sort(sorted);
+        assertEquals("FI:5:ITH | Fix Login | Mike Smith | 3h | Done", sorted.get(0));
+        assertEquals("RE:3:SON | Reports | Samantha Paulson | 2h | Done", sorted.get(1));
+
+        assertEquals(0, report.writeListing(task -> false, new StringBuilder()));
+    }
+}
@@ -0,0 +1,83 @@
+package part1;
+
+import java.util.Map;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for TaskTable.
+ */
+public class TaskTableTest {
+
+    /**
+     * The table grows past the old 100-task limit and keeps every row intact.
+     */
+    @Test
+    public void testGrowsPastOneHundredRows() {
+        TaskTable table = new TaskTable();
+        for (int i = 1; i <= 250; i++) {
+            assertEquals(i - 1, table.add("Dev" + (i % 3), "Task" + i, "TA:" + i + ":DEV", i, "To Do"));
+        }
+
+        assertEquals(250, table.size());
+        assertEquals("Task101", table.getTaskName(100));
+        assertEquals("TA:250:DEV", table.getTaskID(249));
+        assertEquals(250, table.getTaskDuration(249));
+        assertEquals("Dev1", table.getDeveloper(0));
+        assertEquals(249, table.findLongestTask());
+        assertEquals(250L * 251 / 2, table.getTotalHours());
+    }
+
+    /**
+     * Task IDs are found through the index, including rows added after growing.
+     */
+    @Test
+    public void testFindByTaskID() {
+        TaskTable table = new TaskTable();
+        for (int i = 1; i <= 150; i++) {
+            table.add("Dev", "Task" + i, "TA:" + i + ":DEV", 1, "Done");
+        }
+
+        assertEquals(0, table.findByTaskID("TA:1:DEV"));
+        assertEquals(149, table.findByTaskID("TA:150:DEV"));
+        assertEquals(-1, table.findByTaskID("TA:151:DEV"));
+    }
+
+    /**
+     * Hours per developer and rows per developer and status are kept up to date.
+     */
+    @Test
+    public void testDeveloperAndStatusAggregates() {
+        TaskTable table = new TaskTable();
+        table.add("Mike Smith", "Create Login", "CR:1:ITH", 5, "To Do");
+        table.add("Edward Harrison", "Create Add Features", "CR:2:SON", 8, "Doing");
+        table.add("Samantha Paulson", "Create Reports", "CR:3:SON", 2, "Done");
+        table.add("Glenda Oberholzer", "Add Arrays", "AD:4:ZER", 11, "To Do");
+        table.add("Mike Smith", "Fix Login", "FI:5:ITH", 3, "Done");
+
+        assertEquals(8, table.getHoursForDeveloper("Mike Smith"));
+        assertEquals(0, table.getHoursForDeveloper("Nobody"));
+        Map<String, Long> hours = table.getHoursByDeveloper();
+        assertEquals(4, hours.size());
+        assertEquals("Mike Smith", hours.keySet().iterator().next());
+        assertEquals(Long.valueOf(11), hours.get("Glenda Oberholzer"));
+
+        assertArrayEquals(new int[]{0, 4}, table.getRowsForDeveloper("Mike Smith"));
+        assertArrayEquals(new int[]{0, 3}, table.getRowsWithStatus("To Do"));
+        assertArrayEquals(new int[]{2, 4}, table.getRowsWithStatus("Done"));
+        assertArrayEquals(new int[0], table.getRowsWithStatus("Blocked"));
+        assertEquals("Done", table.getTaskStatus(4));
+        assertEquals(3, table.findLongestTask());
+        assertEquals(29, table.getTotalHours());
+    }
+
+    /**
+     * Rows outside the table are rejected.
+     */
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testRowOutOfRange() {
+        TaskTable table = new TaskTable();
+        table.add("Dev", "Task", "TA:1:DEV", 1, "To Do");
+        table.getTaskName(1);
+    }
+}